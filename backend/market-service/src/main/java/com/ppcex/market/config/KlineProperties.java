@@ -0,0 +1,35 @@
+package com.ppcex.market.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cex.market.sync.kline")
+public class KlineProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 内存聚合的K线周期，为空时聚合全部周期
+     */
+    private List<String> intervals = new ArrayList<>();
+
+    private int historyLimit = 1000;
+
+    private long generateInterval = 60000;
+
+    /**
+     * 未收盘K线的增量落库间隔；K线收盘时立即落库，不等待该间隔
+     */
+    private long flushIntervalMillis = 1000;
+
+    /**
+     * 单条upsert语句最多写入的K线行数
+     */
+    private int flushBatchSize = 500;
+}
@@ -22,5 +22,9 @@ public interface MarketKlineMapper extends BaseMapper<MarketKline> {
 
     int updateKline(@Param("kline") MarketKline kline);
 
+    int upsertKlines(@Param("klines") List<MarketKline> klines);
+
+    int mergeLateKlines(@Param("klines") List<MarketKline> klines);
+
     int deleteOldKlines(@Param("symbol") String symbol, @Param("interval") String interval, @Param("beforeTime") Long beforeTime);
 }
\ No newline at end of file
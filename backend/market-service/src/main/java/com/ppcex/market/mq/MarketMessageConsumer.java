@@ -1,6 +1,7 @@
 package com.ppcex.market.mq;
 
 import com.alibaba.fastjson2.JSON;
+import com.ppcex.market.service.KlineAggregator;
 import com.ppcex.market.service.MarketTickerService;
 import com.ppcex.market.service.MarketTradeService;
 import com.ppcex.market.service.MarketDepthService;
@@ -35,6 +36,9 @@ public class MarketMessageConsumer {
     @Autowired
     private MarketMessageProducer marketMessageProducer;
 
+    @Autowired
+    private KlineAggregator klineAggregator;
+
     /**
      * 处理来自trade-service的成交消息
      */
@@ -135,8 +139,8 @@ public class MarketMessageConsumer {
         // 添加成交记录
         marketTradeService.addTrade(tradeId, symbol, price, amount, timestamp, isBuyerMaker);
 
-        // 更新K线数据
-        marketKlineService.updateKline(symbol, "1m", timestamp, price, amount);
+        // 折叠进各周期的内存K线，由聚合器批量落库
+        klineAggregator.onTrade(symbol, timestamp != null ? timestamp : System.currentTimeMillis(), price, amount);
 
         log.info("处理成交执行: {} {} {} {}", symbol, price, amount, isBuyerMaker);
     }
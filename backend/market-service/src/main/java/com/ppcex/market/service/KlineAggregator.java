@@ -0,0 +1,291 @@
+package com.ppcex.market.service;
+
+import com.ppcex.market.config.KlineProperties;
+import com.ppcex.market.entity.MarketKline;
+import com.ppcex.market.enums.KlineIntervalEnum;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * K线内存聚合：每笔成交一次性折叠进各周期当前未收盘的K线，不访问数据库。
+ * 落库线程按固定间隔把未收盘K线自上次落库以来的增量批量upsert，K线收盘时立即落库。
+ * 开高低收按绝对值写入、成交量和笔数按增量累加，重启后续写同一根K线也不会覆盖已落库的数据。
+ * 落库和失败重写只在落库线程上执行，停止时的最后一次落库也由该线程在退出前完成。
+ */
+@Slf4j
+@Component
+public class KlineAggregator {
+
+    @Autowired
+    private MarketKlineService marketKlineService;
+
+    @Autowired
+    private KlineProperties klineProperties;
+
+    private static final int MAX_RETRIES = 3;
+
+    private final Map<String, SymbolKlines> symbols = new ConcurrentHashMap<>();
+    private final BlockingQueue<MarketKline> closedKlines = new LinkedBlockingQueue<>();
+    private final List<MarketKline> failedKlines = new ArrayList<>();
+    private final List<MarketKline> failedLateKlines = new ArrayList<>();
+
+    private KlineIntervalEnum[] intervals;
+    private long[] intervalMillis;
+    private Thread flushThread;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        if (!klineProperties.isEnabled()) {
+            log.info("K线聚合未启用");
+            return;
+        }
+        List<KlineIntervalEnum> configured = new ArrayList<>();
+        for (KlineIntervalEnum interval : KlineIntervalEnum.values()) {
+            if (klineProperties.getIntervals().isEmpty() || klineProperties.getIntervals().contains(interval.getCode())) {
+                configured.add(interval);
+            }
+        }
+        intervals = configured.toArray(new KlineIntervalEnum[0]);
+        intervalMillis = new long[intervals.length];
+        for (int i = 0; i < intervals.length; i++) {
+            intervalMillis[i] = intervals[i].getSeconds() * 1000L;
+        }
+
+        running = true;
+        flushThread = new Thread(this::flushLoop, "kline-flusher");
+        flushThread.setDaemon(true);
+        flushThread.start();
+        log.info("K线聚合启动: intervals={}", configured.size());
+    }
+
+    /**
+     * 把一笔成交折叠进该交易对所有周期的当前K线；成交时间早于当前K线的迟到成交单独记一条增量，不改变开收盘价
+     */
+    public void onTrade(String symbol, long timestamp, BigDecimal price, BigDecimal amount) {
+        if (!running) {
+            return;
+        }
+        BigDecimal quoteVolume = price.multiply(amount);
+        SymbolKlines state = symbols.computeIfAbsent(symbol, k -> new SymbolKlines(intervals.length));
+        synchronized (state) {
+            for (int i = 0; i < intervals.length; i++) {
+                long openTime = timestamp - Math.floorMod(timestamp, intervalMillis[i]);
+                Candle candle = state.candles[i];
+                if (candle == null || openTime > candle.openTime) {
+                    if (candle != null && candle.dirty) {
+                        // 收盘的K线立即交给落库线程
+                        closedKlines.add(candle.drain(symbol, intervals[i]));
+                    }
+                    state.candles[i] = new Candle(openTime, openTime + intervalMillis[i], price, amount, quoteVolume);
+                } else if (openTime == candle.openTime) {
+                    candle.add(price, amount, quoteVolume);
+                } else {
+                    state.lateKlines.add(lateKline(symbol, intervals[i], openTime, intervalMillis[i], price, amount, quoteVolume));
+                }
+            }
+        }
+    }
+
+    private void flushLoop() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(klineProperties.getFlushIntervalMillis());
+        long nextFlush = System.nanoTime() + intervalNanos;
+        List<MarketKline> closed = new ArrayList<>();
+
+        while (running) {
+            try {
+                long remaining = nextFlush - System.nanoTime();
+                MarketKline first = remaining > 0 ? closedKlines.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (first != null) {
+                    closed.add(first);
+                    closedKlines.drainTo(closed);
+                    flush(closed, false);
+                } else {
+                    flush(closed, true);
+                    nextFlush = System.nanoTime() + intervalNanos;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("K线落库线程异常", e);
+            } finally {
+                closed.clear();
+            }
+        }
+
+        try {
+            flush(closed, true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("K线停止前落库失败: failed={}, late={}", failedKlines.size(), failedLateKlines.size(), e);
+        }
+    }
+
+    /**
+     * 先写上次失败的行、再写收盘K线、最后写未收盘K线的增量，保证同一根K线的收盘价按时间顺序覆盖
+     */
+    private void flush(List<MarketKline> closed, boolean includeOpen) throws InterruptedException {
+        List<MarketKline> klines = new ArrayList<>(failedKlines);
+        List<MarketKline> lateKlines = new ArrayList<>(failedLateKlines);
+        failedKlines.clear();
+        failedLateKlines.clear();
+        klines.addAll(closed);
+        if (includeOpen) {
+            closedKlines.drainTo(klines);
+            for (Map.Entry<String, SymbolKlines> entry : symbols.entrySet()) {
+                SymbolKlines state = entry.getValue();
+                synchronized (state) {
+                    for (int i = 0; i < intervals.length; i++) {
+                        Candle candle = state.candles[i];
+                        if (candle != null && candle.dirty) {
+                            klines.add(candle.drain(entry.getKey(), intervals[i]));
+                        }
+                    }
+                    lateKlines.addAll(state.lateKlines);
+                    state.lateKlines.clear();
+                }
+            }
+        }
+        if (klines.isEmpty() && lateKlines.isEmpty()) {
+            return;
+        }
+
+        for (int attempt = 0; attempt <= MAX_RETRIES; attempt++) {
+            if (attempt > 0) {
+                Thread.sleep(50L << attempt);
+            }
+            try {
+                // 增量累加不幂等，整批在一个事务内写入，失败重试时不会重复累加
+                marketKlineService.upsertKlines(klines, lateKlines);
+                log.debug("K线落库完成: klines={}, late={}", klines.size(), lateKlines.size());
+                return;
+            } catch (Exception e) {
+                log.warn("K线批量落库失败: klines={}, late={}, attempt={}", klines.size(), lateKlines.size(), attempt + 1, e);
+            }
+        }
+        // 重试耗尽后保留本批增量，下次落库时放在最前面重写
+        failedKlines.addAll(klines);
+        failedLateKlines.addAll(lateKlines);
+        log.error("K线落库重试耗尽，留待下次落库: klines={}, late={}", klines.size(), lateKlines.size());
+    }
+
+    private static MarketKline lateKline(String symbol, KlineIntervalEnum interval, long openTime, long millis,
+                                         BigDecimal price, BigDecimal amount, BigDecimal quoteVolume) {
+        MarketKline kline = new MarketKline();
+        kline.setSymbol(symbol);
+        kline.setInterval(interval.getCode());
+        kline.setOpenTime(openTime);
+        kline.setCloseTime(openTime + millis);
+        kline.setOpenPrice(price);
+        kline.setHighPrice(price);
+        kline.setLowPrice(price);
+        kline.setClosePrice(price);
+        kline.setVolume(amount);
+        kline.setQuoteVolume(quoteVolume);
+        kline.setTradesCount(1);
+        return kline;
+    }
+
+    /**
+     * 停止聚合，等落库线程把内存中尚未落库的增量全部写入后退出；本线程不访问待重写的失败行
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        flushThread.join(TimeUnit.SECONDS.toMillis(10));
+        if (flushThread.isAlive()) {
+            log.warn("K线落库线程未在超时内退出，剩余增量由该线程继续写入");
+            return;
+        }
+        log.info("K线聚合已停止: symbols={}", symbols.size());
+    }
+
+    private static class SymbolKlines {
+        private final Candle[] candles;
+        private final List<MarketKline> lateKlines = new ArrayList<>();
+
+        private SymbolKlines(int intervals) {
+            this.candles = new Candle[intervals];
+        }
+    }
+
+    /**
+     * 一根未收盘的K线：开高低收为整根K线的值，成交量、成交额、笔数为上次落库以来的增量
+     */
+    private static class Candle {
+        private final long openTime;
+        private final long closeTime;
+        private final BigDecimal openPrice;
+        private BigDecimal highPrice;
+        private BigDecimal lowPrice;
+        private BigDecimal closePrice;
+        private BigDecimal volume;
+        private BigDecimal quoteVolume;
+        private int tradesCount;
+        private boolean dirty;
+
+        private Candle(long openTime, long closeTime, BigDecimal price, BigDecimal amount, BigDecimal quoteVolume) {
+            this.openTime = openTime;
+            this.closeTime = closeTime;
+            this.openPrice = price;
+            this.highPrice = price;
+            this.lowPrice = price;
+            this.closePrice = price;
+            this.volume = amount;
+            this.quoteVolume = quoteVolume;
+            this.tradesCount = 1;
+            this.dirty = true;
+        }
+
+        private void add(BigDecimal price, BigDecimal amount, BigDecimal quoteVolume) {
+            if (price.compareTo(highPrice) > 0) {
+                highPrice = price;
+            }
+            if (price.compareTo(lowPrice) < 0) {
+                lowPrice = price;
+            }
+            closePrice = price;
+            volume = volume.add(amount);
+            this.quoteVolume = this.quoteVolume.add(quoteVolume);
+            tradesCount++;
+            dirty = true;
+        }
+
+        private MarketKline drain(String symbol, KlineIntervalEnum interval) {
+            MarketKline kline = new MarketKline();
+            kline.setSymbol(symbol);
+            kline.setInterval(interval.getCode());
+            kline.setOpenTime(openTime);
+            kline.setCloseTime(closeTime);
+            kline.setOpenPrice(openPrice);
+            kline.setHighPrice(highPrice);
+            kline.setLowPrice(lowPrice);
+            kline.setClosePrice(closePrice);
+            kline.setVolume(volume);
+            kline.setQuoteVolume(quoteVolume);
+            kline.setTradesCount(tradesCount);
+            volume = BigDecimal.ZERO;
+            quoteVolume = BigDecimal.ZERO;
+            tradesCount = 0;
+            dirty = false;
+            return kline;
+        }
+    }
+}
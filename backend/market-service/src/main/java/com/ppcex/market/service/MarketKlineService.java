@@ -16,6 +16,11 @@ public interface MarketKlineService {
 
     void batchUpdateKlines(List<MarketKline> klines);
 
+    /**
+     * 按唯一键合并K线增量：开高低收取绝对值，成交量、成交额、笔数累加；迟到成交的增量不改变开收盘价
+     */
+    void upsertKlines(List<MarketKline> klines, List<MarketKline> lateKlines);
+
     void generateKlineData(String symbol, String interval, Long startTime, Long endTime);
 
     void cleanOldKlines();
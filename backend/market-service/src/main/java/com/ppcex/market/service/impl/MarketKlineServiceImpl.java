@@ -1,6 +1,7 @@
 package com.ppcex.market.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.ppcex.market.config.KlineProperties;
 import com.ppcex.market.entity.MarketKline;
 import com.ppcex.market.mapper.MarketKlineMapper;
 import com.ppcex.market.service.MarketKlineService;
@@ -20,7 +21,9 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -34,6 +37,9 @@ public class MarketKlineServiceImpl extends ServiceImpl<MarketKlineMapper, Marke
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private KlineProperties klineProperties;
+
     private static final String KLINE_CACHE_PREFIX = "kline:";
     private static final int KLINE_CACHE_LIMIT = 1000;
 
@@ -125,6 +131,28 @@ public class MarketKlineServiceImpl extends ServiceImpl<MarketKlineMapper, Marke
         }
     }
 
+    @Override
+    @CacheEvict(value = {"klineData", "latestKline"}, allEntries = true)
+    @Transactional
+    public void upsertKlines(List<MarketKline> klines, List<MarketKline> lateKlines) {
+        int batchSize = klineProperties.getFlushBatchSize();
+        for (int from = 0; from < klines.size(); from += batchSize) {
+            marketKlineMapper.upsertKlines(klines.subList(from, Math.min(from + batchSize, klines.size())));
+        }
+        for (int from = 0; from < lateKlines.size(); from += batchSize) {
+            marketKlineMapper.mergeLateKlines(lateKlines.subList(from, Math.min(from + batchSize, lateKlines.size())));
+        }
+
+        Set<String> cacheKeys = new HashSet<>();
+        for (MarketKline kline : klines) {
+            cacheKeys.add(KLINE_CACHE_PREFIX + kline.getSymbol() + ":" + kline.getInterval());
+        }
+        for (MarketKline kline : lateKlines) {
+            cacheKeys.add(KLINE_CACHE_PREFIX + kline.getSymbol() + ":" + kline.getInterval());
+        }
+        redisTemplate.delete(cacheKeys);
+    }
+
     @Override
     @CacheEvict(value = {"klineData", "latestKline"}, allEntries = true)
     @Transactional
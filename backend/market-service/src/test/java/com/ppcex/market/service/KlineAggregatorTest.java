@@ -0,0 +1,180 @@
+package com.ppcex.market.service;
+
+import com.ppcex.market.config.KlineProperties;
+import com.ppcex.market.entity.MarketKline;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class KlineAggregatorTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long T0 = 1_699_999_980_000L;
+
+    private final MarketKlineService marketKlineService = mock(MarketKlineService.class);
+
+    @Test
+    void testRolloverClosesPreviousCandle() {
+        KlineAggregator aggregator = newAggregator(false);
+        aggregator.onTrade("BTCUSDT", T0 + 1_000, price("100"), amount("1"));
+        aggregator.onTrade("BTCUSDT", T0 + 30_000, price("105"), amount("2"));
+        aggregator.onTrade("BTCUSDT", T0 + MINUTE + 5_000, price("99"), amount("3"));
+
+        List<List<MarketKline>> flushed = flush(aggregator);
+
+        List<MarketKline> klines = flushed.get(0);
+        assertEquals(2, klines.size());
+        MarketKline closed = klines.get(0);
+        assertEquals(T0, closed.getOpenTime());
+        assertEquals(T0 + MINUTE, closed.getCloseTime());
+        assertDecimal("100", closed.getOpenPrice());
+        assertDecimal("105", closed.getClosePrice());
+        assertDecimal("105", closed.getHighPrice());
+        assertDecimal("3", closed.getVolume());
+        assertEquals(2, closed.getTradesCount());
+
+        MarketKline open = klines.get(1);
+        assertEquals(T0 + MINUTE, open.getOpenTime());
+        assertDecimal("99", open.getOpenPrice());
+        assertDecimal("3", open.getVolume());
+        assertTrue(flushed.get(1).isEmpty());
+    }
+
+    @Test
+    void testLateTradeIsSeparateDeltaAndKeepsCurrentPrices() {
+        KlineAggregator aggregator = newAggregator(false);
+        aggregator.onTrade("BTCUSDT", T0 + MINUTE + 1_000, price("100"), amount("1"));
+        aggregator.onTrade("BTCUSDT", T0 + 10_000, price("80"), amount("2"));
+
+        List<List<MarketKline>> flushed = flush(aggregator);
+
+        MarketKline current = flushed.get(0).get(0);
+        assertEquals(T0 + MINUTE, current.getOpenTime());
+        assertDecimal("100", current.getLowPrice());
+        assertDecimal("100", current.getClosePrice());
+        assertDecimal("1", current.getVolume());
+
+        MarketKline late = flushed.get(1).get(0);
+        assertEquals(T0, late.getOpenTime());
+        assertDecimal("80", late.getClosePrice());
+        assertDecimal("2", late.getVolume());
+        assertDecimal("160", late.getQuoteVolume());
+        assertEquals(1, late.getTradesCount());
+    }
+
+    @Test
+    void testOpenCandleFlushesAbsolutePricesAndVolumeDeltas() {
+        KlineAggregator aggregator = newAggregator(false);
+        aggregator.onTrade("BTCUSDT", T0 + 1_000, price("100"), amount("1"));
+        MarketKline first = flush(aggregator).get(0).get(0);
+
+        aggregator.onTrade("BTCUSDT", T0 + 2_000, price("110"), amount("2"));
+        aggregator.onTrade("BTCUSDT", T0 + 3_000, price("95"), amount("0.5"));
+        MarketKline second = flush(aggregator).get(0).get(0);
+
+        assertDecimal("1", first.getVolume());
+        assertEquals(1, first.getTradesCount());
+        // 开高低收是整根K线的值，成交量和笔数只含上次落库之后的增量
+        assertDecimal("100", second.getOpenPrice());
+        assertDecimal("110", second.getHighPrice());
+        assertDecimal("95", second.getLowPrice());
+        assertDecimal("95", second.getClosePrice());
+        assertDecimal("2.5", second.getVolume());
+        assertDecimal("267.5", second.getQuoteVolume());
+        assertEquals(2, second.getTradesCount());
+
+        // 没有新成交时不再落库
+        clearInvocations(marketKlineService);
+        ReflectionTestUtils.invokeMethod(aggregator, "flush", new ArrayList<MarketKline>(), true);
+        verifyNoInteractions(marketKlineService);
+    }
+
+    @Test
+    void testFailedBatchIsRewrittenFirst() {
+        KlineAggregator aggregator = newAggregator(false);
+        aggregator.onTrade("BTCUSDT", T0 + 1_000, price("100"), amount("1"));
+
+        // 重试全部失败，增量保留到下次落库时放在最前面
+        doThrow(new IllegalStateException("db down")).when(marketKlineService).upsertKlines(anyList(), anyList());
+        ReflectionTestUtils.invokeMethod(aggregator, "flush", new ArrayList<MarketKline>(), true);
+        reset(marketKlineService);
+        aggregator.onTrade("BTCUSDT", T0 + 2_000, price("101"), amount("2"));
+
+        List<MarketKline> klines = flush(aggregator).get(0);
+        assertEquals(2, klines.size());
+        assertDecimal("1", klines.get(0).getVolume());
+        assertDecimal("2", klines.get(1).getVolume());
+        assertDecimal("101", klines.get(1).getClosePrice());
+    }
+
+    @Test
+    void testShutdownFlushesOnFlushThreadAndStopsIt() throws Exception {
+        KlineAggregator aggregator = newAggregator(true);
+        aggregator.onTrade("BTCUSDT", T0 + 1_000, price("100"), amount("1"));
+
+        aggregator.shutdown();
+
+        Thread flushThread = (Thread) ReflectionTestUtils.getField(aggregator, "flushThread");
+        assertFalse(flushThread.isAlive());
+        verify(marketKlineService, times(1)).upsertKlines(anyList(), anyList());
+        // 停止后的成交不再聚合
+        aggregator.onTrade("BTCUSDT", T0 + 2_000, price("100"), amount("1"));
+        aggregator.shutdown();
+        verify(marketKlineService, times(1)).upsertKlines(anyList(), anyList());
+    }
+
+    /**
+     * 只聚合1分钟K线；不启动落库线程时由测试直接调用落库，全部操作在测试线程上串行执行
+     */
+    private KlineAggregator newAggregator(boolean startFlushThread) {
+        KlineProperties properties = new KlineProperties();
+        properties.setIntervals(List.of("1m"));
+        properties.setFlushIntervalMillis(startFlushThread ? 200 : 10);
+        KlineAggregator aggregator = new KlineAggregator();
+        ReflectionTestUtils.setField(aggregator, "marketKlineService", marketKlineService);
+        ReflectionTestUtils.setField(aggregator, "klineProperties", properties);
+        aggregator.init();
+        if (!startFlushThread) {
+            Thread flushThread = (Thread) ReflectionTestUtils.getField(aggregator, "flushThread");
+            ReflectionTestUtils.setField(aggregator, "running", false);
+            try {
+                flushThread.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            clearInvocations(marketKlineService);
+            ReflectionTestUtils.setField(aggregator, "running", true);
+        }
+        return aggregator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<MarketKline>> flush(KlineAggregator aggregator) {
+        clearInvocations(marketKlineService);
+        ReflectionTestUtils.invokeMethod(aggregator, "flush", new ArrayList<MarketKline>(), true);
+        ArgumentCaptor<List<MarketKline>> klines = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<MarketKline>> late = ArgumentCaptor.forClass(List.class);
+        verify(marketKlineService).upsertKlines(klines.capture(), late.capture());
+        return List.of(new ArrayList<>(klines.getValue()), new ArrayList<>(late.getValue()));
+    }
+
+    private static BigDecimal price(String value) {
+        return new BigDecimal(value);
+    }
+
+    private static BigDecimal amount(String value) {
+        return new BigDecimal(value);
+    }
+
+    private static void assertDecimal(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,87 @@
+package com.ppcex.match.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cex.match.engine")
+public class MatchEngineProperties {
+
+    /**
+     * 每个分片RingBuffer大小，必须为2的幂
+     */
+    private int bufferSize = 1024;
+
+    /**
+     * 撮合分片数，每个分片一个RingBuffer和一个撮合线程，同一交易对固定落在同一分片
+     */
+    private int threadCount = 4;
+
+    /**
+     * 订单去重配置
+     */
+    private Dedup dedup = new Dedup();
+
+    /**
+     * 启动预热配置
+     */
+    private WarmUp warmUp = new WarmUp();
+
+    /**
+     * 订单簿合并推送配置
+     */
+    private Broadcast broadcast = new Broadcast();
+
+    /**
+     * 默认手续费表，交易对未单独配置时使用
+     */
+    private Fee fee = new Fee();
+
+    @Data
+    public static class Dedup {
+        private boolean enabled = true;
+        private int bucketSeconds = 60;
+        private int bucketCount = 10;
+        private int bitsPerBucket = 1 << 20;
+        private int hashCount = 7;
+        private int recentCapacity = 100000;
+        private int snapshotIntervalSeconds = 30;
+    }
+
+    @Data
+    public static class WarmUp {
+        private boolean enabled = true;
+        private int ordersPerRound = 20000;
+        private int maxRounds = 50;
+        private int maxDurationSeconds = 60;
+        private int stableRounds = 3;
+        private long compileThresholdMillis = 5;
+    }
+
+    @Data
+    public static class Fee {
+        /**
+         * 按VIP等级排列的挂单费率，最多8位小数
+         */
+        private List<BigDecimal> makerRates = List.of(new BigDecimal("0.001"));
+        /**
+         * 按VIP等级排列的吃单费率，最多8位小数
+         */
+        private List<BigDecimal> takerRates = List.of(new BigDecimal("0.001"));
+        private int refreshIntervalSeconds = 300;
+    }
+
+    @Data
+    public static class Broadcast {
+        private long conflationMillis = 100;
+        private int depth = 20;
+        private int maxTradesPerFlush = 500;
+        private int sendBufferSizeLimit = 512 * 1024;
+        private int sendTimeLimitMillis = 10000;
+    }
+}
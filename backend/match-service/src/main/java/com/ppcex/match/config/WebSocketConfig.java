@@ -1,15 +1,20 @@
 package com.ppcex.match.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Autowired
+    private MatchEngineProperties engineProperties;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic", "/queue");
@@ -22,4 +27,14 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
+
+    /**
+     * 每个会话的发送缓冲有上限，慢订阅者超限或发送超时即断开，不拖累推送线程
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        MatchEngineProperties.Broadcast broadcast = engineProperties.getBroadcast();
+        registration.setSendBufferSizeLimit(broadcast.getSendBufferSizeLimit())
+                .setSendTimeLimit(broadcast.getSendTimeLimitMillis());
+    }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import com.ppcex.match.dto.OrderBookResponse;
 import com.ppcex.match.dto.TradeHistoryRequest;
 import com.ppcex.match.dto.TradeHistoryResponse;
 import com.ppcex.match.engine.MatchingEngine;
+import com.ppcex.match.engine.OrderBookResync;
 import com.ppcex.match.entity.TradeRecord;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -41,6 +42,18 @@ public class MatchController {
         }
     }
 
+    @GetMapping("/orderbook/{symbol}/resync")
+    @Operation(summary = "订单簿断档补齐")
+    public Result<OrderBookResync> resyncOrderBook(@PathVariable String symbol,
+                                                   @RequestParam long fromSequence,
+                                                   @RequestParam(defaultValue = "20") int depth) {
+        try {
+            return Result.success(matchingEngine.getResync(symbol, fromSequence, depth));
+        } catch (Exception e) {
+            return Result.error("订单簿补齐失败: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/price/{symbol}")
     @Operation(summary = "获取最新价格")
     public Result<BigDecimal> getLatestPrice(@PathVariable String symbol) {
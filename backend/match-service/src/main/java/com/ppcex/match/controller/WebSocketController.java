@@ -1,10 +1,13 @@
 package com.ppcex.match.controller;
 
 import com.ppcex.match.engine.MatchingEngine;
+import com.ppcex.match.engine.OrderBookBroadcaster;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
 
 import java.util.Map;
@@ -16,10 +19,15 @@ public class WebSocketController {
     @Autowired
     private MatchingEngine matchingEngine;
 
-    @MessageMapping("/subscribe/{symbol}")
-    @SendTo("/topic/orderbook/{symbol}")
-    public Map<String, Object> subscribeOrderBook(String symbol) {
-        return matchingEngine.getOrderBookSnapshot(symbol);
+    @Autowired
+    private OrderBookBroadcaster orderBookBroadcaster;
+
+    /**
+     * 订阅 /app/orderbook/{symbol} 时只给该会话回复最近一次推送内容，后续增量走 /topic/orderbook/{symbol}
+     */
+    @SubscribeMapping("/orderbook/{symbol}")
+    public Map<String, Object> initialOrderBook(@DestinationVariable String symbol) {
+        return orderBookBroadcaster.getLatestUpdate(symbol);
     }
 
     @MessageMapping("/price/{symbol}")
@@ -4,14 +4,20 @@ import com.lmax.disruptor.BlockingWaitStrategy;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
+import com.ppcex.match.config.MatchEngineProperties;
 import com.ppcex.match.entity.MatchOrder;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import java.util.concurrent.Executors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
 
 @Slf4j
 @Component
@@ -20,27 +26,57 @@ public class DisruptorOrderProcessor {
     @Autowired
     private MatchingEngine matchingEngine;
 
-    private Disruptor<OrderEvent> disruptor;
-    private RingBuffer<OrderEvent> ringBuffer;
+    @Autowired
+    private MatchEngineProperties engineProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<Disruptor<OrderEvent>> disruptors = new ArrayList<>();
+    private final List<RingBuffer<OrderEvent>> ringBuffers = new ArrayList<>();
 
     @PostConstruct
     public void init() {
-        disruptor = new Disruptor<>(
-                new OrderEventFactory(),
-                1024,
-                Executors.defaultThreadFactory(),
-                ProducerType.MULTI,
-                new BlockingWaitStrategy()
-        );
-
-        disruptor.handleEventsWith(new OrderEventHandler(matchingEngine));
-        disruptor.start();
-
-        ringBuffer = disruptor.getRingBuffer();
-        log.info("Disruptor订单处理器初始化完成");
+        int shardCount = Math.max(1, engineProperties.getThreadCount());
+        for (int i = 0; i < shardCount; i++) {
+            String threadName = "match-shard-" + i;
+            Disruptor<OrderEvent> disruptor = new Disruptor<>(
+                    new OrderEventFactory(),
+                    engineProperties.getBufferSize(),
+                    (ThreadFactory) r -> new Thread(r, threadName),
+                    ProducerType.MULTI,
+                    new BlockingWaitStrategy()
+            );
+
+            OrderEventHandler handler = new OrderEventHandler(matchingEngine);
+            disruptor.handleEventsWith(handler);
+            disruptor.start();
+
+            disruptors.add(disruptor);
+            ringBuffers.add(disruptor.getRingBuffer());
+            registerMetrics(i, disruptor, handler);
+        }
+        log.info("Disruptor订单处理器初始化完成: shards={}, bufferSize={}", shardCount, engineProperties.getBufferSize());
+    }
+
+    /**
+     * 剩余容量与处理滞后（生产者游标 - 撮合线程已处理序号）在采集时读取，不在发布路径上计算
+     */
+    private void registerMetrics(int shard, Disruptor<OrderEvent> disruptor, OrderEventHandler handler) {
+        String shardTag = String.valueOf(shard);
+        Gauge.builder("match.ring.remaining.capacity", disruptor.getRingBuffer(), RingBuffer::remainingCapacity)
+                .tag("shard", shardTag)
+                .description("RingBuffer剩余容量")
+                .register(meterRegistry);
+        Gauge.builder("match.ring.handler.lag", disruptor,
+                        d -> d.getRingBuffer().getCursor() - d.getSequenceValueFor(handler))
+                .tag("shard", shardTag)
+                .description("待撮合事件数")
+                .register(meterRegistry);
     }
 
     public void publishOrderEvent(MatchOrder order, OrderEvent.OrderEventType type) {
+        RingBuffer<OrderEvent> ringBuffer = ringBuffers.get(shardOf(order.getSymbol()));
         long sequence = ringBuffer.next();
         try {
             OrderEvent event = ringBuffer.get(sequence);
@@ -51,11 +87,19 @@ public class DisruptorOrderProcessor {
         }
     }
 
+    public int shardOf(String symbol) {
+        return Math.floorMod(symbol.hashCode(), ringBuffers.size());
+    }
+
+    public int getShardCount() {
+        return ringBuffers.size();
+    }
+
     @PreDestroy
     public void shutdown() {
-        if (disruptor != null) {
+        for (Disruptor<OrderEvent> disruptor : disruptors) {
             disruptor.shutdown();
-            log.info("Disruptor订单处理器已关闭");
         }
+        log.info("Disruptor订单处理器已关闭");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,194 @@
+package com.ppcex.match.engine;
+
+import com.ppcex.match.config.MatchEngineProperties;
+import com.ppcex.match.entity.MatchOrder;
+import com.ppcex.match.enums.DirectionEnum;
+import com.ppcex.match.enums.OrderStatusEnum;
+import com.ppcex.match.enums.OrderTypeEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 撮合引擎启动预热：在隔离的临时订单簿上驱动合成订单流（挂单、吃单、扫单、撤单），
+ * 直到JIT编译趋于稳定。预热在消息消费和Web容器启动之前同步完成，未完成前就绪探针返回OUT_OF_SERVICE。
+ */
+@Slf4j
+@Component
+public class EngineWarmUp implements SmartLifecycle, HealthIndicator {
+
+    @Autowired
+    private MatchingEngine matchingEngine;
+
+    @Autowired
+    private MatchEngineProperties engineProperties;
+
+    private static final String WARM_UP_SYMBOL = "__WARMUP__";
+    private static final long MID_PRICE_TICKS = 5_000_000L;
+
+    private volatile boolean running = false;
+    private volatile boolean completed = false;
+    private volatile int completedRounds = 0;
+    private volatile long elapsedMillis = 0;
+
+    @Override
+    public void start() {
+        running = true;
+        MatchEngineProperties.WarmUp warmUp = engineProperties.getWarmUp();
+        if (!warmUp.isEnabled()) {
+            completed = true;
+            log.info("撮合引擎预热未启用");
+            return;
+        }
+
+        try {
+            runWarmUp(warmUp);
+        } catch (Exception e) {
+            log.error("撮合引擎预热失败，跳过预热", e);
+        } finally {
+            completed = true;
+        }
+    }
+
+    private void runWarmUp(MatchEngineProperties.WarmUp warmUp) {
+        CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+        boolean monitorCompilation = compilation != null && compilation.isCompilationTimeMonitoringSupported();
+
+        long startTime = System.nanoTime();
+        long deadline = startTime + TimeUnit.SECONDS.toNanos(warmUp.getMaxDurationSeconds());
+        long lastCompilationTime = monitorCompilation ? compilation.getTotalCompilationTime() : 0;
+        long lastRoundNanos = 0;
+        int stableRounds = 0;
+
+        for (int round = 0; round < warmUp.getMaxRounds(); round++) {
+            long roundStart = System.nanoTime();
+            runRound(round, warmUp.getOrdersPerRound());
+            long roundNanos = System.nanoTime() - roundStart;
+            completedRounds = round + 1;
+
+            boolean stable;
+            if (monitorCompilation) {
+                long totalCompilationTime = compilation.getTotalCompilationTime();
+                stable = totalCompilationTime - lastCompilationTime <= warmUp.getCompileThresholdMillis();
+                lastCompilationTime = totalCompilationTime;
+            } else {
+                stable = lastRoundNanos > 0 && Math.abs(roundNanos - lastRoundNanos) <= lastRoundNanos / 10;
+            }
+            lastRoundNanos = roundNanos;
+            stableRounds = stable ? stableRounds + 1 : 0;
+
+            if (stableRounds >= warmUp.getStableRounds() || System.nanoTime() > deadline) {
+                break;
+            }
+        }
+
+        elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        log.info("撮合引擎预热完成: rounds={}, stable={}, elapsed={}ms, lastRound={}us",
+                completedRounds, stableRounds >= warmUp.getStableRounds(), elapsedMillis,
+                TimeUnit.NANOSECONDS.toMicros(lastRoundNanos));
+    }
+
+    private void runRound(int round, int orderCount) {
+        OrderBook scratchBook = new OrderBook(WARM_UP_SYMBOL);
+        Random random = new Random(round);
+        List<MatchOrder> restingOrders = new ArrayList<>();
+
+        for (int i = 0; i < orderCount; i++) {
+            int action = random.nextInt(10);
+            if (action < 5) {
+                // 不穿价挂单
+                boolean buy = random.nextBoolean();
+                long offset = 1 + random.nextInt(50);
+                MatchOrder order = createOrder(i, buy ? DirectionEnum.BUY : DirectionEnum.SELL,
+                        buy ? MID_PRICE_TICKS - offset : MID_PRICE_TICKS + offset, 1 + random.nextInt(100));
+                matchingEngine.processScratchOrder(scratchBook, order);
+                restingOrders.add(order);
+            } else if (action < 7) {
+                // 撤单
+                if (!restingOrders.isEmpty()) {
+                    int index = random.nextInt(restingOrders.size());
+                    MatchOrder order = restingOrders.get(index);
+                    restingOrders.set(index, restingOrders.get(restingOrders.size() - 1));
+                    restingOrders.remove(restingOrders.size() - 1);
+                    matchingEngine.cancelScratchOrder(scratchBook, order);
+                }
+            } else if (action < 9) {
+                // 吃单：穿过最优价小额成交
+                boolean buy = random.nextBoolean();
+                MatchOrder order = createOrder(i, buy ? DirectionEnum.BUY : DirectionEnum.SELL,
+                        buy ? MID_PRICE_TICKS + 2 : MID_PRICE_TICKS - 2, 1 + random.nextInt(50));
+                matchingEngine.processScratchOrder(scratchBook, order);
+            } else {
+                // 扫单：大额穿越多个价位
+                boolean buy = random.nextBoolean();
+                MatchOrder order = createOrder(i, buy ? DirectionEnum.BUY : DirectionEnum.SELL,
+                        buy ? MID_PRICE_TICKS + 50 : MID_PRICE_TICKS - 50, 500 + random.nextInt(2000));
+                matchingEngine.processScratchOrder(scratchBook, order);
+            }
+        }
+    }
+
+    private MatchOrder createOrder(long id, DirectionEnum direction, long priceTicks, long amountUnits) {
+        LocalDateTime now = LocalDateTime.now();
+        return new MatchOrder()
+                .setId(-(id + 1))
+                .setOrderNo(WARM_UP_SYMBOL + id)
+                .setUserId(0L)
+                .setSymbol(WARM_UP_SYMBOL)
+                .setOrderType(OrderTypeEnum.LIMIT)
+                .setDirection(direction)
+                .setPrice(BigDecimal.valueOf(priceTicks, 2))
+                .setAmount(BigDecimal.valueOf(amountUnits, 4))
+                .setExecutedAmount(BigDecimal.ZERO)
+                .setExecutedValue(BigDecimal.ZERO)
+                .setFee(BigDecimal.ZERO)
+                .setStatus(OrderStatusEnum.PENDING)
+                .setTimeInForce(1)
+                .setCreateTime(now)
+                .setUpdateTime(now);
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = completed ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("warmUpCompleted", completed)
+                .withDetail("rounds", completedRounds)
+                .withDetail("elapsedMillis", elapsedMillis)
+                .build();
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 早于Web容器和消息绑定启动，保证预热完成前不接入真实流量
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
@@ -0,0 +1,103 @@
+package com.ppcex.match.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * 单个交易对的分档费率表，费率以 10^-8 为单位的定点整数保存，成交路径上只做整数乘除
+ */
+public class FeeSchedule {
+
+    public static final int RATE_SCALE = 8;
+    public static final int FEE_SCALE = 8;
+
+    /**
+     * 未配置时的默认费率，与原先固定的 0.001 保持一致
+     */
+    public static final FeeSchedule DEFAULT = new FeeSchedule(new long[]{100_000L}, new long[]{100_000L});
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final long[] makerRates;
+    private final long[] takerRates;
+
+    private FeeSchedule(long[] makerRates, long[] takerRates) {
+        this.makerRates = makerRates;
+        this.takerRates = takerRates;
+    }
+
+    /**
+     * 按VIP等级顺序给出费率，小数位超过8位时拒绝而不是静默截断
+     */
+    public static FeeSchedule of(List<BigDecimal> makerRates, List<BigDecimal> takerRates) {
+        if (makerRates == null || makerRates.isEmpty() || takerRates == null || takerRates.isEmpty()) {
+            throw new IllegalArgumentException("费率表不能为空");
+        }
+        return new FeeSchedule(toFixedPoint(makerRates), toFixedPoint(takerRates));
+    }
+
+    private static long[] toFixedPoint(List<BigDecimal> rates) {
+        long[] result = new long[rates.size()];
+        for (int i = 0; i < rates.size(); i++) {
+            BigDecimal rate = rates.get(i);
+            if (rate.signum() < 0) {
+                throw new IllegalArgumentException("费率不能为负: " + rate);
+            }
+            result[i] = rate.setScale(RATE_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        }
+        return result;
+    }
+
+    public long makerRate(int tier) {
+        return makerRates[Math.min(Math.max(tier, 0), makerRates.length - 1)];
+    }
+
+    public long takerRate(int tier) {
+        return takerRates[Math.min(Math.max(tier, 0), takerRates.length - 1)];
+    }
+
+    /**
+     * 手续费 = 成交额 * 费率，四舍五入到8位小数
+     */
+    public static BigDecimal fee(BigDecimal value, long rate) {
+        if (rate == 0 || value.signum() == 0) {
+            return BigDecimal.ZERO.setScale(FEE_SCALE);
+        }
+        if (value.precision() <= 18) {
+            long fee = fee(value.unscaledValue().longValue(), value.scale(), rate);
+            if (fee != Long.MIN_VALUE) {
+                return BigDecimal.valueOf(fee, FEE_SCALE);
+            }
+        }
+        return value.multiply(BigDecimal.valueOf(rate, RATE_SCALE)).setScale(FEE_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 定点整数计算手续费，返回以 10^-8 为单位的结果；溢出时返回 Long.MIN_VALUE 由调用方回退
+     */
+    public static long fee(long valueUnscaled, int valueScale, long rate) {
+        if (valueScale < 0 || valueScale >= POWERS_OF_TEN.length) {
+            return Long.MIN_VALUE;
+        }
+        long product = valueUnscaled * rate;
+        if (Math.multiplyHigh(valueUnscaled, rate) != (product >> 63)) {
+            return Long.MIN_VALUE;
+        }
+        // 乘积的小数位 = valueScale + RATE_SCALE，结果保留 FEE_SCALE(=RATE_SCALE) 位
+        long divisor = POWERS_OF_TEN[valueScale];
+        long quotient = product / divisor;
+        long remainder = Math.abs(product % divisor);
+        if (remainder * 2 >= divisor) {
+            quotient += product < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,110 @@
+package com.ppcex.match.engine;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.ppcex.match.config.MatchEngineProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 手续费表缓存：启动时加载，收到 match:fee:refresh 事件（兜底定时）后整体重建并替换引用，
+ * 撮合线程读取时无锁、无分配。
+ * 交易对费率：Redis hash match:fee:schedule，field为symbol，值为 {"makerRates":[..],"takerRates":[..]}，按VIP等级排列；
+ * 用户等级：Redis hash match:fee:user-tier，field为userId，值为等级。
+ */
+@Slf4j
+@Component
+public class FeeScheduleCache {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private MatchEngineProperties engineProperties;
+
+    public static final String REFRESH_CHANNEL = "match:fee:refresh";
+    private static final String SCHEDULE_KEY = "match:fee:schedule";
+    private static final String USER_TIER_KEY = "match:fee:user-tier";
+
+    private volatile FeeSchedule defaultSchedule = FeeSchedule.DEFAULT;
+    private volatile Map<String, FeeSchedule> schedules = Map.of();
+    private volatile UserTierTable userTiers = UserTierTable.EMPTY;
+
+    private ScheduledExecutorService refreshScheduler;
+
+    @PostConstruct
+    public void init() {
+        reload();
+        listenerContainer.addMessageListener((message, pattern) -> reload(), new ChannelTopic(REFRESH_CHANNEL));
+
+        int refreshIntervalSeconds = engineProperties.getFee().getRefreshIntervalSeconds();
+        if (refreshIntervalSeconds > 0) {
+            refreshScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "match-fee-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refreshScheduler.scheduleWithFixedDelay(this::reload,
+                    refreshIntervalSeconds, refreshIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public synchronized void reload() {
+        MatchEngineProperties.Fee fee = engineProperties.getFee();
+        try {
+            FeeSchedule newDefault = FeeSchedule.of(fee.getMakerRates(), fee.getTakerRates());
+
+            Map<String, FeeSchedule> newSchedules = new HashMap<>();
+            Map<Object, Object> scheduleEntries = stringRedisTemplate.opsForHash().entries(SCHEDULE_KEY);
+            for (Map.Entry<Object, Object> entry : scheduleEntries.entrySet()) {
+                JSONObject json = JSON.parseObject(entry.getValue().toString());
+                newSchedules.put(entry.getKey().toString(), FeeSchedule.of(
+                        json.getList("makerRates", BigDecimal.class),
+                        json.getList("takerRates", BigDecimal.class)));
+            }
+
+            Map<Long, Integer> tierEntries = new HashMap<>();
+            stringRedisTemplate.opsForHash().entries(USER_TIER_KEY).forEach((userId, tier) ->
+                    tierEntries.put(Long.valueOf(userId.toString()), Integer.valueOf(tier.toString())));
+
+            defaultSchedule = newDefault;
+            schedules = newSchedules;
+            userTiers = UserTierTable.of(tierEntries);
+            log.info("手续费表已加载: symbols={}, vipUsers={}", newSchedules.size(), tierEntries.size());
+        } catch (Exception e) {
+            log.error("加载手续费表失败，继续使用当前费率", e);
+        }
+    }
+
+    public FeeSchedule scheduleOf(String symbol) {
+        FeeSchedule schedule = schedules.get(symbol);
+        return schedule != null ? schedule : defaultSchedule;
+    }
+
+    public int tierOf(Long userId) {
+        return userId != null ? userTiers.tierOf(userId) : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refreshScheduler != null) {
+            refreshScheduler.shutdown();
+        }
+    }
+}
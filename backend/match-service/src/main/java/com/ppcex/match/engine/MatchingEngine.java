@@ -5,18 +5,21 @@ import com.ppcex.match.entity.TradeRecord;
 import com.ppcex.match.enums.DirectionEnum;
 import com.ppcex.match.enums.OrderStatusEnum;
 import com.ppcex.match.service.TradeService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
 
 @Slf4j
 @Component
@@ -27,37 +30,95 @@ public class MatchingEngine {
     private TradeService tradeService;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private OrderBookBroadcaster orderBookBroadcaster;
+
+    @Autowired
+    private FeeScheduleCache feeScheduleCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     private final Map<String, OrderBook> orderBooks = new ConcurrentHashMap<>();
     private final AtomicLong tradeSequence = new AtomicLong(0);
-    private final String ORDER_BOOK_PREFIX = "match:orderbook:";
     private final String TRADE_PREFIX = "match:trade:";
 
     public void initializeOrderBook(String symbol) {
-        orderBooks.computeIfAbsent(symbol, OrderBook::new);
+        orderBooks.computeIfAbsent(symbol, this::createOrderBook);
         log.info("初始化订单簿: {}", symbol);
     }
 
+    private OrderBook createOrderBook(String symbol) {
+        registerMetrics(symbol);
+        return new OrderBook(symbol);
+    }
+
+    /**
+     * 指标按symbol从订单簿表取值，订单簿被清空重建后仍然有效；计数在撮合线程上累加，采集时读取
+     */
+    private void registerMetrics(String symbol) {
+        Tags tags = Tags.of("symbol", symbol);
+        Gauge.builder("match.orderbook.resting.orders", orderBooks, books -> bookValue(books, symbol, OrderBook::getRestingOrderCount))
+                .tags(tags)
+                .description("挂单数量")
+                .register(meterRegistry);
+        Gauge.builder("match.orderbook.levels", orderBooks, books -> bookValue(books, symbol, OrderBook::getBuyLevelCount))
+                .tags(tags.and("side", "buy"))
+                .description("价位档数")
+                .register(meterRegistry);
+        Gauge.builder("match.orderbook.levels", orderBooks, books -> bookValue(books, symbol, OrderBook::getSellLevelCount))
+                .tags(tags.and("side", "sell"))
+                .description("价位档数")
+                .register(meterRegistry);
+        FunctionCounter.builder("match.orderbook.matches", orderBooks, books -> bookValue(books, symbol, OrderBook::getMatchCount))
+                .tags(tags)
+                .description("成交笔数")
+                .register(meterRegistry);
+        FunctionCounter.builder("match.orderbook.cancels", orderBooks, books -> bookValue(books, symbol, OrderBook::getCancelCount))
+                .tags(tags)
+                .description("撤单笔数")
+                .register(meterRegistry);
+    }
+
+    private static double bookValue(Map<String, OrderBook> books, String symbol, ToLongFunction<OrderBook> getter) {
+        OrderBook orderBook = books.get(symbol);
+        return orderBook != null ? getter.applyAsLong(orderBook) : 0;
+    }
+
     public void processOrder(MatchOrder order) {
         try {
-            OrderBook orderBook = orderBooks.computeIfAbsent(order.getSymbol(), OrderBook::new);
+            OrderBook orderBook = orderBooks.computeIfAbsent(order.getSymbol(), this::createOrderBook);
 
-            if (order.getDirection() == DirectionEnum.BUY) {
-                processBuyOrder(orderBook, order);
-            } else {
-                processSellOrder(orderBook, order);
-            }
+            matchOrder(orderBook, order, true);
 
-            updateOrderBookToRedis(orderBook);
-            broadcastOrderBookUpdate(orderBook);
+            publishOrderBook(orderBook);
         } catch (Exception e) {
             log.error("处理订单失败: {}", order.getOrderNo(), e);
             throw new RuntimeException("订单处理失败", e);
         }
     }
 
-    private void processBuyOrder(OrderBook orderBook, MatchOrder buyOrder) {
+    /**
+     * 在隔离的订单簿上走完整撮合路径，不写Redis、不发布成交，仅用于预热
+     */
+    public void processScratchOrder(OrderBook scratchBook, MatchOrder order) {
+        matchOrder(scratchBook, order, false);
+    }
+
+    public void cancelScratchOrder(OrderBook scratchBook, MatchOrder order) {
+        scratchBook.removeOrder(order);
+        order.setStatus(OrderStatusEnum.CANCELLED)
+              .setUpdateTime(LocalDateTime.now());
+    }
+
+    private void matchOrder(OrderBook orderBook, MatchOrder order, boolean publish) {
+        if (order.getDirection() == DirectionEnum.BUY) {
+            processBuyOrder(orderBook, order, publish);
+        } else {
+            processSellOrder(orderBook, order, publish);
+        }
+    }
+
+    private void processBuyOrder(OrderBook orderBook, MatchOrder buyOrder, boolean publish) {
         BigDecimal remainingAmount = buyOrder.getRemainingAmount();
 
         while (remainingAmount.compareTo(BigDecimal.ZERO) > 0) {
@@ -69,8 +130,14 @@ public class MatchingEngine {
             BigDecimal tradeAmount = remainingAmount.min(bestSellOrder.getRemainingAmount());
             BigDecimal tradePrice = bestSellOrder.getPrice();
 
-            executeTrade(orderBook, buyOrder, bestSellOrder, tradeAmount, tradePrice);
+            executeTrade(orderBook, buyOrder, bestSellOrder, bestSellOrder, tradeAmount, tradePrice, publish);
             remainingAmount = remainingAmount.subtract(tradeAmount);
+
+            if (bestSellOrder.getRemainingAmount().compareTo(BigDecimal.ZERO) <= 0) {
+                orderBook.removeOrder(bestSellOrder);
+            } else {
+                orderBook.recordLevelChange(bestSellOrder);
+            }
         }
 
         if (remainingAmount.compareTo(BigDecimal.ZERO) > 0) {
@@ -81,7 +148,7 @@ public class MatchingEngine {
         }
     }
 
-    private void processSellOrder(OrderBook orderBook, MatchOrder sellOrder) {
+    private void processSellOrder(OrderBook orderBook, MatchOrder sellOrder, boolean publish) {
         BigDecimal remainingAmount = sellOrder.getRemainingAmount();
 
         while (remainingAmount.compareTo(BigDecimal.ZERO) > 0) {
@@ -93,8 +160,14 @@ public class MatchingEngine {
             BigDecimal tradeAmount = remainingAmount.min(bestBuyOrder.getRemainingAmount());
             BigDecimal tradePrice = bestBuyOrder.getPrice();
 
-            executeTrade(orderBook, bestBuyOrder, sellOrder, tradeAmount, tradePrice);
+            executeTrade(orderBook, bestBuyOrder, sellOrder, bestBuyOrder, tradeAmount, tradePrice, publish);
             remainingAmount = remainingAmount.subtract(tradeAmount);
+
+            if (bestBuyOrder.getRemainingAmount().compareTo(BigDecimal.ZERO) <= 0) {
+                orderBook.removeOrder(bestBuyOrder);
+            } else {
+                orderBook.recordLevelChange(bestBuyOrder);
+            }
         }
 
         if (remainingAmount.compareTo(BigDecimal.ZERO) > 0) {
@@ -105,20 +178,24 @@ public class MatchingEngine {
         }
     }
 
-    private void executeTrade(OrderBook orderBook, MatchOrder buyOrder, MatchOrder sellOrder,
-                             BigDecimal amount, BigDecimal price) {
+    /**
+     * maker为簿上挂单方，taker为主动成交方，按各自VIP等级取费率
+     */
+    private void executeTrade(OrderBook orderBook, MatchOrder buyOrder, MatchOrder sellOrder, MatchOrder makerOrder,
+                             BigDecimal amount, BigDecimal price, boolean publish) {
+        MatchOrder takerOrder = makerOrder == buyOrder ? sellOrder : buyOrder;
         BigDecimal value = amount.multiply(price);
-        BigDecimal feeRate = new BigDecimal("0.001");
-        BigDecimal makerFee = value.multiply(feeRate).setScale(8, RoundingMode.HALF_UP);
-        BigDecimal takerFee = value.multiply(feeRate).setScale(8, RoundingMode.HALF_UP);
+        FeeSchedule feeSchedule = feeScheduleCache.scheduleOf(orderBook.getSymbol());
+        BigDecimal makerFee = FeeSchedule.fee(value, feeSchedule.makerRate(feeScheduleCache.tierOf(makerOrder.getUserId())));
+        BigDecimal takerFee = FeeSchedule.fee(value, feeSchedule.takerRate(feeScheduleCache.tierOf(takerOrder.getUserId())));
 
         TradeRecord tradeRecord = new TradeRecord()
                 .setTradeNo(generateTradeNo())
                 .setSymbol(orderBook.getSymbol())
-                .setMakerOrderId(sellOrder.getId())
-                .setTakerOrderId(buyOrder.getId())
-                .setMakerUserId(sellOrder.getUserId())
-                .setTakerUserId(buyOrder.getUserId())
+                .setMakerOrderId(makerOrder.getId())
+                .setTakerOrderId(takerOrder.getId())
+                .setMakerUserId(makerOrder.getUserId())
+                .setTakerUserId(takerOrder.getUserId())
                 .setPrice(price)
                 .setAmount(amount)
                 .setValue(value)
@@ -128,13 +205,18 @@ public class MatchingEngine {
 
         orderBook.addTrade(tradeRecord);
 
-        updateOrderExecution(buyOrder, amount, value, takerFee);
-        updateOrderExecution(sellOrder, amount, value, makerFee);
+        updateOrderExecution(makerOrder, amount, value, makerFee);
+        updateOrderExecution(takerOrder, amount, value, takerFee);
+
+        if (!publish) {
+            return;
+        }
 
         tradeService.processTrade(tradeRecord, buyOrder, sellOrder);
+        orderBookBroadcaster.offerTrade(orderBook, tradeRecord);
 
         log.info("撮合成功: symbol={}, amount={}, price={}, makerOrderId={}, takerOrderId={}, tradeNo={}",
-                orderBook.getSymbol(), amount, price, sellOrder.getId(), buyOrder.getId(), tradeRecord.getTradeNo());
+                orderBook.getSymbol(), amount, price, makerOrder.getId(), takerOrder.getId(), tradeRecord.getTradeNo());
     }
 
     private void updateOrderExecution(MatchOrder order, BigDecimal amount, BigDecimal value, BigDecimal fee) {
@@ -158,10 +240,10 @@ public class MatchingEngine {
         OrderBook orderBook = orderBooks.get(order.getSymbol());
         if (orderBook != null) {
             orderBook.removeOrder(order);
+            orderBook.recordCancel();
             order.setStatus(OrderStatusEnum.CANCELLED)
                   .setUpdateTime(LocalDateTime.now());
-            updateOrderBookToRedis(orderBook);
-            broadcastOrderBookUpdate(orderBook);
+            publishOrderBook(orderBook);
         }
     }
 
@@ -169,13 +251,12 @@ public class MatchingEngine {
         return "T" + System.currentTimeMillis() + String.format("%06d", tradeSequence.incrementAndGet() % 1000000);
     }
 
-    private void updateOrderBookToRedis(OrderBook orderBook) {
-        String key = ORDER_BOOK_PREFIX + orderBook.getSymbol();
-        redisTemplate.opsForValue().set(key, orderBook.getSnapshot(), 1, java.util.concurrent.TimeUnit.MINUTES);
-    }
-
-    private void broadcastOrderBookUpdate(OrderBook orderBook) {
-        redisTemplate.convertAndSend("orderbook:" + orderBook.getSymbol(), orderBook.getSnapshot());
+    /**
+     * 只标记变更，快照生成和推送由OrderBookBroadcaster按合并节奏完成；
+     * 推送消息携带prevSequence，订阅方据此发现丢包并调用resync接口补齐
+     */
+    private void publishOrderBook(OrderBook orderBook) {
+        orderBookBroadcaster.markDirty(orderBook);
     }
 
     public OrderBook getOrderBook(String symbol) {
@@ -190,6 +271,17 @@ public class MatchingEngine {
         return orderBook.getSnapshot();
     }
 
+    /**
+     * 断档补齐：日志仍覆盖fromSequence时返回增量，否则返回全量快照
+     */
+    public OrderBookResync getResync(String symbol, long fromSequence, int depth) {
+        OrderBook orderBook = orderBooks.get(symbol);
+        if (orderBook == null) {
+            return new OrderBookResync(symbol, fromSequence, 0L, Collections.emptyMap(), null);
+        }
+        return orderBook.getResync(fromSequence, depth);
+    }
+
     public BigDecimal getLatestPrice(String symbol) {
         OrderBook orderBook = orderBooks.get(symbol);
         return orderBook != null ? orderBook.getLatestPrice() : null;
@@ -203,7 +295,7 @@ public class MatchingEngine {
         OrderBook orderBook = orderBooks.get(symbol);
         if (orderBook != null) {
             orderBook.clear();
-            updateOrderBookToRedis(orderBook);
+            publishOrderBook(orderBook);
         }
     }
 
@@ -2,6 +2,7 @@ package com.ppcex.match.engine;
 
 import com.ppcex.match.entity.MatchOrder;
 import com.ppcex.match.entity.TradeRecord;
+import com.ppcex.match.enums.DirectionEnum;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
@@ -22,6 +23,16 @@ public class OrderBook {
     private BigDecimal latestPrice;
     private BigDecimal latestVolume;
     private long sequence;
+    private long lastTradeSequence;
+    private long publishedSequence;
+    private final OrderBookDeltaJournal deltaJournal = new OrderBookDeltaJournal(4096);
+
+    // 监控计数：只在持有写锁的撮合线程上更新，采集时无锁读取
+    private volatile long restingOrderCount;
+    private volatile long buyLevelCount;
+    private volatile long sellLevelCount;
+    private volatile long matchCount;
+    private volatile long cancelCount;
 
     public OrderBook(String symbol) {
         this.symbol = symbol;
@@ -34,10 +45,16 @@ public class OrderBook {
     public void addBuyOrder(MatchOrder order) {
         lock.writeLock().lock();
         try {
-            buyOrders
-                    .computeIfAbsent(order.getPrice(), k -> new ArrayList<>())
-                    .add(order);
+            List<MatchOrder> ordersAtPrice = buyOrders.get(order.getPrice());
+            if (ordersAtPrice == null) {
+                ordersAtPrice = new ArrayList<>();
+                buyOrders.put(order.getPrice(), ordersAtPrice);
+                buyLevelCount++;
+            }
+            ordersAtPrice.add(order);
+            restingOrderCount++;
             sequence++;
+            journalLevel(DirectionEnum.BUY, order.getPrice());
         } finally {
             lock.writeLock().unlock();
         }
@@ -46,8 +63,16 @@ public class OrderBook {
     public void addSellOrder(MatchOrder order) {
         lock.writeLock().lock();
         try {
-            sellOrders.computeIfAbsent(order.getPrice(), k -> new ArrayList<>()).add(order);
+            List<MatchOrder> ordersAtPrice = sellOrders.get(order.getPrice());
+            if (ordersAtPrice == null) {
+                ordersAtPrice = new ArrayList<>();
+                sellOrders.put(order.getPrice(), ordersAtPrice);
+                sellLevelCount++;
+            }
+            ordersAtPrice.add(order);
+            restingOrderCount++;
             sequence++;
+            journalLevel(DirectionEnum.SELL, order.getPrice());
         } finally {
             lock.writeLock().unlock();
         }
@@ -57,25 +82,96 @@ public class OrderBook {
         lock.writeLock().lock();
         try {
             if (order.getDirection().getCode() == 1) {
-                removeOrderFromPriceLevel(buyOrders, order);
+                if (removeOrderFromPriceLevel(buyOrders, order)) {
+                    buyLevelCount--;
+                }
             } else {
-                removeOrderFromPriceLevel(sellOrders, order);
+                if (removeOrderFromPriceLevel(sellOrders, order)) {
+                    sellLevelCount--;
+                }
             }
             sequence++;
+            journalLevel(order.getDirection(), order.getPrice());
         } finally {
             lock.writeLock().unlock();
         }
     }
 
-    private void removeOrderFromPriceLevel(ConcurrentSkipListMap<BigDecimal, List<MatchOrder>> orders,
+    /**
+     * 返回该价位是否因此被移除
+     */
+    private boolean removeOrderFromPriceLevel(ConcurrentSkipListMap<BigDecimal, List<MatchOrder>> orders,
             MatchOrder order) {
         List<MatchOrder> ordersAtPrice = orders.get(order.getPrice());
         if (ordersAtPrice != null) {
-            ordersAtPrice
-                    .removeIf(o -> o.getId().equals(order.getId()));
+            if (ordersAtPrice.removeIf(o -> o.getId().equals(order.getId()))) {
+                restingOrderCount--;
+            }
             if (ordersAtPrice.isEmpty()) {
                 orders.remove(order.getPrice());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 撤单计数，由撮合线程在处理撤单事件时调用
+     */
+    public void recordCancel() {
+        cancelCount++;
+    }
+
+    /**
+     * 挂单部分成交后记录价位变化
+     */
+    public void recordLevelChange(MatchOrder order) {
+        lock.writeLock().lock();
+        try {
+            sequence++;
+            journalLevel(order.getDirection(), order.getPrice());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void journalLevel(DirectionEnum direction, BigDecimal price) {
+        ConcurrentSkipListMap<BigDecimal, List<MatchOrder>> orders = direction == DirectionEnum.BUY ? buyOrders : sellOrders;
+        BigDecimal levelAmount = BigDecimal.ZERO;
+        List<MatchOrder> ordersAtPrice = orders.get(price);
+        if (ordersAtPrice != null) {
+            for (MatchOrder o : ordersAtPrice) {
+                levelAmount = levelAmount.add(o.getRemainingAmount());
+            }
+        }
+        deltaJournal.append(new OrderBookDelta(sequence, direction.getCode(), price, levelAmount));
+    }
+
+    /**
+     * 返回fromSequence之后的价位增量；日志已覆盖该区间时返回null，调用方需改用全量快照
+     */
+    public List<OrderBookDelta> getDeltasSince(long fromSequence) {
+        lock.readLock().lock();
+        try {
+            if (fromSequence > sequence) {
+                return null;
             }
+            return deltaJournal.since(fromSequence);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public OrderBookResync getResync(long fromSequence, int depth) {
+        lock.readLock().lock();
+        try {
+            List<OrderBookDelta> deltas = getDeltasSince(fromSequence);
+            if (deltas != null) {
+                return new OrderBookResync(symbol, fromSequence, sequence, null, deltas);
+            }
+            return new OrderBookResync(symbol, fromSequence, sequence, getSnapshot(depth), null);
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
@@ -90,13 +186,22 @@ public class OrderBook {
     }
 
     public void addTrade(TradeRecord trade) {
-        recentTrades.add(trade);
-        if (recentTrades.size() > 1000) {
-            recentTrades.remove(0);
+        lock.writeLock().lock();
+        try {
+            recentTrades.add(trade);
+            if (recentTrades.size() > 1000) {
+                recentTrades.remove(0);
+            }
+            this.latestPrice = trade.getPrice();
+            this.latestVolume = trade.getAmount();
+            matchCount++;
+            sequence++;
+            trade.setPrevSequence(lastTradeSequence);
+            trade.setSequence(sequence);
+            lastTradeSequence = sequence;
+        } finally {
+            lock.writeLock().unlock();
         }
-        this.latestPrice = trade.getPrice();
-        this.latestVolume = trade.getAmount();
-        sequence++;
     }
 
     public MatchOrder getBestBuyOrder() {
@@ -162,14 +267,23 @@ public class OrderBook {
     }
 
     public Map<String, Object> getSnapshot() {
+        return getSnapshot(20);
+    }
+
+    public Map<String, Object> getSnapshot(int depth) {
         Map<String, Object> snapshot = new HashMap<>();
-        snapshot.put("symbol", symbol);
-        snapshot.put("sequence", sequence);
-        snapshot.put("latestPrice", latestPrice);
-        snapshot.put("latestVolume", latestVolume);
-        snapshot.put("buyOrders", getBuyOrderDepths(20));
-        snapshot.put("sellOrders", getSellOrderDepths(20));
-        snapshot.put("recentTrades", recentTrades.subList(Math.max(0, recentTrades.size() - 50), recentTrades.size()));
+        lock.readLock().lock();
+        try {
+            snapshot.put("symbol", symbol);
+            snapshot.put("sequence", sequence);
+            snapshot.put("latestPrice", latestPrice);
+            snapshot.put("latestVolume", latestVolume);
+            snapshot.put("buyOrders", getBuyOrderDepths(depth));
+            snapshot.put("sellOrders", getSellOrderDepths(depth));
+            snapshot.put("recentTrades", new ArrayList<>(recentTrades.subList(Math.max(0, recentTrades.size() - 50), recentTrades.size())));
+        } finally {
+            lock.readLock().unlock();
+        }
         snapshot.put("timestamp", System.currentTimeMillis());
         return snapshot;
     }
@@ -181,6 +295,12 @@ public class OrderBook {
             sellOrders.clear();
             recentTrades.clear();
             sequence = 0;
+            lastTradeSequence = 0;
+            publishedSequence = 0;
+            deltaJournal.clear();
+            restingOrderCount = 0;
+            buyLevelCount = 0;
+            sellLevelCount = 0;
         } finally {
             lock.writeLock().unlock();
         }
@@ -0,0 +1,174 @@
+package com.ppcex.match.engine;
+
+import com.alibaba.fastjson2.JSON;
+import com.ppcex.match.config.MatchEngineProperties;
+import com.ppcex.match.entity.TradeRecord;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单簿合并推送：撮合线程只标记交易对已变更并暂存成交，由推送线程按固定节奏为每个变更的交易对
+ * 生成一次快照、序列化一次，同一份字节发往Redis缓存、Redis频道和 /topic/orderbook/{symbol}。
+ * 推送开销只与更新节奏相关，与订阅人数无关；慢连接由WebSocket传输层的会话发送缓冲上限兜底。
+ * 暂存成交达到单次上限时提前推送，不丢弃成交，订阅方按成交序号校验连续性。
+ */
+@Slf4j
+@Component
+public class OrderBookBroadcaster {
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MatchEngineProperties engineProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String ORDER_BOOK_PREFIX = "match:orderbook:";
+    private static final String CHANNEL_PREFIX = "orderbook:";
+    private static final String TOPIC_PREFIX = "/topic/orderbook/";
+
+    private final Map<String, OrderBook> dirtyBooks = new ConcurrentHashMap<>();
+    private final Map<String, List<TradeRecord>> pendingTrades = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> latestUpdates = new ConcurrentHashMap<>();
+    private final AtomicLong pendingTradeCount = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        long conflationMillis = Math.max(1, engineProperties.getBroadcast().getConflationMillis());
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "orderbook-broadcaster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, conflationMillis, conflationMillis, TimeUnit.MILLISECONDS);
+        Gauge.builder("match.publish.queue.depth", dirtyBooks, Map::size)
+                .tag("type", "orderbook")
+                .description("待推送的订单簿数")
+                .register(meterRegistry);
+        Gauge.builder("match.publish.queue.depth", pendingTradeCount, AtomicLong::get)
+                .tag("type", "trade")
+                .description("待推送的成交数")
+                .register(meterRegistry);
+        log.info("订单簿合并推送已启动: conflation={}ms", conflationMillis);
+    }
+
+    public void markDirty(OrderBook orderBook) {
+        dirtyBooks.put(orderBook.getSymbol(), orderBook);
+    }
+
+    /**
+     * 暂存成交；达到单次推送上限时标记订单簿并让推送线程立即推送一次，不等下一个合并周期
+     */
+    public void offerTrade(OrderBook orderBook, TradeRecord trade) {
+        int maxTrades = engineProperties.getBroadcast().getMaxTradesPerFlush();
+        // 与推送线程的remove在同一个key上串行，取走后的列表不会再被追加
+        List<TradeRecord> trades = pendingTrades.compute(trade.getSymbol(), (symbol, pending) -> {
+            if (pending == null) {
+                pending = new ArrayList<>();
+            }
+            pending.add(trade);
+            return pending;
+        });
+        pendingTradeCount.incrementAndGet();
+        if (trades.size() == maxTrades) {
+            dirtyBooks.put(orderBook.getSymbol(), orderBook);
+            scheduler.execute(this::flush);
+        }
+    }
+
+    /**
+     * 最近一次推送的内容，供新订阅者取初始状态
+     */
+    public Map<String, Object> getLatestUpdate(String symbol) {
+        return latestUpdates.getOrDefault(symbol, Collections.emptyMap());
+    }
+
+    void flush() {
+        for (String symbol : dirtyBooks.keySet()) {
+            OrderBook orderBook = dirtyBooks.remove(symbol);
+            if (orderBook == null) {
+                continue;
+            }
+            try {
+                List<TradeRecord> trades = pendingTrades.remove(symbol);
+                if (trades != null) {
+                    pendingTradeCount.addAndGet(-trades.size());
+                }
+                publish(orderBook, trades);
+            } catch (Exception e) {
+                log.error("推送订单簿失败: {}", symbol, e);
+            }
+        }
+    }
+
+    private void publish(OrderBook orderBook, List<TradeRecord> trades) {
+        String symbol = orderBook.getSymbol();
+        Map<String, Object> update = new HashMap<>(orderBook.getSnapshot(engineProperties.getBroadcast().getDepth()));
+        update.put("prevSequence", orderBook.getPublishedSequence());
+        update.put("trades", trades != null ? trades : Collections.emptyList());
+        orderBook.setPublishedSequence((Long) update.get("sequence"));
+        latestUpdates.put(symbol, update);
+
+        byte[] payload = JSON.toJSONBytes(update);
+        byte[] key = (ORDER_BOOK_PREFIX + symbol).getBytes(StandardCharsets.UTF_8);
+        byte[] channel = (CHANNEL_PREFIX + symbol).getBytes(StandardCharsets.UTF_8);
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.stringCommands().set(key, payload, Expiration.from(1, TimeUnit.MINUTES),
+                    RedisStringCommands.SetOption.upsert());
+            connection.publish(channel, payload);
+            return null;
+        });
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send(TOPIC_PREFIX + symbol, MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+}
@@ -0,0 +1,20 @@
+package com.ppcex.match.engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 价位增量：某一序列号之后该价位的聚合数量，amount为0表示价位已移除
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBookDelta {
+    private long sequence;
+    private Integer direction;
+    private BigDecimal price;
+    private BigDecimal amount;
+}
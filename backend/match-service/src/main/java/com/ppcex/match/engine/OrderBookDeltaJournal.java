@@ -0,0 +1,51 @@
+package com.ppcex.match.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 定长环形的价位增量日志，由所属订单簿的锁保护
+ */
+public class OrderBookDeltaJournal {
+
+    private final OrderBookDelta[] deltas;
+    private long count;
+    private long floorSequence;
+
+    public OrderBookDeltaJournal(int capacity) {
+        this.deltas = new OrderBookDelta[capacity];
+    }
+
+    public void append(OrderBookDelta delta) {
+        int slot = (int) (count % deltas.length);
+        if (deltas[slot] != null) {
+            floorSequence = deltas[slot].getSequence();
+        }
+        deltas[slot] = delta;
+        count++;
+    }
+
+    /**
+     * fromSequence之后的增量已被覆盖时返回null
+     */
+    public List<OrderBookDelta> since(long fromSequence) {
+        if (fromSequence < floorSequence) {
+            return null;
+        }
+        List<OrderBookDelta> result = new ArrayList<>();
+        for (long i = Math.max(0, count - deltas.length); i < count; i++) {
+            OrderBookDelta delta = deltas[(int) (i % deltas.length)];
+            if (delta.getSequence() > fromSequence) {
+                result.add(delta);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        Arrays.fill(deltas, null);
+        count = 0;
+        floorSequence = 0;
+    }
+}
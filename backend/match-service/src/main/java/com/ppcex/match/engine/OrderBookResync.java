@@ -0,0 +1,22 @@
+package com.ppcex.match.engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 断档补齐结果：deltas与snapshot二选一，sequence为补齐后的订单簿序号
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBookResync {
+    private String symbol;
+    private long fromSequence;
+    private long sequence;
+    private Map<String, Object> snapshot;
+    private List<OrderBookDelta> deltas;
+}
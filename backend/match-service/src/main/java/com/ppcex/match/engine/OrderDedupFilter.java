@@ -0,0 +1,201 @@
+package com.ppcex.match.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 订单号去重过滤器：按时间分桶的布隆过滤器 + 有界的精确LRU。
+ * 布隆未命中即判定为新订单；命中后查LRU，LRU命中为重复，未命中为疑似重复，由调用方回源确认。
+ * 内存占用 = 桶数 * 每桶位数 / 8 + LRU容量，与订单量无关。
+ */
+public class OrderDedupFilter {
+
+    public enum Verdict {
+        NEW,
+        DUPLICATE,
+        SUSPECT
+    }
+
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final int bitsPerBucket;
+    private final int hashCount;
+    private final int recentCapacity;
+
+    private static final String META_FIELD = "meta";
+    private static final String BUCKET_FIELD_PREFIX = "bucket:";
+
+    private final long[][] buckets;
+    private final long[] bucketEpochs;
+    private final boolean[] changedBuckets;
+    private final LinkedHashMap<String, Boolean> recentOrderNos;
+
+    public OrderDedupFilter(long bucketMillis, int bucketCount, int bitsPerBucket, int hashCount, int recentCapacity) {
+        if (bucketMillis <= 0 || bucketCount <= 0 || bitsPerBucket <= 0 || hashCount <= 0 || recentCapacity <= 0) {
+            throw new IllegalArgumentException("去重过滤器参数必须大于0");
+        }
+        this.bucketMillis = bucketMillis;
+        this.bucketCount = bucketCount;
+        this.bitsPerBucket = Math.max(64, Integer.highestOneBit(bitsPerBucket - 1) << 1);
+        this.hashCount = hashCount;
+        this.recentCapacity = recentCapacity;
+        this.buckets = new long[bucketCount][this.bitsPerBucket >>> 6];
+        this.bucketEpochs = new long[bucketCount];
+        this.changedBuckets = new boolean[bucketCount];
+        Arrays.fill(bucketEpochs, Long.MIN_VALUE);
+        this.recentOrderNos = new LinkedHashMap<>(recentCapacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > OrderDedupFilter.this.recentCapacity;
+            }
+        };
+    }
+
+    /**
+     * 判定订单号是否重复，并记录到当前时间桶
+     */
+    public synchronized Verdict checkAndRecord(String orderNo, long nowMillis) {
+        long hash = hash64(orderNo);
+        long epoch = nowMillis / bucketMillis;
+
+        Verdict verdict;
+        if (!mightContain(hash, epoch)) {
+            verdict = Verdict.NEW;
+        } else if (recentOrderNos.get(orderNo) != null) {
+            verdict = Verdict.DUPLICATE;
+        } else {
+            verdict = Verdict.SUSPECT;
+        }
+
+        if (verdict != Verdict.DUPLICATE) {
+            int slot = currentSlot(epoch);
+            setBits(buckets[slot], hash);
+            changedBuckets[slot] = true;
+            recentOrderNos.put(orderNo, Boolean.TRUE);
+        }
+        return verdict;
+    }
+
+    /**
+     * 撤销一次记录：订单未能进入撮合时调用。布隆位无法清除，再次投递时判为疑似重复，由调用方回源确认
+     */
+    public synchronized void forget(String orderNo) {
+        recentOrderNos.remove(orderNo);
+    }
+
+    private boolean mightContain(long hash, long epoch) {
+        for (int i = 0; i < bucketCount; i++) {
+            if (bucketEpochs[i] > epoch - bucketCount && bucketEpochs[i] <= epoch && testBits(buckets[i], hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int currentSlot(long epoch) {
+        int slot = (int) Math.floorMod(epoch, (long) bucketCount);
+        if (bucketEpochs[slot] != epoch) {
+            Arrays.fill(buckets[slot], 0L);
+            bucketEpochs[slot] = epoch;
+        }
+        return slot;
+    }
+
+    private boolean testBits(long[] bits, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        int mask = bitsPerBucket - 1;
+        for (int i = 0; i < hashCount; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setBits(long[] bits, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        int mask = bitsPerBucket - 1;
+        for (int i = 0; i < hashCount; i++) {
+            int bit = (h1 + i * h2) & mask;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 导出上次导出以来有写入的时间桶，每个桶一个字段，值为"桶纪元:Base64位图"；没有变化时返回空表。
+     * 精确LRU不导出，恢复后布隆命中的订单判为疑似重复，由调用方回源确认
+     */
+    public synchronized Map<String, String> exportChangedBuckets() {
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < bucketCount; i++) {
+            if (changedBuckets[i]) {
+                fields.put(BUCKET_FIELD_PREFIX + i, bucketEpochs[i] + ":" + encode(buckets[i]));
+                changedBuckets[i] = false;
+            }
+        }
+        if (!fields.isEmpty()) {
+            fields.put(META_FIELD, meta());
+        }
+        return fields;
+    }
+
+    /**
+     * 导出的桶未能保存时调用，下次导出全部桶
+     */
+    public synchronized void markAllChanged() {
+        Arrays.fill(changedBuckets, true);
+    }
+
+    /**
+     * 按桶恢复；过滤器参数与导出时不一致时忽略
+     */
+    public synchronized void importBuckets(Map<String, String> fields) {
+        if (fields == null || !meta().equals(fields.get(META_FIELD))) {
+            return;
+        }
+        for (int i = 0; i < bucketCount; i++) {
+            String value = fields.get(BUCKET_FIELD_PREFIX + i);
+            if (value == null) {
+                continue;
+            }
+            int separator = value.indexOf(':');
+            bucketEpochs[i] = Long.parseLong(value.substring(0, separator));
+            ByteBuffer.wrap(Base64.getDecoder().decode(value.substring(separator + 1))).asLongBuffer().get(buckets[i]);
+        }
+    }
+
+    private String meta() {
+        return bucketMillis + ":" + bucketCount + ":" + bitsPerBucket + ":" + hashCount;
+    }
+
+    private static String encode(long[] bucket) {
+        ByteBuffer buffer = ByteBuffer.allocate(bucket.length * Long.BYTES);
+        buffer.asLongBuffer().put(bucket);
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    public synchronized int getRecentSize() {
+        return recentOrderNos.size();
+    }
+}
@@ -0,0 +1,155 @@
+package com.ppcex.match.engine;
+
+import com.ppcex.match.config.MatchEngineProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 撮合入口的订单去重：过滤器的时间桶按槽位存成Redis哈希字段，定期只重写有变化的桶，启动时恢复。
+ * 进入撮合的订单另记一个带过期时间的已处理标记，疑似重复时以它回源确认，撤单不会删除该标记
+ */
+@Slf4j
+@Component
+public class OrderIngestFilter {
+
+    @Autowired
+    private MatchEngineProperties engineProperties;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private static final String DEDUP_BUCKETS_KEY = "match:dedup:buckets";
+    private static final String PROCESSED_PREFIX = "match:dedup:processed:";
+
+    private OrderDedupFilter dedupFilter;
+    private ScheduledExecutorService snapshotScheduler;
+    private long processedTtlSeconds;
+
+    @PostConstruct
+    public void init() {
+        MatchEngineProperties.Dedup dedup = engineProperties.getDedup();
+        if (!dedup.isEnabled()) {
+            log.info("订单去重过滤器未启用");
+            return;
+        }
+
+        dedupFilter = new OrderDedupFilter(
+                TimeUnit.SECONDS.toMillis(dedup.getBucketSeconds()),
+                dedup.getBucketCount(),
+                dedup.getBitsPerBucket(),
+                dedup.getHashCount(),
+                dedup.getRecentCapacity());
+        // 标记至少保留到布隆窗口结束，窗口外的订单号直接判为新订单，无需回源
+        processedTtlSeconds = (long) dedup.getBucketSeconds() * (dedup.getBucketCount() + 1);
+        restoreSnapshot();
+
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "match-dedup-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotScheduler.scheduleWithFixedDelay(this::persistSnapshot,
+                dedup.getSnapshotIntervalSeconds(), dedup.getSnapshotIntervalSeconds(), TimeUnit.SECONDS);
+        log.info("订单去重过滤器初始化完成: buckets={}, bucketSeconds={}, recentCapacity={}",
+                dedup.getBucketCount(), dedup.getBucketSeconds(), dedup.getRecentCapacity());
+    }
+
+    /**
+     * 判断订单是否为重复投递，非重复的订单号会被记录
+     */
+    public boolean isDuplicate(String orderNo) {
+        if (dedupFilter == null || orderNo == null) {
+            return false;
+        }
+
+        OrderDedupFilter.Verdict verdict = dedupFilter.checkAndRecord(orderNo, System.currentTimeMillis());
+        switch (verdict) {
+            case DUPLICATE:
+                return true;
+            case SUSPECT:
+                return confirmProcessed(orderNo);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 订单未能进入撮合时撤销记录，MQ重投时不会被当作重复丢弃
+     */
+    public void release(String orderNo) {
+        if (dedupFilter != null && orderNo != null) {
+            dedupFilter.forget(orderNo);
+        }
+    }
+
+    /**
+     * 订单已提交撮合后调用，记录已处理标记；写入失败时只记录日志，重投的订单可能再次判为疑似重复并放行
+     */
+    public void markProcessed(String orderNo) {
+        if (dedupFilter == null || orderNo == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(PROCESSED_PREFIX + orderNo, 1, processedTtlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.error("记录订单已处理标记失败: {}", orderNo, e);
+        }
+    }
+
+    private boolean confirmProcessed(String orderNo) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(PROCESSED_PREFIX + orderNo));
+        } catch (Exception e) {
+            log.error("订单去重回源确认失败: {}", orderNo, e);
+            return false;
+        }
+    }
+
+    private void restoreSnapshot() {
+        try {
+            Map<String, String> fields = new HashMap<>();
+            redisTemplate.opsForHash().entries(DEDUP_BUCKETS_KEY)
+                    .forEach((field, value) -> fields.put(String.valueOf(field), String.valueOf(value)));
+            if (!fields.isEmpty()) {
+                dedupFilter.importBuckets(fields);
+                log.info("订单去重过滤器已从快照恢复: buckets={}", fields.size() - 1);
+            }
+        } catch (Exception e) {
+            log.error("恢复订单去重快照失败", e);
+        }
+    }
+
+    public void persistSnapshot() {
+        if (dedupFilter == null) {
+            return;
+        }
+        Map<String, String> changed = dedupFilter.exportChangedBuckets();
+        if (changed.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForHash().putAll(DEDUP_BUCKETS_KEY, changed);
+        } catch (Exception e) {
+            dedupFilter.markAllChanged();
+            log.error("持久化订单去重快照失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+        persistSnapshot();
+    }
+}
@@ -0,0 +1,64 @@
+package com.ppcex.match.engine;
+
+import java.util.Map;
+
+/**
+ * 用户VIP等级表：long键开放寻址哈希，查找O(1)且不装箱。构建后只读，刷新时整体替换
+ */
+public class UserTierTable {
+
+    public static final UserTierTable EMPTY = of(Map.of());
+
+    private final long[] keys;
+    private final byte[] tiers;
+    private final int mask;
+
+    private UserTierTable(int capacity) {
+        this.keys = new long[capacity];
+        this.tiers = new byte[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public static UserTierTable of(Map<Long, Integer> userTiers) {
+        int capacity = Integer.highestOneBit(Math.max(4, userTiers.size() * 2) - 1) << 1;
+        UserTierTable table = new UserTierTable(capacity);
+        userTiers.forEach((userId, tier) -> {
+            if (userId != null && userId != 0 && tier != null && tier > 0) {
+                table.put(userId, (byte) Math.min(tier, Byte.MAX_VALUE));
+            }
+        });
+        return table;
+    }
+
+    private void put(long userId, byte tier) {
+        int slot = slotOf(userId);
+        while (keys[slot] != 0 && keys[slot] != userId) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = userId;
+        tiers[slot] = tier;
+    }
+
+    /**
+     * 未登记的用户为0级
+     */
+    public int tierOf(long userId) {
+        if (userId == 0) {
+            return 0;
+        }
+        int slot = slotOf(userId);
+        long key;
+        while ((key = keys[slot]) != 0) {
+            if (key == userId) {
+                return tiers[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    private int slotOf(long userId) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
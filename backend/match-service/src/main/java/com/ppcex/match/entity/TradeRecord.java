@@ -22,4 +22,6 @@ public class TradeRecord {
     private BigDecimal makerFee;
     private BigDecimal takerFee;
     private LocalDateTime createTime;
+    private Long sequence;
+    private Long prevSequence;
 }
\ No newline at end of file
@@ -9,11 +9,13 @@ import com.ppcex.match.service.OrderService;
 import com.alibaba.fastjson2.JSON;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.context.annotation.Bean;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
@@ -22,29 +24,42 @@ public class OrderMessageConsumer {
 
     private final OrderService orderService;
 
-    @Async
+    /**
+     * 顺序消费order-topic：生产端以symbol为分片键，同一队列由单线程按序投递，
+     * 消费线程直接发布到该交易对所在分片的RingBuffer，不再经过线程池
+     */
+    @Bean
+    public Consumer<Message<String>> orderTopic() {
+        return message -> handleOrderMessage(message.getPayload());
+    }
+
+    /**
+     * 无法解析的消息记录后丢弃；撮合提交失败时抛出异常，由MQ重投
+     */
     public void handleOrderMessage(String message) {
+        OrderMessage orderMessage;
         try {
-            OrderMessage orderMessage = JSON.parseObject(message, OrderMessage.class);
-
-            switch (orderMessage.getAction()) {
-                case "CREATE":
-                    handleCreateOrder(orderMessage);
-                    break;
-                case "CANCEL":
-                    handleCancelOrder(orderMessage);
-                    break;
-                default:
-                    log.warn("未知的订单操作: {}", orderMessage.getAction());
-            }
+            orderMessage = JSON.parseObject(message, OrderMessage.class);
         } catch (Exception e) {
             log.error("处理订单消息失败: {}", message, e);
+            return;
+        }
+
+        switch (String.valueOf(orderMessage.getAction())) {
+            case "CREATE":
+                handleCreateOrder(orderMessage);
+                break;
+            case "CANCEL":
+                handleCancelOrder(orderMessage);
+                break;
+            default:
+                log.warn("未知的订单操作: {}", orderMessage.getAction());
         }
     }
 
     private void handleCreateOrder(OrderMessage orderMessage) {
+        MatchOrder order = new MatchOrder();
         try {
-            MatchOrder order = new MatchOrder();
             order.setOrderNo(orderMessage.getOrderNo());
             order.setUserId(orderMessage.getUserId());
             order.setSymbol(orderMessage.getSymbol());
@@ -59,20 +74,20 @@ public class OrderMessageConsumer {
             order.setTimeInForce(orderMessage.getTimeInForce());
             order.setCreateTime(LocalDateTime.now());
             order.setUpdateTime(LocalDateTime.now());
-
-            orderService.processOrder(order);
-            log.info("创建订单消息处理完成: {}", orderMessage.getOrderNo());
         } catch (Exception e) {
-            log.error("处理创建订单消息失败: {}", orderMessage.getOrderNo(), e);
+            log.error("创建订单消息字段无效，已丢弃: {}", orderMessage.getOrderNo(), e);
+            return;
         }
+
+        orderService.processOrder(order);
+        log.info("创建订单消息处理完成: {}", orderMessage.getOrderNo());
     }
 
+    /**
+     * 取消提交失败时异常向上抛出，由MQ重投，不在此吞掉
+     */
     private void handleCancelOrder(OrderMessage orderMessage) {
-        try {
-            orderService.cancelOrder(orderMessage.getOrderNo());
-            log.info("取消订单消息处理完成: {}", orderMessage.getOrderNo());
-        } catch (Exception e) {
-            log.error("处理取消订单消息失败: {}", orderMessage.getOrderNo(), e);
-        }
+        orderService.cancelOrder(orderMessage.getOrderNo());
+        log.info("取消订单消息处理完成: {}", orderMessage.getOrderNo());
     }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.ppcex.common.util.SnowflakeIdUtil;
 import com.ppcex.match.engine.DisruptorOrderProcessor;
 import com.ppcex.match.engine.MatchingEngine;
 import com.ppcex.match.engine.OrderEvent;
+import com.ppcex.match.engine.OrderIngestFilter;
 import com.ppcex.match.entity.MatchOrder;
 import com.ppcex.match.enums.OrderStatusEnum;
 import com.ppcex.match.service.OrderService;
@@ -28,6 +29,9 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private MatchingEngine matchingEngine;
 
+    @Autowired
+    private OrderIngestFilter orderIngestFilter;
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
@@ -39,7 +43,15 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public void processOrder(MatchOrder order) {
+        boolean recorded = false;
         try {
+            if (order.getOrderNo() != null) {
+                if (orderIngestFilter.isDuplicate(order.getOrderNo())) {
+                    log.warn("重复投递的订单，已忽略: {}", order.getOrderNo());
+                    return;
+                }
+                recorded = true;
+            }
             if (order.getId() == null) {
                 order.setId(snowflakeIdUtil.nextId());
             }
@@ -54,10 +66,16 @@ public class OrderServiceImpl implements OrderService {
             }
 
             disruptorOrderProcessor.publishOrderEvent(order, OrderEvent.OrderEventType.NEW_ORDER);
+            recorded = false;
+            orderIngestFilter.markProcessed(order.getOrderNo());
 
             cacheOrder(order);
             log.info("订单已提交处理: {}", order.getOrderNo());
         } catch (Exception e) {
+            if (recorded) {
+                // 未进入撮合，撤销去重记录，重投时照常处理
+                orderIngestFilter.release(order.getOrderNo());
+            }
             log.error("处理订单失败: {}", order.getOrderNo(), e);
             throw new RuntimeException("订单处理失败", e);
         }
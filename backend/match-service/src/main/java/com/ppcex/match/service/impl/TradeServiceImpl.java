@@ -76,6 +76,8 @@ public class TradeServiceImpl implements TradeService {
             tradeUpdate.put("takerOrderId", tradeRecord.getTakerOrderId());
             tradeUpdate.put("makerUserId", tradeRecord.getMakerUserId());
             tradeUpdate.put("takerUserId", tradeRecord.getTakerUserId());
+            tradeUpdate.put("sequence", tradeRecord.getSequence());
+            tradeUpdate.put("prevSequence", tradeRecord.getPrevSequence());
             tradeUpdate.put("timestamp", System.currentTimeMillis());
 
             redisTemplate.convertAndSend("trade:update:" + tradeRecord.getSymbol(), tradeUpdate);
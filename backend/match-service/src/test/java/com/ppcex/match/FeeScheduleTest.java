@@ -0,0 +1,66 @@
+package com.ppcex.match;
+
+import com.ppcex.match.engine.FeeSchedule;
+import com.ppcex.match.engine.UserTierTable;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeeScheduleTest {
+
+    @Test
+    void testFixedPointFeeMatchesBigDecimal() {
+        Random random = new Random(1);
+        long[] rates = {0, 1, 20_000, 50_000, 100_000, 123_457, 1_000_000};
+        for (int i = 0; i < 100000; i++) {
+            BigDecimal value = BigDecimal.valueOf(random.nextInt(Integer.MAX_VALUE), random.nextInt(13))
+                    .multiply(BigDecimal.valueOf(1 + random.nextInt(100000), random.nextInt(5)));
+            long rate = rates[random.nextInt(rates.length)];
+            BigDecimal expected = value.multiply(BigDecimal.valueOf(rate, FeeSchedule.RATE_SCALE))
+                    .setScale(FeeSchedule.FEE_SCALE, RoundingMode.HALF_UP);
+            assertEquals(expected, FeeSchedule.fee(value, rate), value + " * " + rate);
+        }
+    }
+
+    @Test
+    void testHalfUpRounding() {
+        // 0.00000005 * 0.1 = 0.000000005 -> 0.00000001
+        assertEquals(new BigDecimal("0.00000001"), FeeSchedule.fee(new BigDecimal("0.00000005"), 10_000_000L));
+        // 0.00000004 * 0.1 = 0.000000004 -> 0
+        assertEquals(new BigDecimal("0.00000000"), FeeSchedule.fee(new BigDecimal("0.00000004"), 10_000_000L));
+    }
+
+    @Test
+    void testTierRates() {
+        FeeSchedule schedule = FeeSchedule.of(
+                List.of(new BigDecimal("0.001"), new BigDecimal("0.0005")),
+                List.of(new BigDecimal("0.002")));
+        assertEquals(100_000L, schedule.makerRate(0));
+        assertEquals(50_000L, schedule.makerRate(1));
+        assertEquals(50_000L, schedule.makerRate(5));
+        assertEquals(200_000L, schedule.takerRate(3));
+        assertThrows(ArithmeticException.class,
+                () -> FeeSchedule.of(List.of(new BigDecimal("0.000000001")), List.of(BigDecimal.ZERO)));
+    }
+
+    @Test
+    void testUserTierLookup() {
+        Map<Long, Integer> tiers = new HashMap<>();
+        for (long userId = 1; userId <= 10000; userId++) {
+            tiers.put(userId * 7919, (int) (userId % 6));
+        }
+        UserTierTable table = UserTierTable.of(tiers);
+        for (long userId = 1; userId <= 10000; userId++) {
+            assertEquals(userId % 6, table.tierOf(userId * 7919));
+        }
+        assertEquals(0, table.tierOf(3));
+        assertEquals(0, UserTierTable.EMPTY.tierOf(42));
+    }
+}
@@ -0,0 +1,82 @@
+package com.ppcex.match;
+
+import com.ppcex.match.engine.OrderEvent;
+import com.ppcex.match.loadgen.LatencyHistogram;
+import com.ppcex.match.loadgen.LoadGenerator;
+import com.ppcex.match.loadgen.OrderFlowGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadGenTest {
+
+    @Test
+    void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(100000, histogram.getTotalCount());
+        assertEquals(100_000_000L, histogram.getMax());
+        assertEquals(50_000_000L, histogram.getValueAtPercentile(50), 50_000_000L / 100.0);
+        assertEquals(99_000_000L, histogram.getValueAtPercentile(99), 99_000_000L / 100.0);
+        assertEquals(100_000_000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void testGeneratorIsDeterministic() {
+        OrderFlowGenerator first = newGenerator();
+        OrderFlowGenerator second = newGenerator();
+        for (int i = 0; i < 1000; i++) {
+            OrderFlowGenerator.OrderAction a = first.next();
+            OrderFlowGenerator.OrderAction b = second.next();
+            assertEquals(a.getType(), b.getType());
+            assertEquals(a.getOrder().getOrderNo(), b.getOrder().getOrderNo());
+            assertEquals(a.getOrder().getPrice(), b.getOrder().getPrice());
+        }
+    }
+
+    @Test
+    void testCancelsOnlyTargetQuotedOrders() {
+        OrderFlowGenerator generator = newGenerator();
+        Set<String> submitted = new HashSet<>();
+        int cancels = 0;
+        for (int i = 0; i < 10000; i++) {
+            OrderFlowGenerator.OrderAction action = generator.next();
+            String orderNo = action.getOrder().getOrderNo();
+            if (action.getType() == OrderEvent.OrderEventType.CANCEL_ORDER) {
+                assertTrue(submitted.remove(orderNo));
+                cancels++;
+            } else {
+                assertTrue(submitted.add(orderNo));
+            }
+        }
+        assertTrue(cancels > 0);
+    }
+
+    @Test
+    void testLoadRunUsesIsolatedEngine() throws InterruptedException {
+        LoadGenerator.Settings settings = new LoadGenerator.Settings();
+        settings.setTargetRate(2000);
+        settings.setDurationSeconds(1);
+        settings.setDrainSeconds(5);
+        settings.setShardCount(2);
+
+        LoadGenerator.Result result = LoadGenerator.run(settings);
+
+        assertTrue(result.getSent() > 0);
+        assertEquals(0, result.getUnfinished());
+        assertEquals(result.getSent(), result.getCorrected().getTotalCount());
+        assertTrue(result.getTrades() > 0);
+    }
+
+    private OrderFlowGenerator newGenerator() {
+        return new OrderFlowGenerator("LT", 7L, List.of("LOADTEST1", "LOADTEST2"), 5_000_000L, 2,
+                2, 10, 0.3, 0.15, 500);
+    }
+}
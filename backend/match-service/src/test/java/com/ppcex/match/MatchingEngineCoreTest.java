@@ -1,6 +1,9 @@
 package com.ppcex.match;
 
+import com.ppcex.match.engine.FeeScheduleCache;
+import com.ppcex.match.engine.MatchingEngine;
 import com.ppcex.match.engine.OrderBook;
+import com.ppcex.match.engine.OrderBookDelta;
 import com.ppcex.match.entity.MatchOrder;
 import com.ppcex.match.entity.TradeRecord;
 import com.ppcex.match.enums.DirectionEnum;
@@ -8,6 +11,7 @@ import com.ppcex.match.enums.OrderStatusEnum;
 import com.ppcex.match.enums.OrderTypeEnum;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -240,6 +244,84 @@ class MatchingEngineCoreTest {
         // Latest price and volume are not cleared in current implementation
     }
 
+    @Test
+    void testScratchCrossRemovesFilledMaker() {
+        MatchingEngine matchingEngine = newEngine();
+        MatchOrder sellOrder = createSellOrder(new BigDecimal("50000"), new BigDecimal("1.0"));
+        matchingEngine.processScratchOrder(orderBook, sellOrder);
+
+        MatchOrder buyOrder = createBuyOrder(new BigDecimal("50000"), new BigDecimal("1.0"));
+        matchingEngine.processScratchOrder(orderBook, buyOrder);
+
+        assertEquals(OrderStatusEnum.FULLY_FILLED, sellOrder.getStatus());
+        assertEquals(OrderStatusEnum.FULLY_FILLED, buyOrder.getStatus());
+        assertEquals(0, orderBook.getSellOrderDepths(10).size());
+        assertEquals(0, orderBook.getBuyOrderDepths(10).size());
+        assertEquals(1, orderBook.getRecentTrades().size());
+    }
+
+    @Test
+    void testScratchSweepAcrossLevels() {
+        MatchingEngine matchingEngine = newEngine();
+        for (int i = 0; i < 3; i++) {
+            MatchOrder sellOrder = createSellOrder(new BigDecimal("50000").add(new BigDecimal(i * 100)), new BigDecimal("1.0"))
+                    .setId((long) i + 1);
+            matchingEngine.processScratchOrder(orderBook, sellOrder);
+        }
+
+        MatchOrder buyOrder = createBuyOrder(new BigDecimal("50200"), new BigDecimal("2.5")).setId(100L);
+        matchingEngine.processScratchOrder(orderBook, buyOrder);
+
+        assertEquals(OrderStatusEnum.FULLY_FILLED, buyOrder.getStatus());
+        assertEquals(3, orderBook.getRecentTrades().size());
+        List<Map<String, Object>> sellDepths = orderBook.getSellOrderDepths(10);
+        assertEquals(1, sellDepths.size());
+        assertEquals(new BigDecimal("50200"), sellDepths.get(0).get("price"));
+        assertEquals(0, new BigDecimal("0.5").compareTo((BigDecimal) sellDepths.get(0).get("amount")));
+    }
+
+    @Test
+    void testDeltasAndTradeSequence() {
+        MatchingEngine matchingEngine = newEngine();
+        MatchOrder sellOrder = createSellOrder(new BigDecimal("50000"), new BigDecimal("1.0")).setId(1L);
+        matchingEngine.processScratchOrder(orderBook, sellOrder);
+        long afterRest = orderBook.getSequence();
+
+        MatchOrder buyOrder = createBuyOrder(new BigDecimal("50000"), new BigDecimal("0.4")).setId(2L);
+        matchingEngine.processScratchOrder(orderBook, buyOrder);
+        matchingEngine.processScratchOrder(orderBook, createBuyOrder(new BigDecimal("50000"), new BigDecimal("0.1")).setId(3L));
+
+        List<TradeRecord> trades = orderBook.getRecentTrades();
+        assertEquals(2, trades.size());
+        assertEquals(0L, trades.get(0).getPrevSequence());
+        assertEquals(trades.get(0).getSequence(), trades.get(1).getPrevSequence());
+
+        List<OrderBookDelta> deltas = orderBook.getDeltasSince(afterRest);
+        assertEquals(2, deltas.size());
+        assertEquals(0, new BigDecimal("0.5").compareTo(deltas.get(1).getAmount()));
+        assertTrue(deltas.get(1).getSequence() <= orderBook.getSequence());
+        assertNull(orderBook.getDeltasSince(orderBook.getSequence() + 1));
+    }
+
+    @Test
+    void testMetricCounters() {
+        MatchingEngine matchingEngine = newEngine();
+        matchingEngine.processScratchOrder(orderBook, createSellOrder(new BigDecimal("50000"), new BigDecimal("1.0")).setId(1L));
+        matchingEngine.processScratchOrder(orderBook, createSellOrder(new BigDecimal("50000"), new BigDecimal("1.0")).setId(2L));
+        matchingEngine.processScratchOrder(orderBook, createSellOrder(new BigDecimal("50100"), new BigDecimal("1.0")).setId(3L));
+        matchingEngine.processScratchOrder(orderBook, createBuyOrder(new BigDecimal("49900"), new BigDecimal("1.0")).setId(4L));
+
+        assertEquals(4, orderBook.getRestingOrderCount());
+        assertEquals(2, orderBook.getSellLevelCount());
+        assertEquals(1, orderBook.getBuyLevelCount());
+
+        matchingEngine.processScratchOrder(orderBook, createBuyOrder(new BigDecimal("50000"), new BigDecimal("2.0")).setId(5L));
+
+        assertEquals(2, orderBook.getMatchCount());
+        assertEquals(2, orderBook.getRestingOrderCount());
+        assertEquals(1, orderBook.getSellLevelCount());
+    }
+
     @Test
     void testOrderStatus() {
         MatchOrder order = createBuyOrder(new BigDecimal("50000"), new BigDecimal("1.0"));
@@ -274,6 +356,15 @@ class MatchingEngineCoreTest {
         assertTrue(duration < 1000, "添加100个订单超过1秒");
     }
 
+    /**
+     * 未加载Redis配置的FeeScheduleCache按默认费率计费
+     */
+    private MatchingEngine newEngine() {
+        MatchingEngine matchingEngine = new MatchingEngine();
+        ReflectionTestUtils.setField(matchingEngine, "feeScheduleCache", new FeeScheduleCache());
+        return matchingEngine;
+    }
+
     private MatchOrder createBuyOrder(BigDecimal price, BigDecimal amount) {
         return createOrder(DirectionEnum.BUY, price, amount);
     }
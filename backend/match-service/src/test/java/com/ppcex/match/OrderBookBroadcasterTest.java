@@ -0,0 +1,149 @@
+package com.ppcex.match;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.ppcex.match.config.MatchEngineProperties;
+import com.ppcex.match.engine.OrderBook;
+import com.ppcex.match.engine.OrderBookBroadcaster;
+import com.ppcex.match.entity.TradeRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderBookBroadcasterTest {
+
+    private OrderBookBroadcaster broadcaster;
+    private RedisConnection connection;
+    private RedisStringCommands stringCommands;
+    private SimpMessagingTemplate messagingTemplate;
+    private MatchEngineProperties engineProperties;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        connection = mock(RedisConnection.class);
+        stringCommands = mock(RedisStringCommands.class);
+        when(connection.stringCommands()).thenReturn(stringCommands);
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection));
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+
+        engineProperties = new MatchEngineProperties();
+        // 合并周期拉长，只有提前推送和shutdown会触发推送
+        engineProperties.getBroadcast().setConflationMillis(60_000);
+        engineProperties.getBroadcast().setMaxTradesPerFlush(3);
+
+        broadcaster = new OrderBookBroadcaster();
+        ReflectionTestUtils.setField(broadcaster, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(broadcaster, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(broadcaster, "engineProperties", engineProperties);
+        ReflectionTestUtils.setField(broadcaster, "meterRegistry", new SimpleMeterRegistry());
+        broadcaster.init();
+    }
+
+    @Test
+    void testRedisAndStompShareOneSerialization() {
+        OrderBook orderBook = new OrderBook("BTCUSDT");
+        orderBook.addTrade(trade("BTCUSDT", 1));
+        broadcaster.offerTrade(orderBook, orderBook.getRecentTrades().get(0));
+        broadcaster.markDirty(orderBook);
+        broadcaster.shutdown();
+
+        ArgumentCaptor<byte[]> cached = ArgumentCaptor.forClass(byte[].class);
+        ArgumentCaptor<byte[]> published = ArgumentCaptor.forClass(byte[].class);
+        verify(stringCommands).set(eq("match:orderbook:BTCUSDT".getBytes()), cached.capture(),
+                any(Expiration.class), any(RedisStringCommands.SetOption.class));
+        verify(connection).publish(eq("orderbook:BTCUSDT".getBytes()), published.capture());
+        List<byte[]> pushed = stompPayloads();
+
+        assertEquals(1, pushed.size());
+        assertSame(cached.getValue(), published.getValue());
+        assertSame(cached.getValue(), pushed.get(0));
+        JSONObject update = JSON.parseObject(pushed.get(0));
+        assertEquals(0L, update.getLongValue("prevSequence"));
+        assertEquals(1, update.getJSONArray("trades").size());
+    }
+
+    @Test
+    void testTradesBeyondLimitFlushEarlyWithoutGaps() {
+        OrderBook orderBook = new OrderBook("BTCUSDT");
+        for (int i = 1; i <= 10; i++) {
+            TradeRecord trade = trade("BTCUSDT", i);
+            orderBook.addTrade(trade);
+            broadcaster.offerTrade(orderBook, trade);
+        }
+        broadcaster.markDirty(orderBook);
+        broadcaster.shutdown();
+
+        List<byte[]> pushed = stompPayloads();
+        long lastSequence = 0;
+        int tradeCount = 0;
+        for (byte[] payload : pushed) {
+            JSONArray trades = JSON.parseObject(payload).getJSONArray("trades");
+            for (int i = 0; i < trades.size(); i++) {
+                JSONObject trade = trades.getJSONObject(i);
+                assertEquals(lastSequence, trade.getLongValue("prevSequence"));
+                lastSequence = trade.getLongValue("sequence");
+                tradeCount++;
+            }
+        }
+        // 超过单次上限的成交不丢弃，序号链完整
+        assertEquals(10, tradeCount);
+    }
+
+    @Test
+    void testPrevSequenceChainsAcrossPushes() {
+        OrderBook orderBook = new OrderBook("ETHUSDT");
+        orderBook.addTrade(trade("ETHUSDT", 1));
+        broadcaster.markDirty(orderBook);
+        ReflectionTestUtils.invokeMethod(broadcaster, "flush");
+        orderBook.addTrade(trade("ETHUSDT", 2));
+        broadcaster.markDirty(orderBook);
+        ReflectionTestUtils.invokeMethod(broadcaster, "flush");
+
+        List<byte[]> pushed = stompPayloads();
+        assertEquals(2, pushed.size());
+        JSONObject first = JSON.parseObject(pushed.get(0));
+        JSONObject second = JSON.parseObject(pushed.get(1));
+        assertEquals(first.getLongValue("sequence"), second.getLongValue("prevSequence"));
+        assertEquals(second, JSON.parseObject(JSON.toJSONBytes(broadcaster.getLatestUpdate("ETHUSDT"))));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<byte[]> stompPayloads() {
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate, atLeast(0)).send(anyString(), captor.capture());
+        List<byte[]> payloads = new ArrayList<>();
+        for (Message<?> message : captor.getAllValues()) {
+            payloads.add((byte[]) message.getPayload());
+        }
+        return payloads;
+    }
+
+    private TradeRecord trade(String symbol, int i) {
+        return new TradeRecord()
+                .setTradeNo("T" + i)
+                .setSymbol(symbol)
+                .setPrice(new BigDecimal("50000"))
+                .setAmount(BigDecimal.ONE);
+    }
+}
@@ -0,0 +1,100 @@
+package com.ppcex.match;
+
+import com.ppcex.match.engine.OrderDedupFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderDedupFilterTest {
+
+    private static final long BUCKET_MILLIS = 60_000L;
+    private static final long NOW = 1_700_000_000_000L;
+
+    private OrderDedupFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new OrderDedupFilter(BUCKET_MILLIS, 10, 1 << 16, 7, 1000);
+    }
+
+    @Test
+    void testRedeliveredOrderIsDuplicate() {
+        assertEquals(OrderDedupFilter.Verdict.NEW, filter.checkAndRecord("ORD1", NOW));
+        assertEquals(OrderDedupFilter.Verdict.DUPLICATE, filter.checkAndRecord("ORD1", NOW + 1000));
+    }
+
+    @Test
+    void testDistinctOrdersAreNew() {
+        int notNew = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (filter.checkAndRecord("ORD" + i, NOW) != OrderDedupFilter.Verdict.NEW) {
+                notNew++;
+            }
+        }
+        assertEquals(0, notNew);
+    }
+
+    @Test
+    void testRecentCapacityIsBounded() {
+        filter.checkAndRecord("ORD-FIRST", NOW);
+        for (int i = 0; i < 2000; i++) {
+            filter.checkAndRecord("ORD" + i, NOW);
+        }
+
+        assertEquals(1000, filter.getRecentSize());
+        // 已被LRU淘汰但仍在布隆窗口内，需要调用方回源确认
+        assertEquals(OrderDedupFilter.Verdict.SUSPECT, filter.checkAndRecord("ORD-FIRST", NOW));
+    }
+
+    @Test
+    void testExpiredBucketIsForgotten() {
+        filter.checkAndRecord("ORD1", NOW);
+        assertEquals(OrderDedupFilter.Verdict.NEW, filter.checkAndRecord("ORD1", NOW + 11 * BUCKET_MILLIS));
+    }
+
+    @Test
+    void testForgottenOrderIsSuspectNotDuplicate() {
+        filter.checkAndRecord("ORD1", NOW);
+        filter.forget("ORD1");
+
+        // 布隆位仍在，交给调用方回源确认，而不是直接当作重复丢弃
+        assertEquals(OrderDedupFilter.Verdict.SUSPECT, filter.checkAndRecord("ORD1", NOW + 1000));
+    }
+
+    @Test
+    void testExportOnlyChangedBuckets() {
+        assertTrue(filter.exportChangedBuckets().isEmpty());
+
+        filter.checkAndRecord("ORD1", NOW);
+        Map<String, String> first = filter.exportChangedBuckets();
+        assertEquals(2, first.size());
+        assertTrue(filter.exportChangedBuckets().isEmpty());
+
+        filter.checkAndRecord("ORD2", NOW + BUCKET_MILLIS);
+        Map<String, String> second = filter.exportChangedBuckets();
+        assertEquals(2, second.size());
+        assertNotEquals(first.keySet(), second.keySet());
+
+        filter.markAllChanged();
+        assertEquals(11, filter.exportChangedBuckets().size());
+    }
+
+    @Test
+    void testImportBuckets() {
+        filter.checkAndRecord("ORD1", NOW);
+        Map<String, String> fields = filter.exportChangedBuckets();
+
+        OrderDedupFilter restored = new OrderDedupFilter(BUCKET_MILLIS, 10, 1 << 16, 7, 1000);
+        restored.importBuckets(fields);
+        // LRU不随桶导出，布隆命中后需回源确认
+        assertEquals(OrderDedupFilter.Verdict.SUSPECT, restored.checkAndRecord("ORD1", NOW + 1000));
+        assertEquals(OrderDedupFilter.Verdict.NEW, restored.checkAndRecord("ORD2", NOW + 1000));
+
+        OrderDedupFilter incompatible = new OrderDedupFilter(BUCKET_MILLIS, 10, 1 << 17, 7, 1000);
+        incompatible.importBuckets(fields);
+        assertEquals(OrderDedupFilter.Verdict.NEW, incompatible.checkAndRecord("ORD1", NOW + 1000));
+    }
+}
@@ -0,0 +1,77 @@
+package com.ppcex.match;
+
+import com.ppcex.match.config.MatchEngineProperties;
+import com.ppcex.match.engine.OrderIngestFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderIngestFilterTest {
+
+    private OrderIngestFilter ingestFilter;
+    private Set<String> keys;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        keys = ConcurrentHashMap.newKeySet();
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        ValueOperations<String, Object> valueOperations = mock(ValueOperations.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries(anyString())).thenReturn(Map.of());
+        doAnswer(invocation -> keys.add(invocation.getArgument(0)))
+                .when(valueOperations).set(anyString(), any(), anyLong(), any(TimeUnit.class));
+        when(redisTemplate.hasKey(anyString())).thenAnswer(invocation -> keys.contains(invocation.<String>getArgument(0)));
+
+        MatchEngineProperties engineProperties = new MatchEngineProperties();
+        engineProperties.getDedup().setRecentCapacity(2);
+        engineProperties.getDedup().setSnapshotIntervalSeconds(3600);
+
+        ingestFilter = new OrderIngestFilter();
+        ReflectionTestUtils.setField(ingestFilter, "engineProperties", engineProperties);
+        ReflectionTestUtils.setField(ingestFilter, "redisTemplate", redisTemplate);
+        ingestFilter.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestFilter.shutdown();
+    }
+
+    @Test
+    void testCancelledAndEvictedOrderStaysDuplicate() {
+        assertFalse(ingestFilter.isDuplicate("ORD1"));
+        ingestFilter.markProcessed("ORD1");
+        // 撤单删除订单缓存，不影响已处理标记
+        keys.remove("match:order:ORD1");
+        // 挤出精确LRU，重投时只能回源确认
+        ingestFilter.isDuplicate("ORD2");
+        ingestFilter.isDuplicate("ORD3");
+
+        assertTrue(ingestFilter.isDuplicate("ORD1"));
+    }
+
+    @Test
+    void testReleasedOrderIsAdmittedAgain() {
+        assertFalse(ingestFilter.isDuplicate("ORD1"));
+        ingestFilter.release("ORD1");
+
+        // 未进入撮合的订单没有已处理标记，重投时照常处理
+        assertFalse(ingestFilter.isDuplicate("ORD1"));
+    }
+}
@@ -0,0 +1,227 @@
+package com.ppcex.match.loadgen;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.ppcex.match.engine.FeeScheduleCache;
+import com.ppcex.match.engine.MatchingEngine;
+import com.ppcex.match.engine.OrderBook;
+import com.ppcex.match.engine.OrderBookBroadcaster;
+import com.ppcex.match.engine.OrderEvent;
+import com.ppcex.match.engine.OrderEventFactory;
+import com.ppcex.match.engine.OrderEventHandler;
+import com.ppcex.match.entity.MatchOrder;
+import com.ppcex.match.entity.TradeRecord;
+import com.ppcex.match.service.TradeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 压测订单流：按目标速率开环发送合成订单到本类自建的RingBuffer和MatchingEngine实例。
+ * 引擎的成交和订单簿推送接到计数桩上，不写Redis、不发MQ和WebSocket，也不接触运行中服务的订单簿。
+ * 延迟以撮合线程处理完成为终点，同时给出按计划发送时间计算（校正协调遗漏）和按实际发送时间计算的两组百分位。
+ * 用main方法运行：参数依次为目标速率（笔/秒）和持续秒数。
+ */
+@Slf4j
+public class LoadGenerator {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    @Data
+    public static class Settings {
+        private List<String> symbols = List.of("LOADTEST1", "LOADTEST2");
+        private int targetRate = 20000;
+        private int durationSeconds = 60;
+        private int drainSeconds = 10;
+        private long seed = 42;
+        private long startPriceTicks = 5_000_000L;
+        private int priceScale = 2;
+        private int volatilityTicks = 2;
+        private int makerLevels = 10;
+        private double cancelRatio = 0.3;
+        private double takerRatio = 0.15;
+        private int maxRestingPerSymbol = 5000;
+        private int shardCount = 4;
+        private int bufferSize = 1024;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Result {
+        private long sent;
+        private long unfinished;
+        private long trades;
+        private LatencyHistogram corrected;
+        private LatencyHistogram uncorrected;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Settings settings = new Settings();
+        if (args.length > 0) {
+            settings.setTargetRate(Integer.parseInt(args[0]));
+        }
+        if (args.length > 1) {
+            settings.setDurationSeconds(Integer.parseInt(args[1]));
+        }
+        run(settings);
+    }
+
+    public static Result run(Settings settings) throws InterruptedException {
+        String runId = "LT" + System.currentTimeMillis();
+        OrderFlowGenerator generator = new OrderFlowGenerator(runId, settings.getSeed(), settings.getSymbols(),
+                settings.getStartPriceTicks(), settings.getPriceScale(), settings.getVolatilityTicks(),
+                settings.getMakerLevels(), settings.getCancelRatio(), settings.getTakerRatio(),
+                settings.getMaxRestingPerSymbol());
+
+        CountingTradeSink tradeSink = new CountingTradeSink();
+        MatchingEngine matchingEngine = isolatedEngine(tradeSink);
+
+        LatencyHistogram corrected = new LatencyHistogram();
+        LatencyHistogram uncorrected = new LatencyHistogram();
+        // key -> {计划发送时间, 实际发送时间}
+        Map<String, long[]> inFlight = new ConcurrentHashMap<>();
+
+        List<Disruptor<OrderEvent>> disruptors = new ArrayList<>();
+        List<RingBuffer<OrderEvent>> ringBuffers = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, settings.getShardCount()); i++) {
+            String threadName = "loadgen-shard-" + i;
+            Disruptor<OrderEvent> disruptor = new Disruptor<>(new OrderEventFactory(), settings.getBufferSize(),
+                    (ThreadFactory) r -> new Thread(r, threadName), ProducerType.SINGLE, new BlockingWaitStrategy());
+            OrderEventHandler handler = new OrderEventHandler(matchingEngine);
+            disruptor.handleEventsWith((event, sequence, endOfBatch) -> {
+                handler.onEvent(event, sequence, endOfBatch);
+                long[] sendTimes = inFlight.remove(keyOf(event.getType(), event.getOrder().getOrderNo()));
+                if (sendTimes != null) {
+                    long now = System.nanoTime();
+                    corrected.record(now - sendTimes[0]);
+                    uncorrected.record(now - sendTimes[1]);
+                }
+            });
+            disruptor.start();
+            disruptors.add(disruptor);
+            ringBuffers.add(disruptor.getRingBuffer());
+        }
+
+        log.info("压测开始: runId={}, symbols={}, targetRate={}/s, duration={}s",
+                runId, settings.getSymbols(), settings.getTargetRate(), settings.getDurationSeconds());
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, settings.getTargetRate());
+        long startTime = System.nanoTime();
+        long endTime = startTime + TimeUnit.SECONDS.toNanos(settings.getDurationSeconds());
+        long sent = 0;
+        try {
+            while (true) {
+                // 开环调度：计划时间只由起点和速率决定，发送方落后时按计划时间计延迟
+                long intendedTime = startTime + sent * intervalNanos;
+                if (intendedTime >= endTime) {
+                    break;
+                }
+                long now;
+                while ((now = System.nanoTime()) < intendedTime) {
+                    LockSupport.parkNanos(intendedTime - now);
+                }
+
+                OrderFlowGenerator.OrderAction action = generator.next();
+                MatchOrder order = action.getOrder();
+                inFlight.put(keyOf(action.getType(), order.getOrderNo()), new long[]{intendedTime, System.nanoTime()});
+                RingBuffer<OrderEvent> ringBuffer = ringBuffers.get(Math.floorMod(order.getSymbol().hashCode(), ringBuffers.size()));
+                long sequence = ringBuffer.next();
+                try {
+                    OrderEvent event = ringBuffer.get(sequence);
+                    event.setOrder(order);
+                    event.setType(action.getType());
+                } finally {
+                    ringBuffer.publish(sequence);
+                }
+                sent++;
+            }
+
+            long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.getDrainSeconds());
+            while (!inFlight.isEmpty() && System.nanoTime() < drainDeadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+        } finally {
+            disruptors.forEach(Disruptor::halt);
+        }
+
+        double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+        log.info("压测结束: runId={}, sent={}, completed={}, unfinished={}, trades={}, achievedRate={}/s",
+                runId, sent, corrected.getTotalCount(), inFlight.size(), tradeSink.trades.get(),
+                Math.round(corrected.getTotalCount() / elapsedSeconds));
+        log.info("延迟(校正协调遗漏): {}", format(corrected));
+        log.info("延迟(按实际发送时间): {}", format(uncorrected));
+        return new Result(sent, inFlight.size(), tradeSink.trades.get(), corrected, uncorrected);
+    }
+
+    /**
+     * 独立的引擎实例：默认费率，成交只计数，订单簿推送丢弃
+     */
+    private static MatchingEngine isolatedEngine(TradeService tradeSink) {
+        MatchingEngine matchingEngine = new MatchingEngine();
+        ReflectionTestUtils.setField(matchingEngine, "tradeService", tradeSink);
+        ReflectionTestUtils.setField(matchingEngine, "orderBookBroadcaster", new DiscardingBroadcaster());
+        ReflectionTestUtils.setField(matchingEngine, "feeScheduleCache", new FeeScheduleCache());
+        ReflectionTestUtils.setField(matchingEngine, "meterRegistry", new SimpleMeterRegistry());
+        return matchingEngine;
+    }
+
+    private static String keyOf(OrderEvent.OrderEventType type, String orderNo) {
+        return type.name() + ":" + orderNo;
+    }
+
+    private static String format(LatencyHistogram histogram) {
+        StringBuilder sb = new StringBuilder();
+        for (double percentile : PERCENTILES) {
+            sb.append('p').append(BigDecimal.valueOf(percentile).stripTrailingZeros().toPlainString()).append('=')
+                    .append(TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(percentile))).append("us ");
+        }
+        return sb.append("max=").append(TimeUnit.NANOSECONDS.toMicros(histogram.getMax())).append("us").toString();
+    }
+
+    private static class CountingTradeSink implements TradeService {
+
+        private final AtomicLong trades = new AtomicLong();
+
+        @Override
+        public void processTrade(TradeRecord tradeRecord, MatchOrder buyOrder, MatchOrder sellOrder) {
+            trades.incrementAndGet();
+        }
+
+        @Override
+        public void saveTradeRecord(TradeRecord tradeRecord) {
+        }
+
+        @Override
+        public void updateOrderStatus(MatchOrder order) {
+        }
+
+        @Override
+        public void notifyTradeUpdate(TradeRecord tradeRecord) {
+        }
+    }
+
+    private static class DiscardingBroadcaster extends OrderBookBroadcaster {
+
+        @Override
+        public void markDirty(OrderBook orderBook) {
+        }
+
+        @Override
+        public void offerTrade(OrderBook orderBook, TradeRecord trade) {
+        }
+    }
+}
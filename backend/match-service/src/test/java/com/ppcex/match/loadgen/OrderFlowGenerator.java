@@ -0,0 +1,141 @@
+package com.ppcex.match.loadgen;
+
+import com.ppcex.match.engine.OrderEvent;
+import com.ppcex.match.entity.MatchOrder;
+import com.ppcex.match.enums.DirectionEnum;
+import com.ppcex.match.enums.OrderStatusEnum;
+import com.ppcex.match.enums.OrderTypeEnum;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 合成订单流：每个交易对的中间价做随机游走，做市商在中间价两侧分档挂单并按先挂先撤刷新报价，
+ * 吃单方以穿价限价单扫过若干档。同一种子生成的订单流完全一致，便于压测结果对比。
+ */
+public class OrderFlowGenerator {
+
+    private static final long MAKER_USER_BASE = 900_000L;
+    private static final long TAKER_USER_BASE = 950_000L;
+    private static final int USERS_PER_ROLE = 100;
+
+    private final String runId;
+    private final Random random;
+    private final List<SymbolState> symbols = new ArrayList<>();
+    private final int priceScale;
+    private final int volatilityTicks;
+    private final int makerLevels;
+    private final double cancelRatio;
+    private final double takerRatio;
+    private final int maxRestingPerSymbol;
+    private long orderSequence;
+
+    @Data
+    @AllArgsConstructor
+    public static class OrderAction {
+        private OrderEvent.OrderEventType type;
+        private MatchOrder order;
+    }
+
+    private static class SymbolState {
+        private final String symbol;
+        private long midTicks;
+        private final ArrayDeque<MatchOrder> restingQuotes = new ArrayDeque<>();
+
+        private SymbolState(String symbol, long midTicks) {
+            this.symbol = symbol;
+            this.midTicks = midTicks;
+        }
+    }
+
+    public OrderFlowGenerator(String runId, long seed, List<String> symbols, long startPriceTicks, int priceScale,
+                              int volatilityTicks, int makerLevels, double cancelRatio, double takerRatio,
+                              int maxRestingPerSymbol) {
+        if (symbols == null || symbols.isEmpty()) {
+            throw new IllegalArgumentException("压测交易对不能为空");
+        }
+        if (cancelRatio < 0 || takerRatio < 0 || cancelRatio + takerRatio > 1) {
+            throw new IllegalArgumentException("撤单比例与吃单比例之和不能超过1");
+        }
+        this.runId = runId;
+        this.random = new Random(seed);
+        for (String symbol : symbols) {
+            this.symbols.add(new SymbolState(symbol, startPriceTicks));
+        }
+        this.priceScale = priceScale;
+        this.volatilityTicks = Math.max(0, volatilityTicks);
+        this.makerLevels = Math.max(1, makerLevels);
+        this.cancelRatio = cancelRatio;
+        this.takerRatio = takerRatio;
+        this.maxRestingPerSymbol = Math.max(1, maxRestingPerSymbol);
+    }
+
+    public OrderAction next() {
+        SymbolState state = symbols.get(random.nextInt(symbols.size()));
+        walk(state);
+
+        double roll = random.nextDouble();
+        if (!state.restingQuotes.isEmpty()
+                && (roll < cancelRatio || state.restingQuotes.size() >= maxRestingPerSymbol)) {
+            // 做市商撤掉最早的报价，价格最可能已偏离中间价
+            return new OrderAction(OrderEvent.OrderEventType.CANCEL_ORDER, state.restingQuotes.pollFirst());
+        }
+        if (roll < cancelRatio + takerRatio) {
+            return new OrderAction(OrderEvent.OrderEventType.NEW_ORDER, takerOrder(state));
+        }
+        MatchOrder quote = makerQuote(state);
+        state.restingQuotes.addLast(quote);
+        return new OrderAction(OrderEvent.OrderEventType.NEW_ORDER, quote);
+    }
+
+    private void walk(SymbolState state) {
+        if (volatilityTicks > 0) {
+            long step = Math.round(random.nextGaussian() * volatilityTicks);
+            state.midTicks = Math.max(makerLevels + 1L, state.midTicks + step);
+        }
+    }
+
+    private MatchOrder makerQuote(SymbolState state) {
+        boolean buy = random.nextBoolean();
+        long offset = 1 + random.nextInt(makerLevels);
+        long priceTicks = buy ? state.midTicks - offset : state.midTicks + offset;
+        return createOrder(state.symbol, buy ? DirectionEnum.BUY : DirectionEnum.SELL, priceTicks,
+                1 + random.nextInt(100), MAKER_USER_BASE + random.nextInt(USERS_PER_ROLE));
+    }
+
+    private MatchOrder takerOrder(SymbolState state) {
+        boolean buy = random.nextBoolean();
+        long depth = 1 + random.nextInt(makerLevels);
+        long priceTicks = buy ? state.midTicks + depth : state.midTicks - depth;
+        return createOrder(state.symbol, buy ? DirectionEnum.BUY : DirectionEnum.SELL, priceTicks,
+                50 + random.nextInt(500), TAKER_USER_BASE + random.nextInt(USERS_PER_ROLE));
+    }
+
+    private MatchOrder createOrder(String symbol, DirectionEnum direction, long priceTicks, long amountUnits,
+                                   long userId) {
+        long id = ++orderSequence;
+        LocalDateTime now = LocalDateTime.now();
+        return new MatchOrder()
+                .setId(id)
+                .setOrderNo(runId + "-" + id)
+                .setUserId(userId)
+                .setSymbol(symbol)
+                .setOrderType(OrderTypeEnum.LIMIT)
+                .setDirection(direction)
+                .setPrice(BigDecimal.valueOf(priceTicks, priceScale))
+                .setAmount(BigDecimal.valueOf(amountUnits, 4))
+                .setExecutedAmount(BigDecimal.ZERO)
+                .setExecutedValue(BigDecimal.ZERO)
+                .setFee(BigDecimal.ZERO)
+                .setStatus(OrderStatusEnum.PENDING)
+                .setTimeInForce(1)
+                .setCreateTime(now)
+                .setUpdateTime(now);
+    }
+}
@@ -0,0 +1,42 @@
+package com.ppcex.trade.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cex.trade.archive")
+public class ArchiveProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 热表保留天数，终态订单按更新时间、成交按成交时间超过该天数后归档
+     */
+    private int retentionDays = 30;
+
+    /**
+     * 每个事务搬迁的行数
+     */
+    private int chunkSize = 500;
+
+    /**
+     * 两个分块之间的停顿，限制归档对主库的压力
+     */
+    private long chunkPauseMillis = 200;
+
+    /**
+     * 归档任务执行间隔
+     */
+    private long intervalMinutes = 60;
+
+    /**
+     * 冷表中的数据创建时间都早于该时刻，查询范围不早于它时只查热表
+     */
+    public LocalDateTime hotBoundary() {
+        return LocalDateTime.now().minusDays(retentionDays);
+    }
+}
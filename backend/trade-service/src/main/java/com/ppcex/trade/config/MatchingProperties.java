@@ -0,0 +1,63 @@
+package com.ppcex.trade.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cex.trade.trading.matching")
+public class MatchingProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 撮合线程数，交易对按symbol哈希固定到其中一个线程，不同交易对并行撮合
+     */
+    private int workerCount = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 落库线程数，同一交易对的成交按撮合顺序落库
+     */
+    private int persistWorkerCount = 4;
+
+    /**
+     * 每个线程的任务队列长度：撮合线程队列满时拒绝新订单，落库线程队列满时阻塞撮合线程
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 写入Redis的深度档位数，每侧按价位聚合
+     */
+    private int depthLevels = 20;
+
+    /**
+     * 深度写入间隔，间隔内的多次变更合并为一次写入
+     */
+    private long depthPublishIntervalMillis = 200;
+
+    /**
+     * 成交明细组提交：单次多行插入的最大行数
+     */
+    private int tradeFlushMaxRows = 500;
+
+    /**
+     * 成交明细组提交：首条进入缓冲后最多等待的时间
+     */
+    private long tradeFlushMaxDelayMillis = 5;
+
+    /**
+     * 成交明细缓冲的最大待写批次数，写满时提交方阻塞
+     */
+    private int tradeBufferCapacity = 20000;
+
+    /**
+     * 落库失败的成交和订单增量写入的重放日志
+     */
+    private String failedTradeJournalPath = "data/failed-trades.log";
+
+    /**
+     * 重放日志的补写间隔
+     */
+    private int failedTradeReplayIntervalSeconds = 30;
+}
@@ -0,0 +1,32 @@
+package com.ppcex.trade.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cex.trade.mq.order-consumer")
+public class OrderConsumerProperties {
+
+    private String nameServer = "localhost:9876";
+
+    private String topic = "order-topic";
+
+    private String group = "trade-service-group";
+
+    /**
+     * 单次投递的消息数上限，来自同一队列，一批一个事务写回
+     */
+    private int batchSize = 100;
+
+    /**
+     * 消费线程数，顺序消费下每个队列同时只由一个线程处理
+     */
+    private int consumeThreads = 8;
+
+    /**
+     * 挂起重投的最大次数，超过后整批进入死信队列
+     */
+    private int maxReconsumeTimes = 16;
+}
@@ -0,0 +1,76 @@
+package com.ppcex.trade.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cex.trade.trading.order")
+public class OrderProperties {
+
+    /**
+     * 单用户滑动窗口内允许的下单次数
+     */
+    private int rateLimit = 10;
+
+    /**
+     * 下单限流滑动窗口长度
+     */
+    private long rateLimitWindowMillis = 60000;
+
+    /**
+     * 批量下单、撤单单次请求的最大订单数
+     */
+    private int batchMaxSize = 20;
+
+    /**
+     * 超时时间轮的tick长度，决定超时撤销的最大延迟
+     */
+    private long expiryTickMillis = 100;
+
+    /**
+     * 超时时间轮每层的槽数
+     */
+    private int expiryWheelSize = 512;
+
+    /**
+     * 超时撤销单批处理的订单数
+     */
+    private int expiryBatchSize = 500;
+
+    /**
+     * 快速接收：订单写入本地日志后即返回，异步批量落库
+     */
+    private boolean fastAccept = false;
+
+    /**
+     * 快速接收日志文件路径
+     */
+    private String journalPath = "data/order-journal.log";
+
+    /**
+     * 快速接收日志单个分段的大小上限，超过后滚动到新分段
+     */
+    private long journalSegmentBytes = 64L * 1024 * 1024;
+
+    /**
+     * 异步落库：单次多行插入的最大行数
+     */
+    private int writeBehindMaxRows = 500;
+
+    /**
+     * 异步落库：首条订单进入缓冲后最多等待的时间
+     */
+    private long writeBehindMaxDelayMillis = 5;
+
+    /**
+     * 已接收未落库的订单上限，达到上限时拒绝新订单
+     */
+    private int writeBehindCapacity = 20000;
+
+    /**
+     * 活动订单索引定期全量重建的间隔，兜底丢失的跨实例变更广播，0为不重建
+     */
+    private int activeIndexRebuildSeconds = 300;
+}
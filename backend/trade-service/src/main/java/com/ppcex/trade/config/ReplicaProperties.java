@@ -0,0 +1,37 @@
+package com.ppcex.trade.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cex.trade.datasource.replica")
+public class ReplicaProperties {
+
+    /**
+     * 是否启用从库读路由，关闭时只使用spring.datasource
+     */
+    private boolean enabled = false;
+
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    /**
+     * 本实例在心跳表中的标识
+     */
+    private String instanceId = "trade-1";
+
+    /**
+     * 从库可接受的最大延迟，超过后读请求回落主库
+     */
+    private long maxLagMillis = 3000;
+
+    /**
+     * 心跳探测间隔
+     */
+    private long probeIntervalMillis = 1000;
+}
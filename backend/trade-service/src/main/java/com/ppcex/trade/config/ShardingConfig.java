@@ -0,0 +1,26 @@
+package com.ppcex.trade.config;
+
+import com.ppcex.trade.shard.FileSymbolOwnershipRegistry;
+import com.ppcex.trade.shard.InMemorySymbolOwnershipRegistry;
+import com.ppcex.trade.shard.SymbolOwnershipRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class ShardingConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "cex.trade.sharding", name = "registry", havingValue = "memory")
+    public SymbolOwnershipRegistry inMemorySymbolOwnershipRegistry() {
+        return new InMemorySymbolOwnershipRegistry();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "cex.trade.sharding", name = "registry", havingValue = "file", matchIfMissing = true)
+    public SymbolOwnershipRegistry fileSymbolOwnershipRegistry(ShardingProperties shardingProperties) {
+        return new FileSymbolOwnershipRegistry(Path.of(shardingProperties.getRegistryFile()));
+    }
+}
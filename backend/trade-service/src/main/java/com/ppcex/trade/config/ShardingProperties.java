@@ -0,0 +1,54 @@
+package com.ppcex.trade.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cex.trade.sharding")
+public class ShardingProperties {
+
+    /**
+     * 是否按交易对归属在多个实例间分片撮合，关闭时所有交易对都在本实例撮合
+     */
+    private boolean enabled = false;
+
+    /**
+     * 本实例标识，须出现在instances中
+     */
+    private String instanceId = "trade-1";
+
+    /**
+     * 全部实例及其内部访问地址，未显式分配的交易对按symbol哈希落到其中一个实例
+     */
+    private Map<String, String> instances = new LinkedHashMap<>();
+
+    /**
+     * 归属注册表实现：file-共享文件，memory-进程内（测试用）
+     */
+    private String registry = "file";
+
+    /**
+     * file注册表的文件路径，每行symbol=instanceId
+     */
+    private String registryFile = "data/symbol-owners.properties";
+
+    /**
+     * 轮询注册表的间隔
+     */
+    private long pollIntervalSeconds = 5;
+
+    /**
+     * 转发请求和拉取快照的超时时间
+     */
+    private long requestTimeoutMillis = 3000;
+
+    /**
+     * 实例间内部接口的共享密钥，转发时放在请求头中，各实例须配置相同的值；启用分片时必填
+     */
+    private String internalToken;
+}
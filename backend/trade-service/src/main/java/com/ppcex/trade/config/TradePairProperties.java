@@ -0,0 +1,16 @@
+package com.ppcex.trade.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cex.trade.pairs")
+public class TradePairProperties {
+
+    /**
+     * 本地交易对注册表的版本轮询间隔
+     */
+    private long pollIntervalSeconds = 30;
+}
@@ -3,6 +3,10 @@ package com.ppcex.trade.controller;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ppcex.trade.service.OrderService;
+import com.ppcex.trade.dto.CursorPage;
+import com.ppcex.trade.dto.OrderBatchCancelDTO;
+import com.ppcex.trade.dto.OrderBatchCreateDTO;
+import com.ppcex.trade.dto.OrderBatchResultVO;
 import com.ppcex.trade.dto.OrderCreateDTO;
 import com.ppcex.trade.dto.OrderCancelDTO;
 import com.ppcex.trade.dto.OrderVO;
@@ -42,6 +46,22 @@ public class OrderController {
         return Result.success(order);
     }
 
+    @Operation(summary = "批量创建订单")
+    @PostMapping("/batch")
+    public Result<List<OrderBatchResultVO>> createOrders(@Valid @RequestBody OrderBatchCreateDTO orderBatchCreateDTO) {
+        Long userId = UserContext.getCurrentUserId();
+        List<OrderBatchResultVO> results = orderService.createOrders(userId, orderBatchCreateDTO.getOrders());
+        return Result.success(results);
+    }
+
+    @Operation(summary = "批量取消订单")
+    @PostMapping("/cancel-batch")
+    public Result<List<OrderBatchResultVO>> cancelOrders(@Valid @RequestBody OrderBatchCancelDTO orderBatchCancelDTO) {
+        Long userId = UserContext.getCurrentUserId();
+        List<OrderBatchResultVO> results = orderService.cancelOrders(userId, orderBatchCancelDTO.getOrderNos());
+        return Result.success(results);
+    }
+
     @Operation(summary = "根据订单编号获取订单")
     @GetMapping("/{orderNo}")
     public Result<OrderVO> getOrderByOrderNo(
@@ -76,6 +96,22 @@ public class OrderController {
         return Result.success(pageResult);
     }
 
+    @Operation(summary = "游标分页获取用户历史订单")
+    @GetMapping("/history")
+    public Result<CursorPage<OrderVO>> getUserOrderHistory(
+            @Parameter(description = "上一页返回的游标，首页不传") @RequestParam(required = false) String cursor,
+            @Parameter(description = "页大小") @RequestParam(defaultValue = "20") Integer size,
+            @Parameter(description = "交易对") @RequestParam(required = false) String symbol,
+            @Parameter(description = "状态") @RequestParam(required = false) Integer status,
+            @Parameter(description = "订单类型") @RequestParam(required = false) Integer orderType,
+            @Parameter(description = "是否返回总数") @RequestParam(defaultValue = "false") Boolean withTotal) {
+
+        Long userId = UserContext.getCurrentUserId();
+        CursorPage<OrderVO> result = orderService.getUserOrdersByCursor(userId, symbol, status, orderType,
+                cursor, Math.min(Math.max(size, 1), 100), withTotal);
+        return Result.success(result);
+    }
+
     @Operation(summary = "获取用户当前委托")
     @GetMapping("/active")
     public Result<List<OrderVO>> getUserActiveOrders() {
@@ -0,0 +1,77 @@
+package com.ppcex.trade.controller;
+
+import com.ppcex.trade.engine.MatchingEngine;
+import com.ppcex.trade.entity.TradeOrder;
+import com.ppcex.trade.shard.SymbolOwnership;
+import com.ppcex.trade.shard.SymbolRouter;
+import com.ppcex.common.response.PageResult;
+import com.ppcex.common.response.Result;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 实例间内部接口：撮合请求转发、订单簿交接和归属调整，不经网关对外暴露
+ */
+@Tag(name = "撮合分片", description = "交易对归属与实例间转发接口")
+@RestController
+@RequestMapping("/internal/trade/shard")
+public class ShardController {
+
+    @Autowired
+    private SymbolRouter symbolRouter;
+
+    @Autowired
+    private SymbolOwnership symbolOwnership;
+
+    @Autowired
+    private MatchingEngine matchingEngine;
+
+    @Operation(summary = "接收转发的订单")
+    @PostMapping("/orders")
+    public Result<Void> processOrder(@RequestBody TradeOrder order) {
+        symbolRouter.acceptForwarded(order, false);
+        return Result.success();
+    }
+
+    @Operation(summary = "接收转发的撤单")
+    @PostMapping("/orders/cancel")
+    public Result<Void> cancelOrder(@RequestBody TradeOrder order) {
+        symbolRouter.acceptForwarded(order, true);
+        return Result.success();
+    }
+
+    @Operation(summary = "读取本实例的完整订单簿")
+    @GetMapping("/orderbook")
+    public Result<PageResult<Map<String, Object>>> getFullOrderBook(
+            @Parameter(description = "交易对") @RequestParam String symbol,
+            @Parameter(description = "方向 1-买入 2-卖出") @RequestParam Integer direction,
+            @Parameter(description = "页码") @RequestParam Integer page,
+            @Parameter(description = "页大小") @RequestParam Integer size) {
+        PageResult<Map<String, Object>> orders = matchingEngine.getFullOrderBook(symbol, direction, page, size);
+        if (orders == null) {
+            return Result.error("订单簿不存在");
+        }
+        return Result.success(orders);
+    }
+
+    @Operation(summary = "交出订单簿快照")
+    @PostMapping("/handover")
+    public Result<List<TradeOrder>> handover(@Parameter(description = "交易对") @RequestParam String symbol) {
+        return Result.success(symbolOwnership.handover(symbol));
+    }
+
+    @Operation(summary = "调整交易对归属")
+    @PostMapping("/assign")
+    public Result<String> assign(
+            @Parameter(description = "交易对") @RequestParam String symbol,
+            @Parameter(description = "目标实例") @RequestParam String instanceId) {
+        symbolOwnership.assign(symbol, instanceId);
+        return Result.success("归属已更新");
+    }
+}
@@ -4,9 +4,12 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ppcex.trade.service.TradeDetailService;
 import com.ppcex.trade.engine.MatchingEngine;
+import com.ppcex.trade.shard.SymbolRouter;
+import com.ppcex.trade.dto.CursorPage;
 import com.ppcex.trade.dto.TradeDetailVO;
 import com.ppcex.common.response.Result;
 import com.ppcex.common.response.PageResult;
+import com.ppcex.common.util.UserContext;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -28,6 +31,9 @@ public class TradeController {
     @Autowired
     private MatchingEngine matchingEngine;
 
+    @Autowired
+    private SymbolRouter symbolRouter;
+
     @Operation(summary = "获取成交记录")
     @GetMapping("/trades")
     public Result<PageResult<TradeDetailVO>> getTrades(
@@ -51,6 +57,22 @@ public class TradeController {
         return Result.success(pageResult);
     }
 
+    @Operation(summary = "游标分页获取用户成交历史")
+    @GetMapping("/trades/history")
+    public Result<CursorPage<TradeDetailVO>> getTradeHistory(
+            @Parameter(description = "上一页返回的游标，首页不传") @RequestParam(required = false) String cursor,
+            @Parameter(description = "页大小") @RequestParam(defaultValue = "20") Integer size,
+            @Parameter(description = "交易对") @RequestParam(required = false) String symbol,
+            @Parameter(description = "开始时间") @RequestParam(required = false) String startTime,
+            @Parameter(description = "结束时间") @RequestParam(required = false) String endTime,
+            @Parameter(description = "是否返回总数") @RequestParam(defaultValue = "false") Boolean withTotal) {
+
+        Long userId = UserContext.getCurrentUserId();
+        CursorPage<TradeDetailVO> result = tradeDetailService.getTradeDetailsByCursor(userId, symbol, startTime, endTime,
+                cursor, Math.min(Math.max(size, 1), 100), withTotal);
+        return Result.success(result);
+    }
+
     @Operation(summary = "获取最近成交记录")
     @GetMapping("/trades/recent")
     public Result<List<TradeDetailVO>> getRecentTrades(
@@ -64,7 +86,7 @@ public class TradeController {
     @GetMapping("/trades/user")
     public Result<List<TradeDetailVO>> getUserTrades(
             @Parameter(description = "交易对") @RequestParam(required = false) String symbol) {
-        Long userId = com.ppcex.common.util.UserContext.getCurrentUserId();
+        Long userId = UserContext.getCurrentUserId();
         List<TradeDetailVO> trades = tradeDetailService.getUserTrades(userId, symbol);
         return Result.success(trades);
     }
@@ -80,6 +102,21 @@ public class TradeController {
         return Result.success(orderBook);
     }
 
+    @Operation(summary = "分页获取完整订单簿")
+    @GetMapping("/orderbook/{symbol}/full")
+    public Result<PageResult<Map<String, Object>>> getFullOrderBook(
+            @Parameter(description = "交易对") @PathVariable String symbol,
+            @Parameter(description = "方向 1-买入 2-卖出") @RequestParam(defaultValue = "1") Integer direction,
+            @Parameter(description = "页码") @RequestParam(defaultValue = "1") Integer page,
+            @Parameter(description = "页大小") @RequestParam(defaultValue = "100") Integer size) {
+        PageResult<Map<String, Object>> orders = symbolRouter.getFullOrderBook(
+                symbol, direction, Math.max(page, 1), Math.min(Math.max(size, 1), 500));
+        if (orders == null) {
+            return Result.error("订单簿不存在");
+        }
+        return Result.success(orders);
+    }
+
     @Operation(summary = "获取最新成交价格")
     @GetMapping("/price/{symbol}")
     public Result<BigDecimal> getLatestTradePrice(
@@ -0,0 +1,155 @@
+package com.ppcex.trade.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从库延迟探测：定期在主库写入本实例的心跳时间，再从从库读回，从库上可见的最新心跳即其已同步到的时间点。
+ * 心跳过旧或探测失败时视为不可用；用户最近一次写入早于该时间点时，其写入在从库上已可见。
+ * 配置了Redis时用户写入时间同时记在Redis中，多实例共享；各实例的时钟需同步，偏差应远小于延迟上限。
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private static final String UPDATE_BEAT = "UPDATE replica_heartbeat SET beat_millis = ? WHERE instance_id = ?";
+    private static final String INSERT_BEAT = "INSERT INTO replica_heartbeat (instance_id, beat_millis) VALUES (?, ?)";
+    private static final String SELECT_BEAT = "SELECT beat_millis FROM replica_heartbeat WHERE instance_id = ?";
+    private static final String WRITE_WATERMARK_PREFIX = "trade:replica:write:";
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final String instanceId;
+    private final long maxLagMillis;
+    private final long probeIntervalMillis;
+    private final StringRedisTemplate redisTemplate;
+
+    private final Map<Long, Long> lastWrites = new ConcurrentHashMap<>();
+    private volatile long replicatedUpTo = -1;
+    private ScheduledExecutorService prober;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, String instanceId,
+                             long maxLagMillis, long probeIntervalMillis) {
+        this(primary, replica, instanceId, maxLagMillis, probeIntervalMillis, null);
+    }
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, String instanceId,
+                             long maxLagMillis, long probeIntervalMillis, StringRedisTemplate redisTemplate) {
+        this.primary = primary;
+        this.replica = replica;
+        this.instanceId = instanceId;
+        this.maxLagMillis = maxLagMillis;
+        this.probeIntervalMillis = probeIntervalMillis;
+        this.redisTemplate = redisTemplate;
+    }
+
+    public void start() {
+        probe();
+        prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(this::probe, probeIntervalMillis, probeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (prober != null) {
+            prober.shutdownNow();
+        }
+    }
+
+    public void probe() {
+        long now = System.currentTimeMillis();
+        try {
+            writeBeat(now);
+            replicatedUpTo = readBeat();
+        } catch (SQLException e) {
+            replicatedUpTo = -1;
+            log.warn("从库延迟探测失败，读请求回落主库", e);
+        }
+        // 早于延迟上限的写入在从库可用时必然已同步，不再需要记录
+        lastWrites.values().removeIf(writeTime -> writeTime < now - maxLagMillis);
+    }
+
+    public boolean isHealthy() {
+        return replicatedUpTo >= 0 && System.currentTimeMillis() - replicatedUpTo <= maxLagMillis;
+    }
+
+    public long getLagMillis() {
+        return replicatedUpTo >= 0 ? System.currentTimeMillis() - replicatedUpTo : -1;
+    }
+
+    /**
+     * 记录用户在主库上提交了一次写入；早于延迟上限的写入无需再记，Redis中的记录随之过期
+     */
+    public void recordWrite(Long userId) {
+        long now = System.currentTimeMillis();
+        lastWrites.put(userId, now);
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.opsForValue().set(WRITE_WATERMARK_PREFIX + userId, Long.toString(now),
+                        maxLagMillis, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                log.warn("记录用户写入时间失败: userId={}", userId, e);
+            }
+        }
+    }
+
+    /**
+     * 用户最近的写入是否已同步到从库；取本实例和其他实例记录中较晚的写入时间，Redis不可用时视为未同步
+     */
+    public boolean hasCaughtUp(Long userId) {
+        long writeTime = lastWrites.getOrDefault(userId, -1L);
+        if (redisTemplate != null) {
+            try {
+                String shared = redisTemplate.opsForValue().get(WRITE_WATERMARK_PREFIX + userId);
+                if (shared != null) {
+                    writeTime = Math.max(writeTime, Long.parseLong(shared));
+                }
+            } catch (Exception e) {
+                log.warn("读取用户写入时间失败，读请求回落主库: userId={}", userId, e);
+                return false;
+            }
+        }
+        return writeTime < 0 || writeTime < replicatedUpTo;
+    }
+
+    private void writeBeat(long now) throws SQLException {
+        try (Connection connection = primary.getConnection()) {
+            int updated;
+            try (PreparedStatement statement = connection.prepareStatement(UPDATE_BEAT)) {
+                statement.setLong(1, now);
+                statement.setString(2, instanceId);
+                updated = statement.executeUpdate();
+            }
+            if (updated == 0) {
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_BEAT)) {
+                    statement.setString(1, instanceId);
+                    statement.setLong(2, now);
+                    statement.executeUpdate();
+                }
+            }
+        }
+    }
+
+    private long readBeat() throws SQLException {
+        try (Connection connection = replica.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_BEAT)) {
+            statement.setString(1, instanceId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : -1;
+            }
+        }
+    }
+}
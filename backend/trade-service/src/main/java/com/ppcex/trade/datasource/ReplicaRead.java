@@ -0,0 +1,21 @@
+package com.ppcex.trade.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注只读查询方法，方法内的查询走从库；从库延迟超限时回落主库
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReplicaRead {
+
+    /**
+     * 读己之写：当前用户最近的写入尚未同步到从库时改走主库
+     */
+    boolean readYourWrites() default false;
+}
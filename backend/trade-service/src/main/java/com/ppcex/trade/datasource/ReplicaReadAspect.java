@@ -0,0 +1,38 @@
+package com.ppcex.trade.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReplicaReadAspect {
+
+    @Around("@annotation(com.ppcex.trade.datasource.ReplicaRead)")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        // 注解按实现类方法解析，不依赖切点参数绑定，接口代理和编程式代理下行为一致
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        ReplicaRead replicaRead = AnnotationUtils.findAnnotation(
+                AopUtils.getMostSpecificMethod(method, joinPoint.getTarget().getClass()), ReplicaRead.class);
+        if (replicaRead == null) {
+            return joinPoint.proceed();
+        }
+        ReplicaRoutingContext.push(replicaRead.readYourWrites()
+                ? ReplicaRoutingContext.Route.READ_YOUR_WRITES
+                : ReplicaRoutingContext.Route.REPLICA);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReplicaRoutingContext.pop();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.ppcex.trade.datasource;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 当前线程的读库路由意图，支持嵌套调用，内层结束后恢复外层
+ */
+public final class ReplicaRoutingContext {
+
+    public enum Route {
+        REPLICA,
+        READ_YOUR_WRITES
+    }
+
+    private static final ThreadLocal<Deque<Route>> ROUTES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private ReplicaRoutingContext() {
+    }
+
+    public static void push(Route route) {
+        ROUTES.get().push(route);
+    }
+
+    public static void pop() {
+        Deque<Route> routes = ROUTES.get();
+        routes.poll();
+        if (routes.isEmpty()) {
+            ROUTES.remove();
+        }
+    }
+
+    public static Route current() {
+        return ROUTES.get().peek();
+    }
+}
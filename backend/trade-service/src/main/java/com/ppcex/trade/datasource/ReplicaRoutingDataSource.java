@@ -0,0 +1,50 @@
+package com.ppcex.trade.datasource;
+
+import com.ppcex.common.util.UserContext;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * 主从路由：只读事务和@ReplicaRead方法走从库，其余走主库；从库不可用或读己之写未同步时回落主库。
+ * 需包在LazyConnectionDataSourceProxy中使用，保证取连接时事务的只读标记已经设置。
+ * 用户在读写事务中取得的主库连接记为一次写入，供读己之写判断；没有用户上下文的后台写入由写入方自行调用
+ * ReplicaLagMonitor.recordWrite，未记录的异步写入（撮合成交、MQ回写）在延迟上限内最终可见。
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        ReplicaRoutingContext.Route route = ReplicaRoutingContext.current();
+        boolean inTransaction = TransactionSynchronizationManager.isActualTransactionActive();
+        boolean readOnly = inTransaction && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        Long userId = UserContext.getCurrentUserId();
+
+        if (route == null && !readOnly) {
+            if (inTransaction && userId != null) {
+                lagMonitor.recordWrite(userId);
+            }
+            return PRIMARY;
+        }
+        if (!lagMonitor.isHealthy()) {
+            return PRIMARY;
+        }
+        if (route == ReplicaRoutingContext.Route.READ_YOUR_WRITES && userId != null && !lagMonitor.hasCaughtUp(userId)) {
+            return PRIMARY;
+        }
+        return REPLICA;
+    }
+}
@@ -0,0 +1,24 @@
+package com.ppcex.trade.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页结果：nextCursor为空表示没有更多数据；total仅在请求时统计
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> list;
+
+    private String nextCursor;
+
+    private Boolean hasMore;
+
+    private Long total;
+}
@@ -0,0 +1,13 @@
+package com.ppcex.trade.dto;
+
+import lombok.Data;
+
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+
+@Data
+public class OrderBatchCancelDTO {
+
+    @NotEmpty(message = "订单编号列表不能为空")
+    private List<String> orderNos;
+}
@@ -0,0 +1,15 @@
+package com.ppcex.trade.dto;
+
+import lombok.Data;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+
+@Data
+public class OrderBatchCreateDTO {
+
+    @NotEmpty(message = "订单列表不能为空")
+    @Valid
+    private List<OrderCreateDTO> orders;
+}
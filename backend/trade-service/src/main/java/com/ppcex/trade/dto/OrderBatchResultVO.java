@@ -0,0 +1,30 @@
+package com.ppcex.trade.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量下单、撤单的单项结果，index对应请求列表中的位置
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBatchResultVO {
+
+    private Integer index;
+
+    private Boolean success;
+
+    private String message;
+
+    private OrderVO order;
+
+    public static OrderBatchResultVO success(int index, OrderVO order) {
+        return new OrderBatchResultVO(index, true, null, order);
+    }
+
+    public static OrderBatchResultVO failure(int index, String message) {
+        return new OrderBatchResultVO(index, false, message, null);
+    }
+}
@@ -0,0 +1,40 @@
+package com.ppcex.trade.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 单个订单在一批成交中的累计增量，按增量原子更新订单表
+ */
+@Data
+@NoArgsConstructor
+public class OrderExecutionDelta {
+
+    private Long orderId;
+
+    /**
+     * 撮合引擎生成的增量带订单编号，用于在去重表中记录该批成交已计入
+     */
+    private String orderNo;
+
+    private BigDecimal executedAmount;
+
+    private BigDecimal executedValue;
+
+    private BigDecimal fee;
+
+    public OrderExecutionDelta(Long orderId, BigDecimal executedAmount, BigDecimal executedValue, BigDecimal fee) {
+        this.orderId = orderId;
+        this.executedAmount = executedAmount;
+        this.executedValue = executedValue;
+        this.fee = fee;
+    }
+
+    public void add(BigDecimal amount, BigDecimal value, BigDecimal fee) {
+        this.executedAmount = this.executedAmount.add(amount);
+        this.executedValue = this.executedValue.add(value);
+        this.fee = this.fee.add(fee);
+    }
+}
@@ -0,0 +1,18 @@
+package com.ppcex.trade.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 一笔成交对一个订单的作用，成交消息按此去重
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderTradeKey {
+
+    private String tradeNo;
+
+    private String orderNo;
+}
@@ -0,0 +1,73 @@
+package com.ppcex.trade.dto;
+
+import com.ppcex.common.exception.BusinessException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 按(create_time, id)倒序翻页的位置，对外编码为不透明字符串
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageCursor {
+
+    private LocalDateTime createTime;
+
+    private Long id;
+
+    public String encode() {
+        String raw = createTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 空字符串表示第一页，返回null
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (Exception e) {
+            throw new BusinessException("无效的分页游标");
+        }
+    }
+
+    /**
+     * 合并两段各自按(create_time, id)倒序的结果，取前limit条。
+     * 归档在复制和删除之间时同一行会同时出现在两段中，按id只保留一条
+     */
+    public static <T> List<T> mergeDescending(List<T> first, List<T> second, Function<T, LocalDateTime> createTime,
+                                              Function<T, Long> id, int limit) {
+        List<T> merged = new ArrayList<>(first.size() + second.size());
+        Set<Long> seen = new HashSet<>(first.size() * 2);
+        for (T row : first) {
+            if (seen.add(id.apply(row))) {
+                merged.add(row);
+            }
+        }
+        for (T row : second) {
+            if (seen.add(id.apply(row))) {
+                merged.add(row);
+            }
+        }
+        merged.sort(Comparator.comparing(createTime).thenComparing(id).reversed());
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+}
@@ -0,0 +1,120 @@
+package com.ppcex.trade.engine;
+
+import com.ppcex.common.util.JsonUtil;
+import com.ppcex.trade.dto.OrderExecutionDelta;
+import com.ppcex.trade.entity.TradeDetail;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 成交重放日志：成交明细重试耗尽或成交量更新失败时，把整批成交和订单增量写成一行JSON并fsync，
+ * 由重放任务补写。只在失败路径上使用，所有操作串行执行。
+ */
+@Slf4j
+public class FailedTradeJournal {
+
+    private final Path path;
+    private final FileChannel channel;
+
+    public FailedTradeJournal(Path path) throws IOException {
+        this.path = path;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        // 崩溃时写了一半的末行截掉，后续追加从完整行之后开始
+        byte[] content = Files.readAllBytes(path);
+        int end = content.length;
+        while (end > 0 && content[end - 1] != '\n') {
+            end--;
+        }
+        if (end < content.length) {
+            log.warn("成交重放日志末行不完整，已截断: bytes={}", content.length - end);
+            channel.truncate(end);
+        }
+        channel.position(end);
+    }
+
+    public synchronized void append(FailedTradeBatch batch) throws IOException {
+        write(batch);
+        channel.force(false);
+    }
+
+    /**
+     * 按写入顺序重放，遇到第一个失败的批次即停止；已重放的批次从日志中移除，其余原样保留
+     */
+    public synchronized int replay(Predicate<FailedTradeBatch> replayer) throws IOException {
+        List<FailedTradeBatch> batches = readAll();
+        int replayed = 0;
+        while (replayed < batches.size() && replayer.test(batches.get(replayed))) {
+            replayed++;
+        }
+        if (replayed > 0) {
+            channel.truncate(0);
+            channel.position(0);
+            for (FailedTradeBatch batch : batches.subList(replayed, batches.size())) {
+                write(batch);
+            }
+            channel.force(false);
+        }
+        return replayed;
+    }
+
+    public synchronized int size() throws IOException {
+        return readAll().size();
+    }
+
+    private List<FailedTradeBatch> readAll() throws IOException {
+        List<FailedTradeBatch> batches = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                batches.add(JsonUtil.parseObject(line, FailedTradeBatch.class));
+            } catch (Exception e) {
+                log.warn("成交重放日志存在无法解析的记录，已跳过: {}", line);
+            }
+        }
+        return batches;
+    }
+
+    private void write(FailedTradeBatch batch) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((JsonUtil.toJsonString(batch) + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * trades为空表示成交明细已落库、只差订单成交量更新。
+     * batchNo为该批第一笔成交的编号，与订单编号一起记入去重表，重放时跳过已计入的订单增量
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FailedTradeBatch {
+        private String symbol;
+        private String batchNo;
+        private List<TradeDetail> trades;
+        private List<OrderExecutionDelta> deltas;
+    }
+}
@@ -1,24 +1,49 @@
 package com.ppcex.trade.engine;
 
+import com.ppcex.common.exception.BusinessException;
+import com.ppcex.common.response.PageResult;
+import com.ppcex.trade.config.MatchingProperties;
+import com.ppcex.trade.dto.OrderExecutionDelta;
+import com.ppcex.trade.dto.OrderTradeKey;
 import com.ppcex.trade.entity.TradeOrder;
 import com.ppcex.trade.entity.TradeDetail;
+import com.ppcex.trade.mapper.TradeDetailMapper;
+import com.ppcex.trade.mapper.TradeOrderMapper;
 import com.ppcex.trade.service.OrderService;
 import com.ppcex.trade.service.TradePairService;
 import com.ppcex.trade.service.TradeDetailService;
-import com.ppcex.common.util.SnowflakeIdUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.PriorityBlockingQueue;
-import java.util.concurrent.locks.ReentrantLock;
-
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 撮合引擎：每个交易对固定在一个撮合线程上单写者执行，内存撮合不持锁也不做I/O；
+ * 撮合结果交给同一交易对的落库线程按顺序写库和Redis，撮合线程不等待落库完成。
+ * 撮合线程队列满时拒绝新订单；订单簿已经变更后的落库和成交量更新队列满时阻塞上游，不丢弃成交。
+ * 成交量更新使用独立的线程组，成交明细写入线程不会等待正在等它的落库线程。
+ * 深度按价位聚合、只取前N档，变更的交易对按固定间隔合并写入Redis；完整订单簿通过分页接口按需读取。
+ * 成交明细重试耗尽或成交量更新失败时，整批成交和订单增量写入重放日志，由重放任务在一个事务内补写。
+ */
 @Slf4j
 @Component
 public class MatchingEngine {
@@ -35,95 +60,340 @@ public class MatchingEngine {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private MatchingProperties matchingProperties;
+
+    @Autowired
+    private TradeDetailWriter tradeDetailWriter;
+
+    @Autowired
+    private TradeDetailMapper tradeDetailMapper;
+
+    @Autowired
+    private TradeOrderMapper tradeOrderMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     private final Map<String, OrderBook> orderBooks = new ConcurrentHashMap<>();
-    private final ReentrantLock matchingLock = new ReentrantLock();
+
+    private SymbolExecutor matchingLanes;
+    private SymbolExecutor persistLanes;
+    private SymbolExecutor executionLanes;
+    private ScheduledExecutorService depthPublisher;
+    private ScheduledExecutorService tradeReplayer;
+    private FailedTradeJournal failedTradeJournal;
+    private final Set<String> dirtyDepthSymbols = ConcurrentHashMap.newKeySet();
 
     private static final String ORDER_BOOK_PREFIX = "orderbook:";
     private static final String TRADE_PRICE_PREFIX = "trade:price:";
 
+    @PostConstruct
+    public void init() throws IOException {
+        failedTradeJournal = new FailedTradeJournal(Paths.get(matchingProperties.getFailedTradeJournalPath()));
+        matchingLanes = new SymbolExecutor("trade-match", matchingProperties.getWorkerCount(),
+                matchingProperties.getQueueCapacity());
+        persistLanes = new SymbolExecutor("trade-persist", matchingProperties.getPersistWorkerCount(),
+                matchingProperties.getQueueCapacity(), true);
+        executionLanes = new SymbolExecutor("trade-execution", matchingProperties.getPersistWorkerCount(),
+                matchingProperties.getQueueCapacity(), true);
+        depthPublisher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "trade-depth-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = matchingProperties.getDepthPublishIntervalMillis();
+        depthPublisher.scheduleWithFixedDelay(this::publishDirtyDepth, interval, interval, TimeUnit.MILLISECONDS);
+        tradeReplayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "trade-replayer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int replayInterval = matchingProperties.getFailedTradeReplayIntervalSeconds();
+        tradeReplayer.scheduleWithFixedDelay(this::replayFailedTrades, 0, replayInterval, TimeUnit.SECONDS);
+        log.info("撮合引擎初始化完成: matchWorkers={}, persistWorkers={}, depthLevels={}",
+                matchingProperties.getWorkerCount(), matchingProperties.getPersistWorkerCount(),
+                matchingProperties.getDepthLevels());
+    }
+
     public void initializeOrderBook(String symbol) {
         if (!orderBooks.containsKey(symbol)) {
-            orderBooks.put(symbol, new OrderBook(symbol));
+            orderBooks.putIfAbsent(symbol, new OrderBook(symbol));
             log.info("初始化订单簿: {}", symbol);
         }
     }
 
-    public void processOrder(TradeOrder order) {
-        matchingLock.lock();
-        try {
-            String symbol = order.getSymbol();
-            OrderBook orderBook = orderBooks.computeIfAbsent(symbol, k -> new OrderBook(symbol));
+    /**
+     * 撮合完成即返回，成交明细和订单状态由落库线程异步写入
+     */
+    public CompletableFuture<Void> processOrder(TradeOrder order) {
+        String symbol = order.getSymbol();
+        return matchingLanes.submit(symbol, () -> match(order))
+                .thenAccept(result -> persistLanes.execute(symbol, () -> persist(result)));
+    }
+
+    public CompletableFuture<Void> cancelOrder(TradeOrder order) {
+        String symbol = order.getSymbol();
+        return matchingLanes.execute(symbol, () -> {
+            OrderBook orderBook = orderBooks.get(symbol);
+            if (orderBook != null && orderBook.removeOrder(order.getId()) != null) {
+                dirtyDepthSymbols.add(symbol);
+            }
+        });
+    }
+
+    /**
+     * 接管交易对：在撮合线程上取得挂单快照并装入新订单簿，之后提交到该交易对的订单都排在装载之后
+     */
+    public CompletableFuture<Integer> installOrderBook(String symbol, Supplier<List<TradeOrder>> snapshotLoader) {
+        return matchingLanes.submit(symbol, () -> {
+            List<TradeOrder> orders = snapshotLoader.get();
+            OrderBook orderBook = new OrderBook(symbol);
+            for (TradeOrder order : orders) {
+                orderBook.addOrder(order);
+            }
+            orderBooks.put(symbol, orderBook);
+            dirtyDepthSymbols.add(symbol);
+            log.info("订单簿已接管: symbol={}, orders={}", symbol, orders.size());
+            return orders.size();
+        });
+    }
 
-            if (order.getDirection() == 1) {
-                processBuyOrder(orderBook, order);
-            } else {
-                processSellOrder(orderBook, order);
+    /**
+     * 交出交易对：在撮合线程上摘下订单簿，按价格优先、时间优先返回全部挂单，此前提交的订单已包含在内
+     */
+    public CompletableFuture<List<TradeOrder>> releaseOrderBook(String symbol) {
+        return matchingLanes.submit(symbol, () -> {
+            OrderBook orderBook = orderBooks.remove(symbol);
+            List<TradeOrder> orders = new ArrayList<>();
+            if (orderBook != null) {
+                orderBook.getBuyLevels().forEach(level -> orders.addAll(level.getOrders()));
+                orderBook.getSellLevels().forEach(level -> orders.addAll(level.getOrders()));
             }
+            log.info("订单簿已交出: symbol={}, orders={}", symbol, orders.size());
+            return orders;
+        });
+    }
+
+    private MatchResult match(TradeOrder order) {
+        String symbol = order.getSymbol();
+        OrderBook orderBook = orderBooks.computeIfAbsent(symbol, k -> new OrderBook(symbol));
+        List<Fill> fills = new ArrayList<>();
 
-            updateOrderBookToRedis(orderBook);
-        } finally {
-            matchingLock.unlock();
+        if (order.getDirection() == 1) {
+            processBuyOrder(orderBook, order, fills);
+        } else {
+            processSellOrder(orderBook, order, fills);
         }
+
+        dirtyDepthSymbols.add(symbol);
+        return new MatchResult(orderBook, fills);
     }
 
-    private void processBuyOrder(OrderBook orderBook, TradeOrder buyOrder) {
+    private void processBuyOrder(OrderBook orderBook, TradeOrder buyOrder, List<Fill> fills) {
         BigDecimal remainingAmount = buyOrder.getAmount().subtract(buyOrder.getExecutedAmount());
 
-        while (remainingAmount.compareTo(BigDecimal.ZERO) > 0 && !orderBook.getSellOrders().isEmpty()) {
-            TradeOrder bestSellOrder = orderBook.getSellOrders().peek();
-            if (bestSellOrder == null || buyOrder.getPrice().compareTo(bestSellOrder.getPrice()) < 0) {
+        while (remainingAmount.compareTo(BigDecimal.ZERO) > 0) {
+            PriceLevel bestSellLevel = orderBook.getBestSellLevel();
+            if (bestSellLevel == null || buyOrder.getPrice().compareTo(bestSellLevel.getPrice()) < 0) {
                 break;
             }
+            TradeOrder bestSellOrder = bestSellLevel.peek();
 
             BigDecimal tradeAmount = remainingAmount.min(bestSellOrder.getAmount().subtract(bestSellOrder.getExecutedAmount()));
             BigDecimal tradePrice = bestSellOrder.getPrice();
 
-            executeTrade(orderBook, buyOrder, bestSellOrder, tradeAmount, tradePrice);
+            fills.add(fill(bestSellOrder, buyOrder, tradeAmount, tradePrice));
+            bestSellLevel.reduce(tradeAmount);
 
             remainingAmount = remainingAmount.subtract(tradeAmount);
 
             if (bestSellOrder.getAmount().subtract(bestSellOrder.getExecutedAmount()).compareTo(BigDecimal.ZERO) <= 0) {
-                orderBook.getSellOrders().poll();
+                orderBook.removeOrder(bestSellOrder.getId());
             }
         }
 
         if (remainingAmount.compareTo(BigDecimal.ZERO) > 0) {
-            orderBook.getBuyOrders().offer(buyOrder);
+            orderBook.addOrder(buyOrder);
         }
     }
 
-    private void processSellOrder(OrderBook orderBook, TradeOrder sellOrder) {
+    private void processSellOrder(OrderBook orderBook, TradeOrder sellOrder, List<Fill> fills) {
         BigDecimal remainingAmount = sellOrder.getAmount().subtract(sellOrder.getExecutedAmount());
 
-        while (remainingAmount.compareTo(BigDecimal.ZERO) > 0 && !orderBook.getBuyOrders().isEmpty()) {
-            TradeOrder bestBuyOrder = orderBook.getBuyOrders().peek();
-            if (bestBuyOrder == null || sellOrder.getPrice().compareTo(bestBuyOrder.getPrice()) > 0) {
+        while (remainingAmount.compareTo(BigDecimal.ZERO) > 0) {
+            PriceLevel bestBuyLevel = orderBook.getBestBuyLevel();
+            if (bestBuyLevel == null || sellOrder.getPrice().compareTo(bestBuyLevel.getPrice()) > 0) {
                 break;
             }
+            TradeOrder bestBuyOrder = bestBuyLevel.peek();
 
             BigDecimal tradeAmount = remainingAmount.min(bestBuyOrder.getAmount().subtract(bestBuyOrder.getExecutedAmount()));
             BigDecimal tradePrice = bestBuyOrder.getPrice();
 
-            executeTrade(orderBook, bestBuyOrder, sellOrder, tradeAmount, tradePrice);
+            fills.add(fill(bestBuyOrder, sellOrder, tradeAmount, tradePrice));
+            bestBuyLevel.reduce(tradeAmount);
 
             remainingAmount = remainingAmount.subtract(tradeAmount);
 
             if (bestBuyOrder.getAmount().subtract(bestBuyOrder.getExecutedAmount()).compareTo(BigDecimal.ZERO) <= 0) {
-                orderBook.getBuyOrders().poll();
+                orderBook.removeOrder(bestBuyOrder.getId());
             }
         }
 
         if (remainingAmount.compareTo(BigDecimal.ZERO) > 0) {
-            orderBook.getSellOrders().offer(sellOrder);
+            orderBook.addOrder(sellOrder);
         }
     }
 
-    private void executeTrade(OrderBook orderBook, TradeOrder buyOrder, TradeOrder sellOrder,
-                             BigDecimal amount, BigDecimal price) {
-        BigDecimal value = amount.multiply(price);
+    /**
+     * 在撮合线程上更新内存中的成交量，成交额和手续费在落库时计算
+     */
+    private Fill fill(TradeOrder makerOrder, TradeOrder takerOrder, BigDecimal amount, BigDecimal price) {
+        makerOrder.setExecutedAmount(makerOrder.getExecutedAmount().add(amount));
+        takerOrder.setExecutedAmount(takerOrder.getExecutedAmount().add(amount));
+        return new Fill(makerOrder.getId(), makerOrder.getOrderNo(), makerOrder.getUserId(),
+                takerOrder.getId(), takerOrder.getOrderNo(), takerOrder.getUserId(), amount, price, LocalDateTime.now());
+    }
+
+    private void persist(MatchResult result) {
+        OrderBook orderBook = result.getOrderBook();
+        String symbol = orderBook.getSymbol();
+        try {
+            if (!result.getFills().isEmpty()) {
+                com.ppcex.trade.dto.TradePairVO tradePair = tradePairService.getTradePairBySymbol(symbol);
+                BigDecimal feeRate = tradePair != null ? tradePair.getFeeRate() : new BigDecimal("0.001");
+                Map<Long, OrderExecutionDelta> deltas = new LinkedHashMap<>();
+                List<TradeDetail> tradeDetails = new ArrayList<>(result.getFills().size());
+                for (Fill fill : result.getFills()) {
+                    tradeDetails.add(executeTrade(orderBook, fill, feeRate, deltas));
+                }
+                String batchNo = tradeDetails.get(0).getTradeNo();
+                // 成交明细组提交确认后再更新订单成交量，订单表不会先于成交明细出现成交
+                tradeDetailWriter.write(tradeDetails).whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        log.error("成交明细落库失败，写入重放日志: symbol={}, trades={}, firstTradeNo={}",
+                                symbol, tradeDetails.size(), tradeDetails.get(0).getTradeNo(), e);
+                        journalFailedTrades(symbol, batchNo, tradeDetails, deltas);
+                        return;
+                    }
+                    try {
+                        executionLanes.execute(symbol, () -> applyExecutions(symbol, batchNo, deltas));
+                    } catch (RejectedExecutionException rejected) {
+                        // 停机期间成交量线程组已关闭，在当前线程上直接更新
+                        applyExecutions(symbol, batchNo, deltas);
+                    }
+                });
+                updateTradePrice(symbol, result.getFills().get(result.getFills().size() - 1).getPrice());
+            }
+        } catch (Exception e) {
+            log.error("撮合结果落库失败: symbol={}, fills={}", symbol, result.getFills().size(), e);
+        }
+    }
+
+    /**
+     * 订单增量与去重记录在同一个事务内提交；提交结果未知时写入重放日志，重放时按去重记录跳过已计入的订单
+     */
+    private void applyExecutions(String symbol, String batchNo, Map<Long, OrderExecutionDelta> deltas) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                tradeOrderMapper.insertAppliedTrades(appliedKeys(batchNo, deltas.values()));
+                orderService.applyExecutions(deltas.values());
+            });
+        } catch (Exception e) {
+            log.error("订单成交量更新失败，写入重放日志: symbol={}, orders={}", symbol, deltas.keySet(), e);
+            journalFailedTrades(symbol, batchNo, Collections.emptyList(), deltas);
+        }
+    }
+
+    private static List<OrderTradeKey> appliedKeys(String batchNo, Collection<OrderExecutionDelta> deltas) {
+        List<OrderTradeKey> keys = new ArrayList<>(deltas.size());
+        for (OrderExecutionDelta delta : deltas) {
+            keys.add(new OrderTradeKey(batchNo, delta.getOrderNo()));
+        }
+        return keys;
+    }
+
+    private void journalFailedTrades(String symbol, String batchNo, List<TradeDetail> tradeDetails,
+                                     Map<Long, OrderExecutionDelta> deltas) {
+        try {
+            failedTradeJournal.append(new FailedTradeJournal.FailedTradeBatch(symbol, batchNo, tradeDetails,
+                    new ArrayList<>(deltas.values())));
+        } catch (Exception e) {
+            // 最后的兜底：完整内容留在错误日志里供人工补录
+            log.error("成交重放日志写入失败: symbol={}, trades={}, deltas={}", symbol, tradeDetails, deltas.values(), e);
+        }
+    }
+
+    /**
+     * 补写重放日志：成交明细按trade_no唯一键INSERT IGNORE，与订单增量在同一个事务内提交。
+     * 成交明细全部已存在说明该批已补写过，不再重复累加增量；只有订单增量的批次按去重表跳过已计入的订单
+     */
+    private void replayFailedTrades() {
+        try {
+            int replayed = failedTradeJournal.replay(this::replayBatch);
+            if (replayed > 0) {
+                log.info("成交重放日志补写完成: batches={}", replayed);
+            }
+        } catch (Exception e) {
+            log.error("成交重放日志补写失败", e);
+        }
+    }
+
+    private boolean replayBatch(FailedTradeJournal.FailedTradeBatch batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<TradeDetail> trades = batch.getTrades();
+                if (!trades.isEmpty() && tradeDetailMapper.insertBatch(trades) == 0) {
+                    log.warn("成交明细已全部存在，跳过订单增量: symbol={}, firstTradeNo={}",
+                            batch.getSymbol(), trades.get(0).getTradeNo());
+                    return;
+                }
+                List<OrderExecutionDelta> pending = unappliedDeltas(batch);
+                if (pending.isEmpty()) {
+                    log.warn("订单增量已全部计入，跳过: symbol={}, batchNo={}", batch.getSymbol(), batch.getBatchNo());
+                    return;
+                }
+                if (batch.getBatchNo() != null) {
+                    tradeOrderMapper.insertAppliedTrades(appliedKeys(batch.getBatchNo(), pending));
+                }
+                for (OrderExecutionDelta delta : pending) {
+                    orderService.updateOrderExecution(delta.getOrderId(), delta.getExecutedAmount(),
+                            delta.getExecutedValue(), delta.getFee());
+                }
+            });
+            return true;
+        } catch (Exception e) {
+            log.warn("成交重放失败，下个周期重试: symbol={}", batch.getSymbol(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 原提交可能已成功、只是异常晚到，去重表中已有记录的订单增量不再累加；旧版本写入的批次没有batchNo，全部重放
+     */
+    private List<OrderExecutionDelta> unappliedDeltas(FailedTradeJournal.FailedTradeBatch batch) {
+        if (batch.getBatchNo() == null) {
+            return batch.getDeltas();
+        }
+        Set<String> appliedOrderNos = new HashSet<>();
+        for (OrderTradeKey key : tradeOrderMapper.selectAppliedTrades(List.of(batch.getBatchNo()))) {
+            appliedOrderNos.add(key.getOrderNo());
+        }
+        List<OrderExecutionDelta> pending = new ArrayList<>(batch.getDeltas().size());
+        for (OrderExecutionDelta delta : batch.getDeltas()) {
+            if (!appliedOrderNos.contains(delta.getOrderNo())) {
+                pending.add(delta);
+            }
+        }
+        return pending;
+    }
 
-        com.ppcex.trade.dto.TradePairVO tradePair = tradePairService.getTradePairBySymbol(orderBook.getSymbol());
-        BigDecimal feeRate = tradePair != null ? tradePair.getFeeRate() : new BigDecimal("0.001");
+    private TradeDetail executeTrade(OrderBook orderBook, Fill fill, BigDecimal feeRate,
+                                     Map<Long, OrderExecutionDelta> deltas) {
+        BigDecimal amount = fill.getAmount();
+        BigDecimal price = fill.getPrice();
+        BigDecimal value = amount.multiply(price);
 
         BigDecimal makerFee = value.multiply(feeRate).setScale(8, RoundingMode.HALF_UP);
         BigDecimal takerFee = value.multiply(feeRate).setScale(8, RoundingMode.HALF_UP);
@@ -131,60 +401,144 @@ public class MatchingEngine {
         TradeDetail tradeDetail = new TradeDetail();
         tradeDetail.setTradeNo(tradeDetailService.generateTradeNo());
         tradeDetail.setSymbol(orderBook.getSymbol());
-        tradeDetail.setMakerOrderId(sellOrder.getId());
-        tradeDetail.setTakerOrderId(buyOrder.getId());
-        tradeDetail.setMakerUserId(sellOrder.getUserId());
-        tradeDetail.setTakerUserId(buyOrder.getUserId());
+        tradeDetail.setMakerOrderId(fill.getMakerOrderId());
+        tradeDetail.setTakerOrderId(fill.getTakerOrderId());
+        tradeDetail.setMakerUserId(fill.getMakerUserId());
+        tradeDetail.setTakerUserId(fill.getTakerUserId());
         tradeDetail.setPrice(price);
         tradeDetail.setAmount(amount);
         tradeDetail.setValue(value);
         tradeDetail.setMakerFee(makerFee);
         tradeDetail.setTakerFee(takerFee);
-        tradeDetail.setCreateTime(LocalDateTime.now());
+        tradeDetail.setCreateTime(fill.getTradeTime());
 
-        tradeDetailService.createTradeDetail(tradeDetail);
-
-        orderService.updateOrderExecution(buyOrder.getId(), amount, value, takerFee);
-        orderService.updateOrderExecution(sellOrder.getId(), amount, value, makerFee);
+        accumulate(deltas, fill.getTakerOrderId(), fill.getTakerOrderNo(), amount, value, takerFee);
+        accumulate(deltas, fill.getMakerOrderId(), fill.getMakerOrderNo(), amount, value, makerFee);
 
         orderBook.addTrade(tradeDetail);
-        updateTradePrice(orderBook.getSymbol(), price);
 
         log.info("撮合成功: symbol={}, amount={}, price={}, makerOrderId={}, takerOrderId={}",
-                orderBook.getSymbol(), amount, price, sellOrder.getId(), buyOrder.getId());
+                orderBook.getSymbol(), amount, price, fill.getMakerOrderId(), fill.getTakerOrderId());
+        return tradeDetail;
+    }
+
+    /**
+     * 同一批成交中多次成交的订单合并为一条增量，吃单方扫多档时只更新一次
+     */
+    private void accumulate(Map<Long, OrderExecutionDelta> deltas, Long orderId, String orderNo,
+                            BigDecimal amount, BigDecimal value, BigDecimal fee) {
+        OrderExecutionDelta delta = deltas.get(orderId);
+        if (delta == null) {
+            delta = new OrderExecutionDelta(orderId, amount, value, fee);
+            delta.setOrderNo(orderNo);
+            deltas.put(orderId, delta);
+        } else {
+            delta.add(amount, value, fee);
+        }
+    }
+
+    /**
+     * 每个周期只处理有变更的交易对：在撮合线程上生成前N档聚合深度，在落库线程上写入Redis
+     */
+    private void publishDirtyDepth() {
+        for (String symbol : new ArrayList<>(dirtyDepthSymbols)) {
+            dirtyDepthSymbols.remove(symbol);
+            OrderBook orderBook = orderBooks.get(symbol);
+            if (orderBook == null) {
+                continue;
+            }
+            try {
+                matchingLanes.submit(symbol, () -> buildDepth(orderBook, matchingProperties.getDepthLevels()))
+                        .thenAccept(depth -> persistLanes.execute(symbol, () -> writeDepth(symbol, depth)));
+            } catch (Exception e) {
+                dirtyDepthSymbols.add(symbol);
+                log.warn("深度发布任务提交失败，下个周期重试: symbol={}", symbol, e);
+            }
+        }
     }
 
-    private void updateOrderBookToRedis(OrderBook orderBook) {
-        String key = ORDER_BOOK_PREFIX + orderBook.getSymbol();
+    private Map<String, Object> buildDepth(OrderBook orderBook, int levels) {
+        Map<String, Object> depth = new HashMap<>();
+        depth.put("symbol", orderBook.getSymbol());
+        depth.put("timestamp", System.currentTimeMillis());
+        depth.put("buyOrders", aggregateLevels(orderBook.getBuyLevels(), levels));
+        depth.put("sellOrders", aggregateLevels(orderBook.getSellLevels(), levels));
+        return depth;
+    }
 
-        Map<String, Object> orderBookData = new HashMap<>();
-        orderBookData.put("symbol", orderBook.getSymbol());
-        orderBookData.put("timestamp", System.currentTimeMillis());
+    private List<Map<String, Object>> aggregateLevels(Collection<PriceLevel> levels, int limit) {
+        List<Map<String, Object>> result = new ArrayList<>(Math.min(limit, levels.size()));
+        for (PriceLevel level : levels) {
+            if (result.size() >= limit) {
+                break;
+            }
+            Map<String, Object> levelData = new HashMap<>();
+            levelData.put("price", level.getPrice());
+            levelData.put("amount", level.getTotalAmount());
+            levelData.put("orderCount", level.getOrderCount());
+            result.add(levelData);
+        }
+        return result;
+    }
 
-        List<Map<String, Object>> buyOrders = new ArrayList<>();
-        for (TradeOrder order : orderBook.getBuyOrders()) {
-            Map<String, Object> orderData = new HashMap<>();
-            orderData.put("price", order.getPrice());
-            orderData.put("amount", order.getAmount().subtract(order.getExecutedAmount()));
-            buyOrders.add(orderData);
+    private void writeDepth(String symbol, Map<String, Object> depth) {
+        try {
+            redisTemplate.opsForValue().set(ORDER_BOOK_PREFIX + symbol, depth, 1, TimeUnit.MINUTES);
+        } catch (Exception e) {
+            log.error("深度写入Redis失败: symbol={}", symbol, e);
         }
-        orderBookData.put("buyOrders", buyOrders);
+    }
 
-        List<Map<String, Object>> sellOrders = new ArrayList<>();
-        for (TradeOrder order : orderBook.getSellOrders()) {
-            Map<String, Object> orderData = new HashMap<>();
-            orderData.put("price", order.getPrice());
-            orderData.put("amount", order.getAmount().subtract(order.getExecutedAmount()));
-            sellOrders.add(orderData);
+    /**
+     * 按价格优先、时间优先顺序分页读取一侧的完整挂单，在撮合线程上生成
+     */
+    public PageResult<Map<String, Object>> getFullOrderBook(String symbol, Integer direction, int page, int size) {
+        OrderBook orderBook = orderBooks.get(symbol);
+        if (orderBook == null) {
+            return null;
         }
-        orderBookData.put("sellOrders", sellOrders);
+        try {
+            return matchingLanes.submit(symbol, () -> pageOrders(orderBook, direction, page, size))
+                    .get(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("获取订单簿失败");
+        } catch (Exception e) {
+            log.error("获取完整订单簿失败: symbol={}", symbol, e);
+            throw new BusinessException("获取订单簿失败");
+        }
+    }
 
-        redisTemplate.opsForValue().set(key, orderBookData, 1, java.util.concurrent.TimeUnit.MINUTES);
+    private PageResult<Map<String, Object>> pageOrders(OrderBook orderBook, Integer direction, int page, int size) {
+        Collection<PriceLevel> levels = direction == 1 ? orderBook.getBuyLevels() : orderBook.getSellLevels();
+        long offset = (long) (page - 1) * size;
+        long total = 0;
+        List<Map<String, Object>> records = new ArrayList<>(size);
+        for (PriceLevel level : levels) {
+            total += level.getOrderCount();
+            if (records.size() >= size || total <= offset) {
+                continue;
+            }
+            long index = total - level.getOrderCount();
+            for (TradeOrder order : level.getOrders()) {
+                if (index++ < offset) {
+                    continue;
+                }
+                if (records.size() >= size) {
+                    break;
+                }
+                Map<String, Object> orderData = new HashMap<>();
+                orderData.put("price", order.getPrice());
+                orderData.put("amount", order.getAmount().subtract(order.getExecutedAmount()));
+                records.add(orderData);
+            }
+        }
+        return PageResult.of(records, (long) page, (long) size, total);
     }
 
     private void updateTradePrice(String symbol, BigDecimal price) {
         String key = TRADE_PRICE_PREFIX + symbol;
-        redisTemplate.opsForValue().set(key, price.toString(), 5, java.util.concurrent.TimeUnit.MINUTES);
+        redisTemplate.opsForValue().set(key, price.toString(), 5, TimeUnit.MINUTES);
     }
 
     public Map<String, Object> getOrderBook(String symbol) {
@@ -198,37 +552,54 @@ public class MatchingEngine {
         return priceStr != null ? new BigDecimal(priceStr) : null;
     }
 
-    public void cancelOrder(TradeOrder order) {
-        matchingLock.lock();
-        try {
-            OrderBook orderBook = orderBooks.get(order.getSymbol());
-            if (orderBook != null) {
-                if (order.getDirection() == 1) {
-                    orderBook.getBuyOrders().remove(order);
-                } else {
-                    orderBook.getSellOrders().remove(order);
-                }
-                updateOrderBookToRedis(orderBook);
-            }
-        } finally {
-            matchingLock.unlock();
-        }
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        depthPublisher.shutdownNow();
+        // 不中断重放线程：中断会关闭重放日志的文件通道
+        tradeReplayer.shutdown();
+        tradeReplayer.awaitTermination(5, TimeUnit.SECONDS);
+        matchingLanes.shutdown(5, TimeUnit.SECONDS);
+        persistLanes.shutdown(30, TimeUnit.SECONDS);
+        executionLanes.shutdown(30, TimeUnit.SECONDS);
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class Fill {
+        private Long makerOrderId;
+        private String makerOrderNo;
+        private Long makerUserId;
+        private Long takerOrderId;
+        private String takerOrderNo;
+        private Long takerUserId;
+        private BigDecimal amount;
+        private BigDecimal price;
+        private LocalDateTime tradeTime;
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class MatchResult {
+        private OrderBook orderBook;
+        private List<Fill> fills;
     }
 
+    /**
+     * 价位订单簿：买卖两侧按价格有序，价位内按到达顺序；订单ID索引到所在价位，撤单不扫描整个订单簿。
+     * 挂单结构只在撮合线程上读写，成交记录只在落库线程上读写。
+     */
     public static class OrderBook {
         private final String symbol;
-        private final PriorityBlockingQueue<TradeOrder> buyOrders;
-        private final PriorityBlockingQueue<TradeOrder> sellOrders;
+        private final TreeMap<BigDecimal, PriceLevel> buyLevels;
+        private final TreeMap<BigDecimal, PriceLevel> sellLevels;
+        private final Map<Long, PriceLevel> orderIndex;
         private final List<TradeDetail> recentTrades;
 
         public OrderBook(String symbol) {
             this.symbol = symbol;
-            this.buyOrders = new PriorityBlockingQueue<>(1000,
-                Comparator.comparing(TradeOrder::getPrice).reversed()
-                    .thenComparing(TradeOrder::getCreateTime));
-            this.sellOrders = new PriorityBlockingQueue<>(1000,
-                Comparator.comparing(TradeOrder::getPrice)
-                    .thenComparing(TradeOrder::getCreateTime));
+            this.buyLevels = new TreeMap<>(Comparator.reverseOrder());
+            this.sellLevels = new TreeMap<>();
+            this.orderIndex = new HashMap<>();
             this.recentTrades = new ArrayList<>();
         }
 
@@ -236,12 +607,59 @@ public class MatchingEngine {
             return symbol;
         }
 
-        public PriorityBlockingQueue<TradeOrder> getBuyOrders() {
-            return buyOrders;
+        public void addOrder(TradeOrder order) {
+            TreeMap<BigDecimal, PriceLevel> levels = order.getDirection() == 1 ? buyLevels : sellLevels;
+            PriceLevel level = levels.computeIfAbsent(order.getPrice(), PriceLevel::new);
+            level.add(order);
+            orderIndex.put(order.getId(), level);
+        }
+
+        /**
+         * 按订单ID删除，价位为空时移除价位
+         */
+        public TradeOrder removeOrder(Long orderId) {
+            PriceLevel level = orderIndex.remove(orderId);
+            if (level == null) {
+                return null;
+            }
+            TradeOrder order = level.remove(orderId);
+            if (level.isEmpty()) {
+                TreeMap<BigDecimal, PriceLevel> levels = order.getDirection() == 1 ? buyLevels : sellLevels;
+                levels.remove(level.getPrice());
+            }
+            return order;
+        }
+
+        public boolean containsOrder(Long orderId) {
+            return orderIndex.containsKey(orderId);
+        }
+
+        public PriceLevel getBestBuyLevel() {
+            Map.Entry<BigDecimal, PriceLevel> entry = buyLevels.firstEntry();
+            return entry != null ? entry.getValue() : null;
+        }
+
+        public PriceLevel getBestSellLevel() {
+            Map.Entry<BigDecimal, PriceLevel> entry = sellLevels.firstEntry();
+            return entry != null ? entry.getValue() : null;
+        }
+
+        /**
+         * 买盘价位，价格从高到低
+         */
+        public Collection<PriceLevel> getBuyLevels() {
+            return buyLevels.values();
+        }
+
+        /**
+         * 卖盘价位，价格从低到高
+         */
+        public Collection<PriceLevel> getSellLevels() {
+            return sellLevels.values();
         }
 
-        public PriorityBlockingQueue<TradeOrder> getSellOrders() {
-            return sellOrders;
+        public int getOrderCount() {
+            return orderIndex.size();
         }
 
         public List<TradeDetail> getRecentTrades() {
@@ -255,4 +673,4 @@ public class MatchingEngine {
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,76 @@
+package com.ppcex.trade.engine;
+
+import com.ppcex.trade.entity.TradeOrder;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单个价位：按到达顺序保存挂单，按订单ID可O(1)删除，并维护该价位剩余挂单量合计。
+ * 只在所属交易对的撮合线程上访问，不做同步。
+ */
+public class PriceLevel {
+
+    private final BigDecimal price;
+    private final LinkedHashMap<Long, TradeOrder> orders = new LinkedHashMap<>();
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    public PriceLevel(BigDecimal price) {
+        this.price = price;
+    }
+
+    public void add(TradeOrder order) {
+        orders.put(order.getId(), order);
+        totalAmount = totalAmount.add(remainingOf(order));
+    }
+
+    public TradeOrder remove(Long orderId) {
+        TradeOrder order = orders.remove(orderId);
+        if (order != null) {
+            totalAmount = totalAmount.subtract(remainingOf(order));
+        }
+        return order;
+    }
+
+    /**
+     * 价位内最早到达的订单
+     */
+    public TradeOrder peek() {
+        Iterator<Map.Entry<Long, TradeOrder>> iterator = orders.entrySet().iterator();
+        return iterator.hasNext() ? iterator.next().getValue() : null;
+    }
+
+    /**
+     * 挂单部分成交后扣减价位合计，订单自身的已成交量由调用方更新
+     */
+    public void reduce(BigDecimal amount) {
+        totalAmount = totalAmount.subtract(amount);
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public int getOrderCount() {
+        return orders.size();
+    }
+
+    public boolean isEmpty() {
+        return orders.isEmpty();
+    }
+
+    public Collection<TradeOrder> getOrders() {
+        return orders.values();
+    }
+
+    private static BigDecimal remainingOf(TradeOrder order) {
+        return order.getAmount().subtract(order.getExecutedAmount());
+    }
+}
@@ -0,0 +1,76 @@
+package com.ppcex.trade.engine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 按symbol哈希分配的单线程执行器组：同一交易对的任务始终在同一线程上按提交顺序执行，
+ * 不同交易对可并行，单线程内无需加锁。
+ * 队列满时默认拒绝提交；blockWhenFull为true时提交方阻塞到队列有空位，用于不能丢弃的下游任务。
+ */
+public class SymbolExecutor {
+
+    /**
+     * 队列满时阻塞提交线程；执行器已关闭时仍然拒绝，避免在关闭后无限等待
+     */
+    private static final RejectedExecutionHandler BLOCK_WHEN_FULL = (task, executor) -> {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("执行器已关闭");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("等待队列空位时被中断", e);
+        }
+    };
+
+    private final ExecutorService[] lanes;
+
+    public SymbolExecutor(String name, int laneCount, int queueCapacity) {
+        this(name, laneCount, queueCapacity, false);
+    }
+
+    public SymbolExecutor(String name, int laneCount, int queueCapacity, boolean blockWhenFull) {
+        this.lanes = new ExecutorService[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            String threadName = name + "-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity),
+                    r -> {
+                        Thread thread = new Thread(r, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    blockWhenFull ? BLOCK_WHEN_FULL : new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(String symbol, Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, laneOf(symbol));
+    }
+
+    public CompletableFuture<Void> execute(String symbol, Runnable task) {
+        return CompletableFuture.runAsync(task, laneOf(symbol));
+    }
+
+    private ExecutorService laneOf(String symbol) {
+        return lanes[Math.floorMod(symbol.hashCode(), lanes.length)];
+    }
+
+    public void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ExecutorService lane : lanes) {
+            lane.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.ppcex.trade.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮：第0层每槽一个tick，上一层每槽跨度为下一层一整圈，超出本层范围的任务放到上层，
+ * 上层槽开始时整体下放到下层。加入为O(1)，推进时只处理当前tick对应的槽；任务不早于到期时间触发，最多晚一个tick。
+ * 非线程安全，由调用方串行访问。
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<Level<T>> levels = new ArrayList<>();
+
+    private long currentTime;
+    private int size;
+
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTime = startMillis - Math.floorMod(startMillis, tickMillis);
+        levels.add(new Level<>(tickMillis, wheelSize));
+    }
+
+    /**
+     * 加入任务；到期时间早于当前tick时不加入并返回false，由调用方立即处理
+     */
+    public boolean add(long deadlineMillis, T item) {
+        if (deadlineMillis < currentTime) {
+            return false;
+        }
+        insert(new Entry<>(deadlineMillis, item));
+        size++;
+        return true;
+    }
+
+    /**
+     * 推进到nowMillis，依次交出期间到期的任务
+     */
+    public void advance(long nowMillis, Consumer<T> expired) {
+        while (currentTime + tickMillis <= nowMillis) {
+            // 自上而下下放，上层下放到下层当前槽的任务在同一tick内继续下放
+            for (int i = levels.size() - 1; i >= 1; i--) {
+                Level<T> level = levels.get(i);
+                if (Math.floorMod(currentTime, level.span) == 0) {
+                    for (Entry<T> entry : level.take(currentTime)) {
+                        insert(entry);
+                    }
+                }
+            }
+            for (Entry<T> entry : levels.get(0).take(currentTime)) {
+                size--;
+                expired.accept(entry.item);
+            }
+            currentTime += tickMillis;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void insert(Entry<T> entry) {
+        for (int i = 0; ; i++) {
+            if (i == levels.size()) {
+                Level<T> lower = levels.get(i - 1);
+                levels.add(new Level<>(lower.span * wheelSize, wheelSize));
+            }
+            Level<T> level = levels.get(i);
+            long levelStart = currentTime - Math.floorMod(currentTime, level.span);
+            if (entry.deadline < levelStart + level.span * wheelSize) {
+                level.slotOf(entry.deadline).add(entry);
+                return;
+            }
+        }
+    }
+
+    private static class Level<T> {
+        private final long span;
+        private final List<Entry<T>>[] slots;
+
+        @SuppressWarnings("unchecked")
+        Level(long span, int wheelSize) {
+            this.span = span;
+            this.slots = new List[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                slots[i] = new ArrayList<>();
+            }
+        }
+
+        List<Entry<T>> slotOf(long time) {
+            return slots[(int) Math.floorMod(time / span, (long) slots.length)];
+        }
+
+        List<Entry<T>> take(long time) {
+            int index = (int) Math.floorMod(time / span, (long) slots.length);
+            List<Entry<T>> entries = slots[index];
+            if (entries.isEmpty()) {
+                return entries;
+            }
+            slots[index] = new ArrayList<>();
+            return entries;
+        }
+    }
+
+    private static class Entry<T> {
+        private final long deadline;
+        private final T item;
+
+        Entry(long deadline, T item) {
+            this.deadline = deadline;
+            this.item = item;
+        }
+    }
+}
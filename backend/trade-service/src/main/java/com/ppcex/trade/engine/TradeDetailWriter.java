@@ -0,0 +1,185 @@
+package com.ppcex.trade.engine;
+
+import com.ppcex.trade.config.MatchingProperties;
+import com.ppcex.trade.entity.TradeDetail;
+import com.ppcex.trade.mapper.TradeDetailMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 成交明细组提交：各落库线程提交的成交先进入缓冲，写入线程在凑满行数上限或首条等待超时时合并为多行插入。
+ * 缓冲满时提交方阻塞等待，不丢弃成交。
+ * 返回的Future在插入语句提交后才完成，调用方据此继续后续写库；插入失败时按退避重试，重试耗尽后异常完成，
+ * 由调用方把成交写入重放日志。
+ */
+@Slf4j
+@Component
+public class TradeDetailWriter {
+
+    @Autowired
+    private TradeDetailMapper tradeDetailMapper;
+
+    @Autowired
+    private MatchingProperties matchingProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final int MAX_RETRIES = 3;
+
+    private BlockingQueue<PendingWrite> buffer;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private DistributionSummary flushSize;
+    private Timer flushLatency;
+
+    @PostConstruct
+    public void init() {
+        buffer = new ArrayBlockingQueue<>(matchingProperties.getTradeBufferCapacity());
+        flushSize = DistributionSummary.builder("trade.detail.flush.size")
+                .description("单次组提交写入的成交行数")
+                .register(meterRegistry);
+        flushLatency = Timer.builder("trade.detail.flush.latency")
+                .description("单次组提交的插入耗时")
+                .register(meterRegistry);
+        Gauge.builder("trade.detail.buffer.pending", buffer, BlockingQueue::size)
+                .description("等待组提交的批次数")
+                .register(meterRegistry);
+
+        running = true;
+        writerThread = new Thread(this::writeLoop, "trade-detail-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public CompletableFuture<Void> write(List<TradeDetail> details) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (details.isEmpty()) {
+            future.complete(null);
+            return future;
+        }
+        if (!running) {
+            future.completeExceptionally(new IllegalStateException("成交明细写入线程已停止"));
+            return future;
+        }
+        try {
+            buffer.put(new PendingWrite(details, future));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void writeLoop() {
+        int maxRows = matchingProperties.getTradeFlushMaxRows();
+        long maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(matchingProperties.getTradeFlushMaxDelayMillis());
+        List<PendingWrite> batch = new ArrayList<>();
+
+        while (running || !buffer.isEmpty()) {
+            try {
+                PendingWrite first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                int rows = first.getDetails().size();
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (rows < maxRows) {
+                    PendingWrite next = buffer.poll();
+                    if (next == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0 || (next = buffer.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+                            break;
+                        }
+                    }
+                    batch.add(next);
+                    rows += next.getDetails().size();
+                }
+                flush(batch, rows, maxRows);
+            } catch (InterruptedException e) {
+                for (PendingWrite pending : batch) {
+                    pending.getFuture().completeExceptionally(e);
+                }
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("成交明细写入线程异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch, int rows, int maxRows) throws InterruptedException {
+        List<TradeDetail> allRows = new ArrayList<>(rows);
+        for (PendingWrite pending : batch) {
+            allRows.addAll(pending.getDetails());
+        }
+
+        Exception failure = null;
+        for (int attempt = 0; attempt <= MAX_RETRIES; attempt++) {
+            if (attempt > 0) {
+                Thread.sleep(50L << attempt);
+            }
+            try {
+                long start = System.nanoTime();
+                for (int from = 0; from < allRows.size(); from += maxRows) {
+                    tradeDetailMapper.insertBatch(allRows.subList(from, Math.min(from + maxRows, allRows.size())));
+                }
+                flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                flushSize.record(rows);
+                failure = null;
+                break;
+            } catch (Exception e) {
+                failure = e;
+                log.warn("成交明细批量写入失败: rows={}, attempt={}", rows, attempt + 1, e);
+            }
+        }
+
+        for (PendingWrite pending : batch) {
+            if (failure == null) {
+                pending.getFuture().complete(null);
+            } else {
+                pending.getFuture().completeExceptionally(failure);
+            }
+        }
+        if (failure != null) {
+            log.error("成交明细写入重试耗尽: rows={}, firstTradeNo={}", rows, allRows.get(0).getTradeNo(), failure);
+        }
+    }
+
+    /**
+     * 停止接收新提交，写完缓冲中已有的成交后退出
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        log.info("成交明细写入线程已停止: remaining={}", buffer.size());
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class PendingWrite {
+        private List<TradeDetail> details;
+        private CompletableFuture<Void> future;
+    }
+}
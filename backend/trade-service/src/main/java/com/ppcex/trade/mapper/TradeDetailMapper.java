@@ -8,6 +8,7 @@ import com.ppcex.trade.dto.TradeDetailVO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -17,7 +18,24 @@ public interface TradeDetailMapper extends BaseMapper<TradeDetail> {
                                                   @Param("symbol") String symbol, @Param("startTime") String startTime,
                                                   @Param("endTime") String endTime);
 
+    List<TradeDetailVO> selectTradeDetailVOByCursor(@Param("userId") Long userId, @Param("symbol") String symbol,
+                                                    @Param("startTime") String startTime, @Param("endTime") String endTime,
+                                                    @Param("cursorTime") LocalDateTime cursorTime, @Param("cursorId") Long cursorId,
+                                                    @Param("limit") Integer limit, @Param("archive") boolean archive);
+
+    Long countTradeDetails(@Param("userId") Long userId, @Param("symbol") String symbol,
+                           @Param("startTime") String startTime, @Param("endTime") String endTime,
+                           @Param("archive") boolean archive);
+
     List<TradeDetailVO> selectRecentTradesBySymbol(@Param("symbol") String symbol, @Param("limit") Integer limit);
 
     List<TradeDetailVO> selectUserTrades(@Param("userId") Long userId, @Param("symbol") String symbol);
+
+    int insertBatch(@Param("list") List<TradeDetail> list);
+
+    List<Long> selectArchivableTradeIds(@Param("before") LocalDateTime before, @Param("limit") Integer limit);
+
+    int copyTradesToArchive(@Param("ids") List<Long> ids);
+
+    int deleteArchivedTrades(@Param("ids") List<Long> ids);
 }
\ No newline at end of file
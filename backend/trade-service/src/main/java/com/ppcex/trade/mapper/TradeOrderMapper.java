@@ -4,10 +4,14 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ppcex.trade.entity.TradeOrder;
+import com.ppcex.trade.dto.OrderExecutionDelta;
+import com.ppcex.trade.dto.OrderTradeKey;
 import com.ppcex.trade.dto.OrderVO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -16,9 +20,48 @@ public interface TradeOrderMapper extends BaseMapper<TradeOrder> {
     IPage<OrderVO> selectOrderVOPage(Page<TradeOrder> page, @Param("userId") Long userId, @Param("symbol") String symbol,
                                      @Param("status") Integer status, @Param("orderType") Integer orderType);
 
+    List<OrderVO> selectOrderVOByCursor(@Param("userId") Long userId, @Param("symbol") String symbol,
+                                        @Param("status") Integer status, @Param("orderType") Integer orderType,
+                                        @Param("cursorTime") LocalDateTime cursorTime, @Param("cursorId") Long cursorId,
+                                        @Param("limit") Integer limit, @Param("archive") boolean archive);
+
+    Long countOrders(@Param("userId") Long userId, @Param("symbol") String symbol,
+                     @Param("status") Integer status, @Param("orderType") Integer orderType,
+                     @Param("archive") boolean archive);
+
     OrderVO selectOrderVOByOrderNo(@Param("orderNo") String orderNo);
 
+    OrderVO selectArchivedOrderVOByOrderNo(@Param("orderNo") String orderNo);
+
+    List<String> selectArchivedOrderNos(@Param("orderNos") Collection<String> orderNos);
+
     List<OrderVO> selectActiveOrdersBySymbol(@Param("symbol") String symbol);
 
     List<OrderVO> selectUserActiveOrders(@Param("userId") Long userId);
+
+    List<OrderVO> selectAllActiveOrders();
+
+    List<OrderVO> selectOrderVOsByIds(@Param("ids") Collection<Long> ids);
+
+    int insertBatch(@Param("list") List<TradeOrder> list);
+
+    List<TradeOrder> selectExpirableOrders(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    List<TradeOrder> selectCancellableOrders(@Param("ids") List<Long> ids);
+
+    int cancelOrders(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    List<OrderTradeKey> selectAppliedTrades(@Param("tradeNos") Collection<String> tradeNos);
+
+    int insertAppliedTrades(@Param("list") List<OrderTradeKey> list);
+
+    int deleteAppliedTradesBefore(@Param("before") LocalDateTime before, @Param("limit") Integer limit);
+
+    List<Long> selectArchivableOrderIds(@Param("before") LocalDateTime before, @Param("limit") Integer limit);
+
+    int copyOrdersToArchive(@Param("ids") List<Long> ids);
+
+    int deleteArchivedOrders(@Param("ids") List<Long> ids);
+
+    int applyExecution(OrderExecutionDelta delta);
 }
\ No newline at end of file
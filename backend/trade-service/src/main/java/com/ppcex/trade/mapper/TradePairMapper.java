@@ -18,4 +18,11 @@ public interface TradePairMapper extends BaseMapper<TradePair> {
     List<TradePairVO> selectActiveTradePairs();
 
     TradePairVO selectTradePairVOBySymbol(@Param("symbol") String symbol);
+
+    List<TradePairVO> selectAllTradePairVOs();
+
+    /**
+     * 交易对表版本：行数 + 最大更新时间，用于判断本地注册表是否需要重新加载
+     */
+    String selectTradePairVersion();
 }
\ No newline at end of file
@@ -1,16 +1,43 @@
 package com.ppcex.trade.mq;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.ppcex.trade.config.OrderConsumerProperties;
+import com.ppcex.trade.dto.OrderExecutionDelta;
+import com.ppcex.trade.dto.OrderTradeKey;
 import com.ppcex.trade.entity.TradeOrder;
+import com.ppcex.trade.mapper.TradeOrderMapper;
+import com.ppcex.trade.service.ActiveOrderIndex;
 import com.ppcex.trade.service.OrderService;
-import com.ppcex.common.exception.BusinessException;
+import com.ppcex.trade.service.TradePairRegistry;
+import com.ppcex.trade.shard.SymbolRouter;
 import com.ppcex.common.util.JsonUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.consumer.listener.ConsumeOrderlyStatus;
+import org.apache.rocketmq.client.consumer.listener.MessageListenerOrderly;
+import org.apache.rocketmq.client.exception.MQClientException;
+import org.apache.rocketmq.common.message.MessageExt;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.Message;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
-import org.springframework.context.annotation.Bean;
-import java.util.function.Consumer;
-
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 订单消息批量消费：顺序推送消费者每次从一个队列取出至多batchSize条消息整批交付，不再逐条转交和等待凑批。
+ * 一批用一次IN查询取出涉及的订单，按订单号依到达顺序折叠事件，在一个事务内写回。
+ * 成交按 成交编号+订单编号 去重后以增量原子累加，不整行覆盖撮合写入的成交进度。
+ * 取消和超时与撤单接口、超时调度一致：先把订单移出订单簿，只对已确认移出的订单按状态条件更新。
+ * 订单尚未创建、未能移出订单簿或处理失败时挂起该队列，整批由MQ重投；已写入的部分按订单号、去重表和状态条件跳过。
+ */
 @Service
 @Slf4j
 public class OrderMessageConsumer {
@@ -18,183 +45,286 @@ public class OrderMessageConsumer {
     @Autowired
     private OrderService orderService;
 
-    @Bean
-    public Consumer<Message<String>> orderTopic() {
-        return this::handleOrderMessage;
+    @Autowired
+    private TradeOrderMapper tradeOrderMapper;
+
+    @Autowired
+    private TradePairRegistry tradePairRegistry;
+
+    @Autowired
+    private ActiveOrderIndex activeOrderIndex;
+
+    @Autowired
+    private OrderConsumerProperties consumerProperties;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Lazy
+    @Autowired
+    private SymbolRouter symbolRouter;
+
+    private static final BigDecimal TRADE_FEE_RATE = new BigDecimal("0.001");
+
+    private DefaultMQPushConsumer consumer;
+
+    @PostConstruct
+    public void init() throws MQClientException {
+        int batchSize = consumerProperties.getBatchSize();
+        consumer = new DefaultMQPushConsumer(consumerProperties.getGroup());
+        consumer.setNamesrvAddr(consumerProperties.getNameServer());
+        consumer.setConsumeThreadMin(consumerProperties.getConsumeThreads());
+        consumer.setConsumeThreadMax(consumerProperties.getConsumeThreads());
+        // 单次拉取不少于单次投递，队列有积压时一次投递即可凑满一批
+        consumer.setPullBatchSize(Math.max(batchSize, consumer.getPullBatchSize()));
+        consumer.setConsumeMessageBatchMaxSize(batchSize);
+        consumer.setMaxReconsumeTimes(consumerProperties.getMaxReconsumeTimes());
+        consumer.subscribe(consumerProperties.getTopic(), "*");
+        consumer.registerMessageListener((MessageListenerOrderly) (messages, context) -> consume(messages));
+        consumer.start();
+        log.info("订单消息消费者已启动: topic={}, group={}, batchSize={}",
+                consumerProperties.getTopic(), consumerProperties.getGroup(), batchSize);
     }
 
-    private void handleOrderMessage(Message<String> message) {
+    ConsumeOrderlyStatus consume(List<MessageExt> messages) {
+        List<PendingMessage> batch = new ArrayList<>(messages.size());
+        for (MessageExt message : messages) {
+            batch.add(new PendingMessage(message.getTags(), new String(message.getBody(), StandardCharsets.UTF_8)));
+        }
         try {
-            String payload = message.getPayload();
-            String tags = (String) message.getHeaders().get("tags");
-
-            log.info("收到订单消息: tags={}, payload={}", tags, payload);
-
-            switch (tags) {
-                case "ORDER_CREATE":
-                    handleOrderCreate(payload);
-                    break;
-                case "ORDER_TRADE":
-                    handleOrderTrade(payload);
-                    break;
-                case "ORDER_CANCEL":
-                    handleOrderCancel(payload);
-                    break;
-                case "ORDER_TIMEOUT":
-                    handleOrderTimeout(payload);
-                    break;
-                default:
-                    log.warn("未知的订单消息类型: {}", tags);
+            if (processBatch(batch)) {
+                return ConsumeOrderlyStatus.SUCCESS;
             }
         } catch (Exception e) {
-            log.error("处理订单消息失败", e);
-            throw new RuntimeException("消息处理失败", e);
+            log.error("订单消息批处理失败，挂起队列等待重投: size={}", batch.size(), e);
         }
+        return ConsumeOrderlyStatus.SUSPEND_CURRENT_QUEUE_A_MOMENT;
     }
 
-    private void handleOrderCreate(String payload) {
-        try {
-            java.util.Map<String, Object> orderData = JsonUtil.parseObject(payload, java.util.Map.class);
-            String orderNo = (String) orderData.get("orderNo");
-            Long userId = Long.valueOf(orderData.get("userId").toString());
-            String symbol = (String) orderData.get("symbol");
-
-            log.info("处理订单创建消息: orderNo={}, userId={}, symbol={}", orderNo, userId, symbol);
-
-            TradeOrder existingOrder = orderService.getOne(new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<TradeOrder>()
-                    .eq("order_no", orderNo));
-            if (existingOrder != null) {
-                log.warn("订单已存在，跳过处理: orderNo={}", orderNo);
-                return;
+    /**
+     * 返回false表示有订单尚未创建或未能移出订单簿，整批稍后重投
+     */
+    boolean processBatch(List<PendingMessage> batch) {
+        // 按订单号分组，组内保持到达顺序
+        Map<String, List<OrderEvent>> eventsByOrderNo = new LinkedHashMap<>();
+        Set<String> tradeNos = new HashSet<>();
+        boolean pairUpdated = false;
+        for (PendingMessage message : batch) {
+            try {
+                if ("PAIR_UPDATED".equals(message.getTags())) {
+                    pairUpdated = true;
+                    continue;
+                }
+                OrderEvent event = parse(message);
+                if (event == null) {
+                    log.warn("未知的订单消息类型: {}", message.getTags());
+                    continue;
+                }
+                eventsByOrderNo.computeIfAbsent(event.getOrderNo(), k -> new ArrayList<>()).add(event);
+                if ("ORDER_TRADE".equals(event.getTags())) {
+                    tradeNos.add(event.getTradeNo());
+                }
+            } catch (Exception e) {
+                // 格式错误重投也无法处理，记录后跳过，不阻塞同一队列的其他消息
+                log.error("订单消息解析失败，已跳过: tags={}, payload={}", message.getTags(), message.getPayload(), e);
             }
+        }
 
-            TradeOrder order = new TradeOrder();
-            order.setOrderNo(orderNo);
-            order.setUserId(userId);
-            order.setSymbol(symbol);
-            order.setOrderType(Integer.valueOf(orderData.get("orderType").toString()));
-            order.setDirection(Integer.valueOf(orderData.get("direction").toString()));
-            order.setPrice(new java.math.BigDecimal(orderData.get("price").toString()));
-            order.setAmount(new java.math.BigDecimal(orderData.get("amount").toString()));
-            order.setStatus(1);
-            order.setExecutedAmount(java.math.BigDecimal.ZERO);
-            order.setExecutedValue(java.math.BigDecimal.ZERO);
-            order.setFee(java.math.BigDecimal.ZERO);
-            order.setCreateTime(java.time.LocalDateTime.now());
-            order.setUpdateTime(java.time.LocalDateTime.now());
-
-            orderService.save(order);
-            log.info("订单创建成功: orderNo={}", orderNo);
-
-        } catch (Exception e) {
-            log.error("处理订单创建消息失败", e);
-            throw new BusinessException("订单创建失败");
+        if (pairUpdated) {
+            tradePairRegistry.reload();
         }
-    }
 
-    private void handleOrderTrade(String payload) {
-        try {
-            java.util.Map<String, Object> tradeData = JsonUtil.parseObject(payload, java.util.Map.class);
-            String orderNo = (String) tradeData.get("orderNo");
-            String tradeNo = (String) tradeData.get("tradeNo");
-            java.math.BigDecimal tradeAmount = new java.math.BigDecimal(tradeData.get("tradeAmount").toString());
-            java.math.BigDecimal tradePrice = new java.math.BigDecimal(tradeData.get("tradePrice").toString());
-            java.math.BigDecimal tradeValue = tradeAmount.multiply(tradePrice);
-
-            log.info("处理订单成交消息: orderNo={}, tradeNo={}, amount={}, price={}",
-                    orderNo, tradeNo, tradeAmount, tradePrice);
-
-            TradeOrder order = orderService.getOne(new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<TradeOrder>()
-                    .eq("order_no", orderNo));
-            if (order == null) {
-                log.error("订单不存在: orderNo={}", orderNo);
-                return;
+        Map<String, TradeOrder> orders = new HashMap<>();
+        if (!eventsByOrderNo.isEmpty()) {
+            for (TradeOrder order : orderService.list(new QueryWrapper<TradeOrder>()
+                    .in("order_no", eventsByOrderNo.keySet()))) {
+                orders.put(order.getOrderNo(), order);
             }
-
-            java.math.BigDecimal feeRate = new java.math.BigDecimal("0.001");
-            java.math.BigDecimal fee = tradeValue.multiply(feeRate);
-
-            order.setExecutedAmount(order.getExecutedAmount().add(tradeAmount));
-            order.setExecutedValue(order.getExecutedValue().add(tradeValue));
-            order.setFee(order.getFee().add(fee));
-            order.setUpdateTime(java.time.LocalDateTime.now());
-
-            if (order.getExecutedAmount().compareTo(order.getAmount()) >= 0) {
-                order.setStatus(3);
-            } else {
-                order.setStatus(2);
+        }
+        Set<OrderTradeKey> appliedTrades = tradeNos.isEmpty()
+                ? new HashSet<>() : new HashSet<>(tradeOrderMapper.selectAppliedTrades(tradeNos));
+
+        List<TradeOrder> inserts = new ArrayList<>();
+        List<OrderTradeKey> newTrades = new ArrayList<>();
+        Map<String, OrderExecutionDelta> deltas = new LinkedHashMap<>();
+        List<String> cancels = new ArrayList<>();
+        List<String> timeouts = new ArrayList<>();
+        boolean missingOrders = false;
+        for (Map.Entry<String, List<OrderEvent>> entry : eventsByOrderNo.entrySet()) {
+            String orderNo = entry.getKey();
+            List<OrderEvent> events = entry.getValue();
+            if (!orders.containsKey(orderNo) && !"ORDER_CREATE".equals(events.get(0).getTags())) {
+                // 订单尚未创建，其余订单照常写入，整批稍后重投
+                log.warn("订单不存在，等待重投: orderNo={}, events={}", orderNo, events.size());
+                missingOrders = true;
+                continue;
+            }
+            for (OrderEvent event : events) {
+                switch (event.getTags()) {
+                    case "ORDER_CREATE":
+                        if (orders.containsKey(orderNo)) {
+                            log.warn("订单已存在，跳过处理: orderNo={}", orderNo);
+                        } else {
+                            TradeOrder order = newOrder(event.getData());
+                            orders.put(orderNo, order);
+                            inserts.add(order);
+                        }
+                        break;
+                    case "ORDER_TRADE":
+                        OrderTradeKey tradeKey = new OrderTradeKey(event.getTradeNo(), orderNo);
+                        if (!appliedTrades.add(tradeKey)) {
+                            log.info("成交已计入订单，跳过处理: orderNo={}, tradeNo={}", orderNo, event.getTradeNo());
+                            break;
+                        }
+                        newTrades.add(tradeKey);
+                        applyTrade(deltas.computeIfAbsent(orderNo, k -> new OrderExecutionDelta(
+                                null, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO)), event);
+                        break;
+                    case "ORDER_CANCEL":
+                        cancels.add(orderNo);
+                        break;
+                    case "ORDER_TIMEOUT":
+                        timeouts.add(orderNo);
+                        break;
+                    default:
+                        break;
+                }
             }
-
-            orderService.updateById(order);
-            log.info("订单成交更新成功: orderNo={}, status={}", orderNo, order.getStatus());
-
-        } catch (Exception e) {
-            log.error("处理订单成交消息失败", e);
-            throw new BusinessException("订单成交处理失败");
         }
-    }
 
-    private void handleOrderCancel(String payload) {
-        try {
-            java.util.Map<String, Object> orderData = JsonUtil.parseObject(payload, java.util.Map.class);
-            String orderNo = (String) orderData.get("orderNo");
-
-            log.info("处理订单取消消息: orderNo={}", orderNo);
+        // 移出失败的订单仍在撮合，本批不改其状态，重投时再撤
+        Set<String> stillBooked = removeFromBooks(orders, cancels, timeouts);
+        cancels.removeAll(stillBooked);
+        timeouts.removeAll(stillBooked);
 
-            TradeOrder order = orderService.getOne(new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<TradeOrder>()
-                    .eq("order_no", orderNo));
-            if (order == null) {
-                log.warn("订单不存在，跳过处理: orderNo={}", orderNo);
-                return;
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!inserts.isEmpty()) {
+                orderService.saveBatch(inserts);
+                inserts.forEach(activeOrderIndex::upsert);
             }
-
-            if (order.getStatus() == 4) {
-                log.warn("订单已取消，跳过处理: orderNo={}", orderNo);
-                return;
+            if (!newTrades.isEmpty()) {
+                // 主键冲突说明其他消费者已计入同一笔成交，整批回滚后重投时按去重表跳过
+                tradeOrderMapper.insertAppliedTrades(newTrades);
             }
+            if (!deltas.isEmpty()) {
+                deltas.forEach((orderNo, delta) -> delta.setOrderId(orders.get(orderNo).getId()));
+                orderService.applyExecutions(deltas.values());
+            }
+            if (!cancels.isEmpty()) {
+                tradeOrderMapper.cancelOrders(orderIds(orders, cancels), now);
+                cancels.forEach(orderNo -> activeOrderIndex.remove(orders.get(orderNo)));
+            }
+            if (!timeouts.isEmpty()) {
+                // 超时撤销与撤单同样覆盖部分成交的订单，剩余数量一并撤销
+                tradeOrderMapper.cancelOrders(orderIds(orders, timeouts), now);
+                timeouts.forEach(orderNo -> activeOrderIndex.remove(orders.get(orderNo)));
+            }
+        });
 
-            order.setStatus(4);
-            order.setCancelTime(java.time.LocalDateTime.now());
-            order.setUpdateTime(java.time.LocalDateTime.now());
-
-            orderService.updateById(order);
-            log.info("订单取消成功: orderNo={}", orderNo);
+        log.info("订单消息批处理完成: messages={}, orders={}, inserts={}, trades={}, cancels={}, timeouts={}",
+                batch.size(), eventsByOrderNo.size(), inserts.size(), newTrades.size(), cancels.size(), timeouts.size());
+        return !missingOrders && stillBooked.isEmpty();
+    }
 
-        } catch (Exception e) {
-            log.error("处理订单取消消息失败", e);
-            throw new BusinessException("订单取消失败");
+    /**
+     * 把待取消和超时的挂单订单移出订单簿，返回未能确认移出的订单号；本批新建的订单还未进入订单簿，无需移出
+     */
+    private Set<String> removeFromBooks(Map<String, TradeOrder> orders, List<String> cancels, List<String> timeouts) {
+        Map<Long, TradeOrder> candidates = new LinkedHashMap<>();
+        for (List<String> orderNos : List.of(cancels, timeouts)) {
+            for (String orderNo : orderNos) {
+                TradeOrder order = orders.get(orderNo);
+                if (order.getId() != null && (order.getStatus() == 1 || order.getStatus() == 2)) {
+                    candidates.put(order.getId(), order);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Collections.emptySet();
         }
+        for (TradeOrder order : symbolRouter.removeFromBooks(new ArrayList<>(candidates.values()))) {
+            candidates.remove(order.getId());
+        }
+        Set<String> stillBooked = new HashSet<>();
+        candidates.values().forEach(order -> stillBooked.add(order.getOrderNo()));
+        if (!stillBooked.isEmpty()) {
+            log.warn("订单未能移出订单簿，等待重投: orderNos={}", stillBooked);
+        }
+        return stillBooked;
     }
 
-    private void handleOrderTimeout(String payload) {
-        try {
-            java.util.Map<String, Object> timeoutData = JsonUtil.parseObject(payload, java.util.Map.class);
-            String orderNo = (String) timeoutData.get("orderNo");
+    private static List<Long> orderIds(Map<String, TradeOrder> orders, List<String> orderNos) {
+        List<Long> ids = new ArrayList<>(orderNos.size());
+        orderNos.forEach(orderNo -> ids.add(orders.get(orderNo).getId()));
+        return ids;
+    }
 
-            log.info("处理订单超时消息: orderNo={}", orderNo);
+    @SuppressWarnings("unchecked")
+    private OrderEvent parse(PendingMessage message) {
+        String tags = message.getTags();
+        if (!"ORDER_CREATE".equals(tags) && !"ORDER_TRADE".equals(tags)
+                && !"ORDER_CANCEL".equals(tags) && !"ORDER_TIMEOUT".equals(tags)) {
+            return null;
+        }
+        Map<String, Object> data = JsonUtil.parseObject(message.getPayload(), Map.class);
+        String tradeNo = (String) data.get("tradeNo");
+        if ("ORDER_TRADE".equals(tags) && tradeNo == null) {
+            throw new IllegalArgumentException("成交消息缺少成交编号");
+        }
+        return new OrderEvent(tags, (String) data.get("orderNo"), tradeNo, data);
+    }
 
-            TradeOrder order = orderService.getOne(new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<TradeOrder>()
-                    .eq("order_no", orderNo));
-            if (order == null) {
-                log.warn("订单不存在，跳过处理: orderNo={}", orderNo);
-                return;
-            }
+    private TradeOrder newOrder(Map<String, Object> orderData) {
+        TradeOrder order = new TradeOrder();
+        order.setOrderNo((String) orderData.get("orderNo"));
+        order.setUserId(Long.valueOf(orderData.get("userId").toString()));
+        order.setSymbol((String) orderData.get("symbol"));
+        order.setOrderType(Integer.valueOf(orderData.get("orderType").toString()));
+        order.setDirection(Integer.valueOf(orderData.get("direction").toString()));
+        order.setPrice(new BigDecimal(orderData.get("price").toString()));
+        order.setAmount(new BigDecimal(orderData.get("amount").toString()));
+        order.setStatus(1);
+        order.setExecutedAmount(BigDecimal.ZERO);
+        order.setExecutedValue(BigDecimal.ZERO);
+        order.setFee(BigDecimal.ZERO);
+        order.setCreateTime(LocalDateTime.now());
+        order.setUpdateTime(LocalDateTime.now());
+        log.info("处理订单创建消息: orderNo={}, userId={}, symbol={}",
+                order.getOrderNo(), order.getUserId(), order.getSymbol());
+        return order;
+    }
 
-            if (order.getStatus() != 1) {
-                log.warn("订单状态不是待成交，跳过处理: orderNo={}, status={}", orderNo, order.getStatus());
-                return;
-            }
+    private void applyTrade(OrderExecutionDelta delta, OrderEvent event) {
+        Map<String, Object> tradeData = event.getData();
+        BigDecimal tradeAmount = new BigDecimal(tradeData.get("tradeAmount").toString());
+        BigDecimal tradePrice = new BigDecimal(tradeData.get("tradePrice").toString());
+        BigDecimal tradeValue = tradeAmount.multiply(tradePrice);
+        delta.add(tradeAmount, tradeValue, tradeValue.multiply(TRADE_FEE_RATE));
+        log.info("处理订单成交消息: orderNo={}, tradeNo={}, amount={}, price={}",
+                event.getOrderNo(), event.getTradeNo(), tradeAmount, tradePrice);
+    }
 
-            order.setStatus(4);
-            order.setCancelTime(java.time.LocalDateTime.now());
-            order.setUpdateTime(java.time.LocalDateTime.now());
+    @PreDestroy
+    public void shutdown() {
+        if (consumer != null) {
+            consumer.shutdown();
+        }
+    }
 
-            orderService.updateById(order);
-            log.info("订单超时取消成功: orderNo={}", orderNo);
+    @Data
+    @AllArgsConstructor
+    static class PendingMessage {
+        private String tags;
+        private String payload;
+    }
 
-        } catch (Exception e) {
-            log.error("处理订单超时消息失败", e);
-            throw new BusinessException("订单超时处理失败");
-        }
+    @Data
+    @AllArgsConstructor
+    private static class OrderEvent {
+        private String tags;
+        private String orderNo;
+        private String tradeNo;
+        private Map<String, Object> data;
     }
-}
\ No newline at end of file
+}
@@ -17,6 +17,11 @@ public class OrderMessageProducer {
     @Autowired
     private org.springframework.cloud.stream.function.StreamBridge streamBridge;
 
+    /**
+     * 分片键：order-topic按该消息头选择队列，同一交易对的消息进入同一队列，顺序消费时按发送顺序投递
+     */
+    public static final String SYMBOL_HEADER = "symbol";
+
     public void sendOrderCreateMessage(TradeOrder order) {
         try {
             OrderVO orderVO = new OrderVO();
@@ -26,6 +31,7 @@ public class OrderMessageProducer {
                     .withPayload(JsonUtil.toJsonString(orderVO))
                     .setHeader("message_id", java.util.UUID.randomUUID().toString())
                     .setHeader("keys", order.getOrderNo())
+                    .setHeader(SYMBOL_HEADER, order.getSymbol())
                     .setHeader("timestamp", System.currentTimeMillis())
                     .setHeader("tags", "ORDER_CREATE")
                     .build();
@@ -54,6 +60,7 @@ public class OrderMessageProducer {
                     .withPayload(JsonUtil.toJsonString(tradeData))
                     .setHeader("message_id", java.util.UUID.randomUUID().toString())
                     .setHeader("keys", order.getOrderNo())
+                    .setHeader(SYMBOL_HEADER, order.getSymbol())
                     .setHeader("timestamp", System.currentTimeMillis())
                     .setHeader("tags", "ORDER_TRADE")
                     .build();
@@ -74,6 +81,7 @@ public class OrderMessageProducer {
                     .withPayload(JsonUtil.toJsonString(orderVO))
                     .setHeader("message_id", java.util.UUID.randomUUID().toString())
                     .setHeader("keys", order.getOrderNo())
+                    .setHeader(SYMBOL_HEADER, order.getSymbol())
                     .setHeader("timestamp", System.currentTimeMillis())
                     .setHeader("tags", "ORDER_CANCEL")
                     .build();
@@ -96,6 +104,7 @@ public class OrderMessageProducer {
                     .withPayload(JsonUtil.toJsonString(timeoutData))
                     .setHeader("message_id", java.util.UUID.randomUUID().toString())
                     .setHeader("keys", orderNo)
+                    .setHeader(SYMBOL_HEADER, symbol)
                     .setHeader("timestamp", System.currentTimeMillis())
                     .setHeader("tags", "ORDER_TIMEOUT")
                     .build();
@@ -106,4 +115,25 @@ public class OrderMessageProducer {
             log.error("发送订单超时消息失败: orderNo={}", orderNo, e);
         }
     }
+
+    public void sendPairUpdatedMessage(String symbol) {
+        try {
+            java.util.Map<String, Object> pairData = new java.util.HashMap<>();
+            pairData.put("symbol", symbol);
+
+            Message<String> message = MessageBuilder
+                    .withPayload(JsonUtil.toJsonString(pairData))
+                    .setHeader("message_id", java.util.UUID.randomUUID().toString())
+                    .setHeader("keys", symbol)
+                    .setHeader(SYMBOL_HEADER, symbol)
+                    .setHeader("timestamp", System.currentTimeMillis())
+                    .setHeader("tags", "PAIR_UPDATED")
+                    .build();
+
+            streamBridge.send("order-topic", message);
+            log.info("发送交易对更新消息成功: symbol={}", symbol);
+        } catch (Exception e) {
+            log.error("发送交易对更新消息失败: symbol={}", symbol, e);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.ppcex.trade.security;
+
+import com.ppcex.trade.config.ShardingProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * 实例间内部接口鉴权：请求须携带与本实例配置一致的共享密钥，未配置密钥时一律拒绝
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class InternalTokenFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Internal-Token";
+
+    private static final String INTERNAL_PATH = "/internal/";
+
+    private final ShardingProperties shardingProperties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String expected = shardingProperties.getInternalToken();
+        String actual = request.getHeader(HEADER);
+        if (!StringUtils.hasText(expected) || actual == null
+                || !MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("内部接口鉴权失败: path={}, remote={}", request.getServletPath(), request.getRemoteAddr());
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            response.getWriter().write("内部接口拒绝访问");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getServletPath().startsWith(INTERNAL_PATH);
+    }
+}
@@ -0,0 +1,456 @@
+package com.ppcex.trade.service;
+
+import com.ppcex.trade.config.OrderProperties;
+import com.ppcex.trade.dto.OrderExecutionDelta;
+import com.ppcex.trade.dto.OrderVO;
+import com.ppcex.trade.entity.TradeOrder;
+import com.ppcex.trade.mapper.TradeOrderMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 活动订单内存索引：按订单ID、用户、交易对索引待成交和部分成交的订单，启动时从数据库重建。
+ * 本实例的下单、成交、撤单在事务提交后同步写入索引，查询立即可见，不额外回读数据库；
+ * 订单的成交量只增不减、状态只前进不回退，晚到的旧快照按字段取较大值合并，已结束的订单记入墓碑后不会被重新加入。
+ * 变更的订单ID经Redis频道广播给其他实例，由其刷新线程从主库回读整行；定期全量重建兜底丢失的广播和合并偏差。
+ */
+@Slf4j
+@Component
+public class ActiveOrderIndex {
+
+    @Autowired
+    private TradeOrderMapper tradeOrderMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private OrderProperties orderProperties;
+
+    public static final String CHANGED_CHANNEL = "trade:order:changed";
+
+    private static final int REFRESH_BATCH_SIZE = 500;
+    private static final int TOMBSTONE_CAPACITY = 100000;
+    private static final Comparator<OrderVO> USER_ORDER = Comparator.comparing(OrderVO::getCreateTime).reversed();
+    private static final Comparator<OrderVO> SYMBOL_ORDER = Comparator.comparing(OrderVO::getPrice)
+            .thenComparing(OrderVO::getCreateTime);
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, OrderVO> orders = new HashMap<>();
+    private final Map<Long, Set<Long>> userOrders = new HashMap<>();
+    private final Map<String, Set<Long>> symbolOrders = new HashMap<>();
+    /**
+     * 最近结束的订单ID，订单结束后不会再变为活动状态
+     */
+    private final Map<Long, Boolean> finishedOrders = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > TOMBSTONE_CAPACITY;
+        }
+    };
+    /**
+     * 重建期间本地的变更同时登记回读，重建替换索引后以数据库状态补齐
+     */
+    private boolean rebuilding;
+
+    private final BlockingQueue<Long> changedIds = new LinkedBlockingQueue<>();
+    /**
+     * 回读数据库和全量重建在同一把锁内串行，后一次回读的结果总是后写入
+     */
+    private final Object refreshLock = new Object();
+
+    private Thread refresher;
+    private ScheduledExecutorService rebuilder;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+        listenerContainer.addMessageListener((message, pattern) -> onChanged(message.getBody()),
+                new ChannelTopic(CHANGED_CHANNEL));
+
+        running = true;
+        refresher = new Thread(this::refreshLoop, "active-order-refresher");
+        refresher.setDaemon(true);
+        refresher.start();
+
+        int rebuildSeconds = orderProperties.getActiveIndexRebuildSeconds();
+        if (rebuildSeconds > 0) {
+            rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "active-order-rebuilder");
+                thread.setDaemon(true);
+                return thread;
+            });
+            rebuilder.scheduleWithFixedDelay(this::rebuild, rebuildSeconds, rebuildSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public void rebuild() {
+        synchronized (refreshLock) {
+            setRebuilding(true);
+            List<OrderVO> activeOrders;
+            try {
+                activeOrders = tradeOrderMapper.selectAllActiveOrders();
+            } catch (RuntimeException e) {
+                setRebuilding(false);
+                throw e;
+            }
+            lock.writeLock().lock();
+            try {
+                orders.clear();
+                userOrders.clear();
+                symbolOrders.clear();
+                for (OrderVO order : activeOrders) {
+                    if (!finishedOrders.containsKey(order.getId())) {
+                        order.setStatusDesc(statusDesc(order.getStatus()));
+                        put(order);
+                    }
+                }
+                rebuilding = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("活动订单索引重建完成: count={}", activeOrders.size());
+        }
+    }
+
+    public List<OrderVO> getUserActiveOrders(Long userId) {
+        return snapshot(userOrders, userId, USER_ORDER);
+    }
+
+    public List<OrderVO> getActiveOrdersBySymbol(String symbol) {
+        return snapshot(symbolOrders, symbol, SYMBOL_ORDER);
+    }
+
+    private <K> List<OrderVO> snapshot(Map<K, Set<Long>> index, K key, Comparator<OrderVO> comparator) {
+        List<OrderVO> result;
+        lock.readLock().lock();
+        try {
+            Set<Long> orderIds = index.get(key);
+            if (orderIds == null || orderIds.isEmpty()) {
+                return new ArrayList<>();
+            }
+            result = new ArrayList<>(orderIds.size());
+            for (Long orderId : orderIds) {
+                result.add(orders.get(orderId));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(comparator);
+        return result;
+    }
+
+    /**
+     * 订单已写入或变更；在事务中调用时等提交后再写入索引
+     */
+    public void upsert(TradeOrder order) {
+        OrderVO row = new OrderVO();
+        BeanUtils.copyProperties(order, row);
+        committed(Collections.singletonList(order.getId()), () -> merge(row));
+    }
+
+    public void remove(TradeOrder order) {
+        committed(Collections.singletonList(order.getId()), () -> finish(order.getId()));
+    }
+
+    public void updateStatus(Long orderId, Integer status) {
+        committed(Collections.singletonList(orderId), () -> {
+            OrderVO order = orders.get(orderId);
+            if (!isActive(status)) {
+                finish(orderId);
+            } else if (order != null && status > order.getStatus()) {
+                order.setStatus(status);
+                order.setStatusDesc(statusDesc(status));
+            }
+        });
+    }
+
+    /**
+     * 按增量累加成交量；索引中没有该订单时登记回读
+     */
+    public void applyExecutions(Collection<OrderExecutionDelta> deltas) {
+        List<Long> orderIds = new ArrayList<>(deltas.size());
+        for (OrderExecutionDelta delta : deltas) {
+            orderIds.add(delta.getOrderId());
+        }
+        committed(orderIds, () -> {
+            for (OrderExecutionDelta delta : deltas) {
+                Long orderId = delta.getOrderId();
+                OrderVO order = orderId != null ? orders.get(orderId) : null;
+                if (order == null) {
+                    if (orderId != null && !finishedOrders.containsKey(orderId)) {
+                        changedIds.add(orderId);
+                    }
+                    continue;
+                }
+                order.setExecutedAmount(add(order.getExecutedAmount(), delta.getExecutedAmount()));
+                order.setExecutedValue(add(order.getExecutedValue(), delta.getExecutedValue()));
+                order.setFee(add(order.getFee(), delta.getFee()));
+                if (order.getAmount() != null && order.getExecutedAmount().compareTo(order.getAmount()) >= 0) {
+                    finish(orderId);
+                } else {
+                    order.setStatus(2);
+                    order.setStatusDesc(statusDesc(2));
+                }
+            }
+        });
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return orders.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 提交后在写锁内修改索引并广播；重建期间的变更另行登记回读
+     */
+    private void committed(List<Long> orderIds, Runnable mutation) {
+        afterCommit(() -> {
+            List<Long> ids = new ArrayList<>(orderIds.size());
+            for (Long orderId : orderIds) {
+                if (orderId != null) {
+                    ids.add(orderId);
+                }
+            }
+            if (ids.isEmpty()) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                mutation.run();
+                if (rebuilding) {
+                    changedIds.addAll(ids);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            publish(ids);
+        });
+    }
+
+    private void setRebuilding(boolean value) {
+        lock.writeLock().lock();
+        try {
+            rebuilding = value;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void publish(List<Long> orderIds) {
+        StringJoiner joiner = new StringJoiner(",", instanceId + ":", "");
+        orderIds.forEach(orderId -> joiner.add(orderId.toString()));
+        try {
+            stringRedisTemplate.convertAndSend(CHANGED_CHANNEL, joiner.toString());
+        } catch (Exception e) {
+            log.warn("活动订单变更广播失败，其他实例等待定期重建: orders={}", orderIds.size(), e);
+        }
+    }
+
+    /**
+     * 消息格式为 实例ID:订单ID,订单ID,...，本实例发出的变更已在本地写入
+     */
+    private void onChanged(byte[] body) {
+        String message = new String(body, StandardCharsets.UTF_8);
+        int separator = message.indexOf(':');
+        if (separator < 0 || message.substring(0, separator).equals(instanceId)) {
+            return;
+        }
+        for (String orderId : message.substring(separator + 1).split(",")) {
+            if (!orderId.isEmpty()) {
+                changedIds.add(Long.valueOf(orderId));
+            }
+        }
+    }
+
+    private void refreshLoop() {
+        while (running) {
+            try {
+                Long first = changedIds.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    changedIds.add(first);
+                    refreshPending();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("活动订单索引刷新失败", e);
+            }
+        }
+    }
+
+    /**
+     * 取出其他实例广播或重建期间登记的订单ID，从主库回读整行后合并进索引；回读失败时放回队列等待下次刷新
+     */
+    void refreshPending() {
+        synchronized (refreshLock) {
+            while (!changedIds.isEmpty()) {
+                Set<Long> batch = new LinkedHashSet<>();
+                Long orderId;
+                while (batch.size() < REFRESH_BATCH_SIZE && (orderId = changedIds.poll()) != null) {
+                    batch.add(orderId);
+                }
+                List<OrderVO> rows;
+                try {
+                    rows = tradeOrderMapper.selectOrderVOsByIds(batch);
+                } catch (RuntimeException e) {
+                    changedIds.addAll(batch);
+                    throw e;
+                }
+                apply(batch, rows);
+            }
+        }
+    }
+
+    private void apply(Set<Long> orderIds, List<OrderVO> rows) {
+        Map<Long, OrderVO> byId = new HashMap<>(rows.size() * 2);
+        for (OrderVO row : rows) {
+            byId.put(row.getId(), row);
+        }
+        lock.writeLock().lock();
+        try {
+            for (Long orderId : orderIds) {
+                OrderVO row = byId.get(orderId);
+                if (row != null) {
+                    merge(row);
+                } else {
+                    remove(orderId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 成交量和手续费取较大值，状态只前进；已结束的订单不再加入
+     */
+    private void merge(OrderVO row) {
+        Long orderId = row.getId();
+        if (orderId == null || finishedOrders.containsKey(orderId)) {
+            return;
+        }
+        if (!isActive(row.getStatus())) {
+            finish(orderId);
+            return;
+        }
+        OrderVO order = orders.get(orderId);
+        if (order == null) {
+            row.setStatusDesc(statusDesc(row.getStatus()));
+            put(row);
+            return;
+        }
+        order.setExecutedAmount(max(order.getExecutedAmount(), row.getExecutedAmount()));
+        order.setExecutedValue(max(order.getExecutedValue(), row.getExecutedValue()));
+        order.setFee(max(order.getFee(), row.getFee()));
+        if (row.getStatus() > order.getStatus()) {
+            order.setStatus(row.getStatus());
+            order.setStatusDesc(statusDesc(row.getStatus()));
+        }
+    }
+
+    private void finish(Long orderId) {
+        finishedOrders.put(orderId, Boolean.TRUE);
+        remove(orderId);
+    }
+
+    private void put(OrderVO order) {
+        orders.put(order.getId(), order);
+        userOrders.computeIfAbsent(order.getUserId(), k -> new HashSet<>()).add(order.getId());
+        symbolOrders.computeIfAbsent(order.getSymbol(), k -> new HashSet<>()).add(order.getId());
+    }
+
+    private void remove(Long orderId) {
+        OrderVO order = orders.remove(orderId);
+        if (order == null) {
+            return;
+        }
+        removeFrom(userOrders, order.getUserId(), orderId);
+        removeFrom(symbolOrders, order.getSymbol(), orderId);
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Long>> index, K key, Long orderId) {
+        Set<Long> orderIds = index.get(key);
+        if (orderIds != null) {
+            orderIds.remove(orderId);
+            if (orderIds.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static BigDecimal add(BigDecimal current, BigDecimal delta) {
+        if (delta == null) {
+            return current != null ? current : BigDecimal.ZERO;
+        }
+        return current != null ? current.add(delta) : delta;
+    }
+
+    private static BigDecimal max(BigDecimal current, BigDecimal other) {
+        if (current == null) {
+            return other;
+        }
+        return other != null && other.compareTo(current) > 0 ? other : current;
+    }
+
+    private static boolean isActive(Integer status) {
+        return status != null && (status == 1 || status == 2);
+    }
+
+    private static String statusDesc(Integer status) {
+        return status != null && status == 2 ? "部分成交" : "待成交";
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (rebuilder != null) {
+            rebuilder.shutdownNow();
+        }
+        if (refresher != null) {
+            refresher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+}
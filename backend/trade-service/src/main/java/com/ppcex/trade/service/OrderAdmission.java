@@ -0,0 +1,109 @@
+package com.ppcex.trade.service;
+
+import com.ppcex.trade.config.OrderProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 下单准入：单次Redis脚本调用内完成按用户的滑动窗口限流判断和计数，无需用户锁，也没有先读后写的竞态
+ */
+@Slf4j
+@Component
+public class OrderAdmission {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private OrderProperties orderProperties;
+
+    private static final String ORDER_RATE_LIMIT_PREFIX = "order:rate:";
+
+    private DefaultRedisScript<Long> admissionScript;
+    private DefaultRedisScript<Long> batchAdmissionScript;
+
+    @PostConstruct
+    public void init() {
+        String luaScript = """
+            -- KEYS[1]: 用户下单窗口  ARGV: 当前毫秒, 窗口毫秒, 上限, 本次请求标识
+            local key = KEYS[1]
+            local now = tonumber(ARGV[1])
+            local window = tonumber(ARGV[2])
+            local limit = tonumber(ARGV[3])
+
+            -- 移出窗口外的记录后计数
+            redis.call('ZREMRANGEBYSCORE', key, '-inf', now - window)
+            if redis.call('ZCARD', key) >= limit then
+                return 0
+            end
+
+            redis.call('ZADD', key, now, ARGV[4])
+            redis.call('PEXPIRE', key, window)
+            return 1
+            """;
+
+        admissionScript = new DefaultRedisScript<>(luaScript, Long.class);
+
+        String batchLuaScript = """
+            -- KEYS[1]: 用户下单窗口  ARGV: 当前毫秒, 窗口毫秒, 上限, 请求标识...
+            local key = KEYS[1]
+            local now = tonumber(ARGV[1])
+            local window = tonumber(ARGV[2])
+            local limit = tonumber(ARGV[3])
+
+            redis.call('ZREMRANGEBYSCORE', key, '-inf', now - window)
+            local admitted = math.min(limit - redis.call('ZCARD', key), #ARGV - 3)
+            if admitted <= 0 then
+                return 0
+            end
+
+            for i = 4, admitted + 3 do
+                redis.call('ZADD', key, now, ARGV[i])
+            end
+            redis.call('PEXPIRE', key, window)
+            return admitted
+            """;
+
+        batchAdmissionScript = new DefaultRedisScript<>(batchLuaScript, Long.class);
+        log.info("下单准入脚本初始化完成: limit={}, windowMillis={}",
+                orderProperties.getRateLimit(), orderProperties.getRateLimitWindowMillis());
+    }
+
+    /**
+     * 判断用户本次下单是否准入，准入时计入窗口；requestId需在窗口内唯一，一般取订单号
+     */
+    public boolean tryAdmit(Long userId, String requestId) {
+        Long admitted = stringRedisTemplate.execute(admissionScript,
+                Collections.singletonList(ORDER_RATE_LIMIT_PREFIX + userId),
+                String.valueOf(System.currentTimeMillis()),
+                String.valueOf(orderProperties.getRateLimitWindowMillis()),
+                String.valueOf(orderProperties.getRateLimit()),
+                requestId);
+        return admitted != null && admitted == 1L;
+    }
+
+    /**
+     * 批量下单的一次准入判断：按顺序准入窗口剩余额度内的前若干个请求，返回准入的个数
+     */
+    public int tryAdmitBatch(Long userId, List<String> requestIds) {
+        if (requestIds.isEmpty()) {
+            return 0;
+        }
+        List<String> args = new ArrayList<>(requestIds.size() + 3);
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(String.valueOf(orderProperties.getRateLimitWindowMillis()));
+        args.add(String.valueOf(orderProperties.getRateLimit()));
+        args.addAll(requestIds);
+        Long admitted = stringRedisTemplate.execute(batchAdmissionScript,
+                Collections.singletonList(ORDER_RATE_LIMIT_PREFIX + userId), args.toArray());
+        return admitted != null ? admitted.intValue() : 0;
+    }
+}
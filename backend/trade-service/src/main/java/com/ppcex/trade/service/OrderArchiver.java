@@ -0,0 +1,125 @@
+package com.ppcex.trade.service;
+
+import com.ppcex.trade.config.ArchiveProperties;
+import com.ppcex.trade.mapper.TradeDetailMapper;
+import com.ppcex.trade.mapper.TradeOrderMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 冷热归档：定期把超过保留期的终态订单和成交搬到归档表。
+ * 每个分块在一个事务内复制后删除，分块之间停顿，避免长事务和持续占用主库。
+ */
+@Slf4j
+@Component
+public class OrderArchiver {
+
+    @Autowired
+    private TradeOrderMapper tradeOrderMapper;
+
+    @Autowired
+    private TradeDetailMapper tradeDetailMapper;
+
+    @Autowired
+    private ArchiveProperties archiveProperties;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        if (!archiveProperties.isEnabled()) {
+            log.info("冷热归档未启用");
+            return;
+        }
+        running = true;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "trade-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = archiveProperties.getIntervalMinutes();
+        scheduler.scheduleWithFixedDelay(this::archive, interval, interval, TimeUnit.MINUTES);
+    }
+
+    public void archive() {
+        LocalDateTime before = archiveProperties.hotBoundary();
+        try {
+            long orders = archiveChunks("trade_order", before, tradeOrderMapper::selectArchivableOrderIds,
+                    tradeOrderMapper::copyOrdersToArchive, tradeOrderMapper::deleteArchivedOrders);
+            long trades = archiveChunks("trade_detail", before, tradeDetailMapper::selectArchivableTradeIds,
+                    tradeDetailMapper::copyTradesToArchive, tradeDetailMapper::deleteArchivedTrades);
+            long appliedTrades = pruneAppliedTrades(before);
+            log.info("冷热归档完成: before={}, orders={}, trades={}, appliedTrades={}", before, orders, trades, appliedTrades);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("冷热归档失败: before={}", before, e);
+        }
+    }
+
+    private long archiveChunks(String table, LocalDateTime before,
+                               BiFunction<LocalDateTime, Integer, List<Long>> selectIds,
+                               Function<List<Long>, Integer> copy,
+                               Function<List<Long>, Integer> delete) throws InterruptedException {
+        int chunkSize = archiveProperties.getChunkSize();
+        long archived = 0;
+        while (running) {
+            List<Long> ids = selectIds.apply(before, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            Integer moved = transactionTemplate.execute(status -> {
+                copy.apply(ids);
+                return delete.apply(ids);
+            });
+            archived += moved != null ? moved : 0;
+            log.debug("归档分块完成: table={}, rows={}, lastId={}", table, ids.size(), ids.get(ids.size() - 1));
+            if (ids.size() < chunkSize) {
+                break;
+            }
+            Thread.sleep(archiveProperties.getChunkPauseMillis());
+        }
+        return archived;
+    }
+
+    /**
+     * 超过保留期的订单不会再收到成交消息，对应的去重记录直接删除
+     */
+    private long pruneAppliedTrades(LocalDateTime before) throws InterruptedException {
+        int chunkSize = archiveProperties.getChunkSize();
+        long deleted = 0;
+        while (running) {
+            int rows = tradeOrderMapper.deleteAppliedTradesBefore(before, chunkSize);
+            deleted += rows;
+            if (rows < chunkSize) {
+                break;
+            }
+            Thread.sleep(archiveProperties.getChunkPauseMillis());
+        }
+        return deleted;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
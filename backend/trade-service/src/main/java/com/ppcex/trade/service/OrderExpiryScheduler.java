@@ -0,0 +1,223 @@
+package com.ppcex.trade.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.ppcex.trade.config.OrderProperties;
+import com.ppcex.trade.engine.TimingWheel;
+import com.ppcex.trade.entity.TradeOrder;
+import com.ppcex.trade.mapper.TradeOrderMapper;
+import com.ppcex.trade.shard.SymbolRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单超时撤销：挂单中订单的过期时间放在进程内分层时间轮中，启动时从数据库重新加载。
+ * 到期订单按批处理：先在撮合线程上移出订单簿，之后不会再有新的成交；再一次加锁查询、一次条件更新，
+ * 撤销仍在挂单的订单，部分成交的订单撤销剩余数量，不再逐单发送超时消息和查库。
+ * 处理失败的订单按退避时间重新放回时间轮；已移出订单簿但写库失败的订单重试时直接写库，不再重复移出。
+ */
+@Slf4j
+@Component
+public class OrderExpiryScheduler {
+
+    @Autowired
+    private TradeOrderMapper tradeOrderMapper;
+
+    @Autowired
+    private ActiveOrderIndex activeOrderIndex;
+
+    @Autowired
+    private OrderProperties orderProperties;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Lazy
+    @Autowired
+    private SymbolRouter symbolRouter;
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final long RETRY_BASE_MILLIS = 1000L;
+    private static final long RETRY_MAX_MILLIS = 60_000L;
+
+    private TimingWheel<Long> wheel;
+    private List<Long> overdue = new ArrayList<>();
+    /** 订单已连续失败的次数，用于计算退避时间 */
+    private final Map<Long, Integer> failures = new HashMap<>();
+    /** 已移出订单簿、尚未写库撤销的订单 */
+    private final Map<Long, TradeOrder> removedFromBook = new HashMap<>();
+    private ScheduledExecutorService ticker;
+
+    @PostConstruct
+    public void init() {
+        wheel = new TimingWheel<>(orderProperties.getExpiryTickMillis(), orderProperties.getExpiryWheelSize(),
+                System.currentTimeMillis());
+        List<TradeOrder> pending = tradeOrderMapper.selectList(new QueryWrapper<TradeOrder>()
+                .select("id", "expire_time")
+                .in("status", 1, 2)
+                .isNotNull("expire_time"));
+        for (TradeOrder order : pending) {
+            schedule(order);
+        }
+
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tick = orderProperties.getExpiryTickMillis();
+        ticker.scheduleWithFixedDelay(this::tick, tick, tick, TimeUnit.MILLISECONDS);
+        log.info("订单超时时间轮已加载: pending={}", pending.size());
+    }
+
+    /**
+     * 登记有过期时间的已落库订单；已过期的在下一个tick撤销
+     */
+    public void schedule(TradeOrder order) {
+        if (order.getId() == null || order.getExpireTime() == null) {
+            return;
+        }
+        long deadline = order.getExpireTime().atZone(ZONE).toInstant().toEpochMilli();
+        synchronized (this) {
+            if (!wheel.add(deadline, order.getId())) {
+                overdue.add(order.getId());
+            }
+        }
+    }
+
+    private void tick() {
+        List<Long> expired;
+        synchronized (this) {
+            expired = overdue;
+            overdue = new ArrayList<>();
+            wheel.advance(System.currentTimeMillis(), expired::add);
+        }
+        int batchSize = orderProperties.getExpiryBatchSize();
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            List<Long> batch = expired.subList(from, Math.min(from + batchSize, expired.size()));
+            try {
+                expire(batch);
+            } catch (Exception e) {
+                log.error("订单超时撤销失败，退避后重试: size={}, firstId={}", batch.size(), batch.get(0), e);
+                retryLater(batch);
+            }
+        }
+    }
+
+    void expire(List<Long> orderIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<TradeOrder> candidates = tradeOrderMapper.selectList(new QueryWrapper<TradeOrder>()
+                .select("id", "order_no", "user_id", "symbol", "direction", "price", "status")
+                .in("id", orderIds)
+                .in("status", 1, 2)
+                .le("expire_time", now));
+        // 已不在挂单的订单无需处理，清掉重试记录
+        Set<Long> candidateIds = new HashSet<>();
+        candidates.forEach(order -> candidateIds.add(order.getId()));
+        synchronized (this) {
+            for (Long id : orderIds) {
+                if (!candidateIds.contains(id)) {
+                    failures.remove(id);
+                    removedFromBook.remove(id);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        List<TradeOrder> removed = new ArrayList<>(candidates.size());
+        List<TradeOrder> onBook = new ArrayList<>(candidates.size());
+        synchronized (this) {
+            for (TradeOrder order : candidates) {
+                (removedFromBook.containsKey(order.getId()) ? removed : onBook).add(order);
+            }
+        }
+        if (!onBook.isEmpty()) {
+            List<TradeOrder> taken = symbolRouter.removeFromBooks(onBook);
+            removed.addAll(taken);
+            // 移出失败的订单仍在订单簿中撮合，不改状态，退避后重新移出
+            Set<Long> takenIds = new HashSet<>();
+            taken.forEach(order -> takenIds.add(order.getId()));
+            List<Long> notTaken = new ArrayList<>();
+            onBook.stream().filter(order -> !takenIds.contains(order.getId())).forEach(order -> notTaken.add(order.getId()));
+            if (!notTaken.isEmpty()) {
+                log.warn("超时订单移出订单簿失败，退避后重试: size={}, firstId={}", notTaken.size(), notTaken.get(0));
+                retryLater(notTaken);
+            }
+        }
+        if (removed.isEmpty()) {
+            return;
+        }
+
+        List<Long> removedIds = new ArrayList<>(removed.size());
+        removed.forEach(order -> removedIds.add(order.getId()));
+        List<TradeOrder> expired;
+        try {
+            expired = transactionTemplate.execute(status -> {
+                List<TradeOrder> orders = tradeOrderMapper.selectExpirableOrders(removedIds, now);
+                if (!orders.isEmpty()) {
+                    List<Long> ids = new ArrayList<>(orders.size());
+                    orders.forEach(order -> ids.add(order.getId()));
+                    tradeOrderMapper.cancelOrders(ids, now);
+                }
+                return orders;
+            });
+        } catch (Exception e) {
+            // 订单已不在订单簿中，数据库仍是挂单状态，必须补写撤销
+            log.error("超时订单已移出订单簿但撤销写库失败，退避后重试: size={}, firstId={}",
+                    removedIds.size(), removedIds.get(0), e);
+            synchronized (this) {
+                removed.forEach(order -> removedFromBook.put(order.getId(), order));
+            }
+            retryLater(removedIds);
+            return;
+        }
+        synchronized (this) {
+            removedIds.forEach(id -> {
+                failures.remove(id);
+                removedFromBook.remove(id);
+            });
+        }
+        removed.forEach(activeOrderIndex::remove);
+        log.info("订单超时撤销完成: candidates={}, removed={}, expired={}",
+                orderIds.size(), removed.size(), expired != null ? expired.size() : 0);
+    }
+
+    /**
+     * 失败的订单按连续失败次数指数退避后重新放回时间轮
+     */
+    private synchronized void retryLater(List<Long> orderIds) {
+        long now = System.currentTimeMillis();
+        for (Long id : orderIds) {
+            int attempt = failures.merge(id, 1, Integer::sum);
+            long delay = Math.min(RETRY_BASE_MILLIS << Math.min(attempt - 1, 6), RETRY_MAX_MILLIS);
+            if (!wheel.add(now + delay, id)) {
+                overdue.add(id);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.ppcex.trade.service;
+
+import com.ppcex.trade.entity.TradeOrder;
+import com.ppcex.common.util.JsonUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * 订单接收日志：每个订单一行JSON，追加后fsync才算接收成功。
+ * 日志按大小滚动为多个分段文件（日志路径.序号），每个分段分别统计接收数和落库数：
+ * 已滚动的分段全部落库后删除，当前分段全部落库且没有进行中的追加时清空，持续接单时日志也不会无限增长。
+ * 并发追加的线程共用一次fsync，已被其他线程刷盘覆盖的位置不再重复刷盘。
+ * 刷盘失败后日志停用，未刷盘的记录回退删除，对应的追加全部以失败返回，重启时不会补写。
+ */
+@Slf4j
+public class OrderJournal {
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private final Path path;
+    private final long segmentBytes;
+
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+
+    /** 启动前遗留的日志文件，恢复完成后删除 */
+    private final List<Path> recovered = new ArrayList<>();
+    /** 本次运行写入的分段，按序号排列 */
+    private final Map<Long, Segment> segments = new LinkedHashMap<>();
+    private Segment current;
+    private volatile boolean broken;
+
+    public OrderJournal(Path path) throws IOException {
+        this(path, DEFAULT_SEGMENT_BYTES);
+    }
+
+    public OrderJournal(Path path, long segmentBytes) throws IOException {
+        this.path = path;
+        this.segmentBytes = segmentBytes;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        // 不带序号的文件是分段前的旧日志，排在最前
+        if (Files.exists(path)) {
+            truncateTornTail(path);
+            recovered.add(path);
+        }
+        TreeMap<Long, Path> existing = listSegments();
+        for (Path file : existing.values()) {
+            truncateTornTail(file);
+            recovered.add(file);
+        }
+        long seq = existing.isEmpty() ? 1 : existing.lastKey() + 1;
+        this.current = openSegment(seq);
+    }
+
+    /**
+     * 读出日志中的全部订单，崩溃时写了一半的末行跳过
+     */
+    public List<TradeOrder> readAll() throws IOException {
+        List<Path> files = new ArrayList<>();
+        synchronized (appendLock) {
+            files.addAll(recovered);
+            segments.values().forEach(segment -> files.add(segment.file));
+        }
+        List<TradeOrder> orders = new ArrayList<>();
+        for (Path file : files) {
+            if (!Files.exists(file)) {
+                continue;
+            }
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    orders.add(JsonUtil.parseObject(line, TradeOrder.class));
+                } catch (Exception e) {
+                    log.warn("订单日志存在不完整记录，已跳过: {}", line);
+                }
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * 追加一个订单并刷盘，返回所在分段的序号，落库后按该序号调用{@link #markPersisted}；
+     * 抛出异常时订单未被接收，记录已从日志中回退
+     */
+    public long append(TradeOrder order) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((JsonUtil.toJsonString(order) + "\n").getBytes(StandardCharsets.UTF_8));
+        Segment segment;
+        long end;
+        synchronized (appendLock) {
+            if (broken) {
+                throw new IOException("订单日志刷盘失败，已停止接收");
+            }
+            if (current.written >= segmentBytes) {
+                rotate();
+            }
+            segment = current;
+            long start = segment.written;
+            try {
+                while (buffer.hasRemaining()) {
+                    segment.channel.write(buffer);
+                }
+            } catch (IOException e) {
+                segment.channel.truncate(start);
+                segment.channel.position(start);
+                throw e;
+            }
+            segment.written = segment.channel.position();
+            segment.appending++;
+            end = segment.written;
+        }
+        boolean durable = false;
+        try {
+            sync(segment, end);
+            durable = true;
+        } catch (IOException e) {
+            discardUnsynced();
+            throw e;
+        } finally {
+            synchronized (appendLock) {
+                segment.appending--;
+                if (durable) {
+                    segment.accepted++;
+                }
+                release(segment);
+            }
+        }
+        return segment.seq;
+    }
+
+    private void sync(Segment segment, long end) throws IOException {
+        synchronized (syncLock) {
+            if (segment.synced >= end) {
+                return;
+            }
+            if (broken) {
+                throw new IOException("订单日志刷盘失败，记录未接收");
+            }
+            // 先取位置再刷盘，刷盘期间追加的记录由下一次刷盘覆盖
+            long target = segment.written;
+            try {
+                segment.channel.force(false);
+            } catch (IOException e) {
+                broken = true;
+                throw e;
+            }
+            segment.synced = target;
+        }
+    }
+
+    /**
+     * 刷盘失败后页缓存中的数据是否落盘不可知，把各分段截回到上次刷盘成功的位置，
+     * 这些记录的追加都已失败返回，不能在重启时补写
+     */
+    private void discardUnsynced() {
+        synchronized (appendLock) {
+            synchronized (syncLock) {
+                for (Segment segment : segments.values()) {
+                    if (segment.written <= segment.synced) {
+                        continue;
+                    }
+                    try {
+                        segment.channel.truncate(segment.synced);
+                        segment.channel.position(segment.synced);
+                        segment.channel.force(false);
+                        segment.written = segment.synced;
+                        log.warn("订单日志刷盘失败，未刷盘记录已回退: segment={}", segment.file);
+                    } catch (IOException e) {
+                        log.error("订单日志回退失败，重启前需人工核对: segment={}, synced={}",
+                                segment.file, segment.synced, e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 指定分段中又有若干订单落库
+     */
+    public void markPersisted(long seq, int count) {
+        synchronized (appendLock) {
+            Segment segment = segments.get(seq);
+            if (segment == null) {
+                return;
+            }
+            segment.persisted += count;
+            release(segment);
+        }
+    }
+
+    /**
+     * 分段全部落库后删除或清空；失败的留到重启时按INSERT IGNORE补写后删除
+     */
+    private void release(Segment segment) {
+        if (segment.appending > 0 || segment.persisted < segment.accepted) {
+            return;
+        }
+        try {
+            if (segment != current) {
+                segment.channel.close();
+                Files.deleteIfExists(segment.file);
+                segments.remove(segment.seq);
+                return;
+            }
+            if (segment.written == 0 || broken) {
+                return;
+            }
+            synchronized (syncLock) {
+                segment.channel.truncate(0);
+                segment.channel.position(0);
+                segment.channel.force(false);
+                segment.written = 0;
+                segment.synced = 0;
+            }
+        } catch (IOException e) {
+            log.warn("订单日志分段清理失败: segment={}", segment.file, e);
+        }
+    }
+
+    private void rotate() throws IOException {
+        Segment sealed = current;
+        current = openSegment(sealed.seq + 1);
+        release(sealed);
+    }
+
+    /**
+     * 恢复完成后删除启动前遗留的日志文件，不影响本次运行的分段
+     */
+    public void clear() throws IOException {
+        synchronized (appendLock) {
+            for (Path file : recovered) {
+                Files.deleteIfExists(file);
+            }
+            recovered.clear();
+        }
+    }
+
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+        }
+    }
+
+    private Segment openSegment(long seq) throws IOException {
+        Path file = path.resolveSibling(path.getFileName() + "." + seq);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        Segment segment = new Segment(seq, file, channel);
+        segments.put(seq, segment);
+        return segment;
+    }
+
+    private TreeMap<Long, Path> listSegments() throws IOException {
+        TreeMap<Long, Path> result = new TreeMap<>();
+        String prefix = path.getFileName() + ".";
+        Path dir = path.toAbsolutePath().getParent();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(prefix)) {
+                    try {
+                        result.put(Long.parseLong(name.substring(prefix.length())), file);
+                    } catch (NumberFormatException ignored) {
+                        // 不是日志分段
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 崩溃时写了一半的末行截掉
+     */
+    private static void truncateTornTail(Path file) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        int end = content.length;
+        while (end > 0 && content[end - 1] != '\n') {
+            end--;
+        }
+        if (end < content.length) {
+            log.warn("订单日志末行不完整，已截断: file={}, bytes={}", file, content.length - end);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+                channel.force(false);
+            }
+        }
+    }
+
+    private static final class Segment {
+        final long seq;
+        final Path file;
+        final FileChannel channel;
+        volatile long written;
+        volatile long synced;
+        long accepted;
+        long persisted;
+        int appending;
+
+        Segment(long seq, Path file, FileChannel channel) {
+            this.seq = seq;
+            this.file = file;
+            this.channel = channel;
+        }
+    }
+}
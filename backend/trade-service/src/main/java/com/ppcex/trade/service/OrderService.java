@@ -4,10 +4,14 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.ppcex.trade.entity.TradeOrder;
+import com.ppcex.trade.dto.OrderBatchResultVO;
 import com.ppcex.trade.dto.OrderCreateDTO;
+import com.ppcex.trade.dto.CursorPage;
 import com.ppcex.trade.dto.OrderCancelDTO;
+import com.ppcex.trade.dto.OrderExecutionDelta;
 import com.ppcex.trade.dto.OrderVO;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface OrderService extends IService<TradeOrder> {
@@ -16,10 +20,26 @@ public interface OrderService extends IService<TradeOrder> {
 
     OrderVO cancelOrder(Long userId, OrderCancelDTO orderCancelDTO);
 
+    /**
+     * 批量下单：整批一次准入判断、一次批量插入，按请求顺序返回每个订单的结果
+     */
+    List<OrderBatchResultVO> createOrders(Long userId, List<OrderCreateDTO> orders);
+
+    /**
+     * 批量撤单：一次查询取出全部订单、一次批量更新，按请求顺序返回每个订单的结果
+     */
+    List<OrderBatchResultVO> cancelOrders(Long userId, List<String> orderNos);
+
     OrderVO getOrderByOrderNo(String orderNo);
 
     IPage<OrderVO> getUserOrders(Page<TradeOrder> page, Long userId, String symbol, Integer status, Integer orderType);
 
+    /**
+     * 按(create_time, id)倒序游标分页，cursor为空时从最新一条开始；withTotal为true时才统计总数
+     */
+    CursorPage<OrderVO> getUserOrdersByCursor(Long userId, String symbol, Integer status, Integer orderType,
+                                              String cursor, int size, boolean withTotal);
+
     List<OrderVO> getUserActiveOrders(Long userId);
 
     List<OrderVO> getActiveOrdersBySymbol(String symbol);
@@ -28,5 +48,10 @@ public interface OrderService extends IService<TradeOrder> {
 
     boolean updateOrderExecution(Long orderId, java.math.BigDecimal executedAmount, java.math.BigDecimal executedValue, java.math.BigDecimal fee);
 
+    /**
+     * 按订单合并后的成交增量，一次JDBC批量原子更新
+     */
+    boolean applyExecutions(Collection<OrderExecutionDelta> deltas);
+
     String generateOrderNo();
 }
\ No newline at end of file
@@ -0,0 +1,266 @@
+package com.ppcex.trade.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.ppcex.trade.config.OrderProperties;
+import com.ppcex.trade.datasource.ReplicaLagMonitor;
+import com.ppcex.trade.entity.TradeOrder;
+import com.ppcex.trade.mapper.TradeOrderMapper;
+import com.ppcex.common.exception.BusinessException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 订单快速接收：订单写入本地日志并刷盘后即返回，由写入线程合并为多行插入异步落库，落库后按日志分段登记以便删除日志。
+ * 落库前订单可按订单号从内存查到；启动时把日志中的订单以INSERT IGNORE补写到数据库，
+ * 已落库的按订单号唯一键跳过，已归档的订单在热表中已删除，先按归档表排除。
+ */
+@Slf4j
+@Component
+public class OrderWriteBehind {
+
+    @Autowired
+    private TradeOrderMapper tradeOrderMapper;
+
+    @Autowired
+    private ActiveOrderIndex activeOrderIndex;
+
+    @Autowired
+    private OrderProperties orderProperties;
+
+    @Autowired
+    private OrderExpiryScheduler orderExpiryScheduler;
+
+    @Autowired
+    private ObjectProvider<ReplicaLagMonitor> replicaLagMonitor;
+
+    private OrderJournal journal;
+    private Semaphore capacity;
+    private final BlockingQueue<TradeOrder> buffer = new LinkedBlockingQueue<>();
+    private final Map<String, TradeOrder> pendingOrders = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Void>> persistedFutures = new ConcurrentHashMap<>();
+    /** 订单所在的日志分段 */
+    private final Map<String, Long> journalSegments = new ConcurrentHashMap<>();
+
+    private Thread writerThread;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!orderProperties.isFastAccept()) {
+            return;
+        }
+        journal = new OrderJournal(Path.of(orderProperties.getJournalPath()), orderProperties.getJournalSegmentBytes());
+        recover();
+        capacity = new Semaphore(orderProperties.getWriteBehindCapacity());
+        running = true;
+        writerThread = new Thread(this::writeLoop, "order-write-behind");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("订单快速接收已启用: journal={}", orderProperties.getJournalPath());
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * 订单写入日志并刷盘后返回，此后即使进程崩溃也会在重启时落库
+     */
+    public void accept(TradeOrder order) {
+        if (!running || !capacity.tryAcquire()) {
+            throw new BusinessException("系统繁忙，请稍后再试");
+        }
+        long segment;
+        try {
+            segment = journal.append(order);
+        } catch (IOException e) {
+            capacity.release();
+            log.error("订单日志写入失败: orderNo={}", order.getOrderNo(), e);
+            throw new BusinessException("订单创建失败");
+        }
+        journalSegments.put(order.getOrderNo(), segment);
+        persistedFutures.put(order.getOrderNo(), new CompletableFuture<>());
+        pendingOrders.put(order.getOrderNo(), order);
+        buffer.add(order);
+    }
+
+    /**
+     * 查询已接收但尚未落库的订单
+     */
+    public TradeOrder getPending(String orderNo) {
+        return pendingOrders.get(orderNo);
+    }
+
+    /**
+     * 等待指定订单落库，用于撤单等需要读库的操作；须在开启事务前调用，等待期间不占用数据库连接
+     */
+    public void awaitPersisted(String orderNo, long timeoutMillis) throws InterruptedException {
+        CompletableFuture<Void> future = persistedFutures.get(orderNo);
+        if (future == null) {
+            return;
+        }
+        try {
+            future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new BusinessException("订单处理中，请稍后再试");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void recover() throws IOException {
+        List<TradeOrder> journaled = journal.readAll();
+        if (journaled.isEmpty()) {
+            return;
+        }
+        int maxRows = orderProperties.getWriteBehindMaxRows();
+        int inserted = 0;
+        int archived = 0;
+        for (int from = 0; from < journaled.size(); from += maxRows) {
+            List<TradeOrder> chunk = new ArrayList<>(journaled.subList(from, Math.min(from + maxRows, journaled.size())));
+            // 已归档的订单在热表中已删除，唯一键挡不住，重新插入会让终态订单复活
+            Set<String> archivedOrderNos = new HashSet<>(tradeOrderMapper.selectArchivedOrderNos(
+                    chunk.stream().map(TradeOrder::getOrderNo).toList()));
+            if (!archivedOrderNos.isEmpty()) {
+                chunk.removeIf(order -> archivedOrderNos.contains(order.getOrderNo()));
+                archived += archivedOrderNos.size();
+            }
+            if (chunk.isEmpty()) {
+                continue;
+            }
+            inserted += tradeOrderMapper.insertBatch(chunk);
+            assignIds(chunk);
+            chunk.forEach(orderExpiryScheduler::schedule);
+        }
+        journal.clear();
+        if (inserted > 0) {
+            activeOrderIndex.rebuild();
+        }
+        log.info("订单日志恢复完成: journaled={}, inserted={}, archived={}", journaled.size(), inserted, archived);
+    }
+
+    private void writeLoop() {
+        int maxRows = orderProperties.getWriteBehindMaxRows();
+        long maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(orderProperties.getWriteBehindMaxDelayMillis());
+        List<TradeOrder> batch = new ArrayList<>(maxRows);
+
+        while (running || !buffer.isEmpty()) {
+            try {
+                TradeOrder first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxRows) {
+                    long remaining = deadline - System.nanoTime();
+                    TradeOrder next = remaining > 0 ? buffer.poll(remaining, TimeUnit.NANOSECONDS) : buffer.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("订单落库线程异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 已确认接收的订单不能丢弃，写库失败时退避后一直重试；进程退出时仍未落库的留在日志中，重启后补写
+     */
+    private void flush(List<TradeOrder> batch) throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                tradeOrderMapper.insertBatch(batch);
+                assignIds(batch);
+                break;
+            } catch (Exception e) {
+                log.warn("订单批量落库失败: rows={}, attempt={}", batch.size(), attempt + 1, e);
+                if (!running) {
+                    throw new InterruptedException("订单落库线程停止");
+                }
+                Thread.sleep(Math.min(50L << Math.min(attempt, 6), 3000L));
+            }
+        }
+
+        // 写入线程没有用户上下文，路由数据源记不到这次写入，按订单用户补记供读己之写判断
+        ReplicaLagMonitor lagMonitor = replicaLagMonitor.getIfAvailable();
+        Map<Long, Integer> persistedBySegment = new HashMap<>();
+        for (TradeOrder order : batch) {
+            if (lagMonitor != null) {
+                lagMonitor.recordWrite(order.getUserId());
+            }
+            activeOrderIndex.upsert(order);
+            orderExpiryScheduler.schedule(order);
+            pendingOrders.remove(order.getOrderNo());
+            CompletableFuture<Void> future = persistedFutures.remove(order.getOrderNo());
+            if (future != null) {
+                future.complete(null);
+            }
+            Long segment = journalSegments.remove(order.getOrderNo());
+            if (segment != null) {
+                persistedBySegment.merge(segment, 1, Integer::sum);
+            }
+        }
+        persistedBySegment.forEach(journal::markPersisted);
+        capacity.release(batch.size());
+    }
+
+    /**
+     * 自增主键在插入后按订单号回查
+     */
+    private void assignIds(List<TradeOrder> batch) {
+        Map<String, TradeOrder> byOrderNo = new HashMap<>(batch.size() * 2);
+        for (TradeOrder order : batch) {
+            byOrderNo.put(order.getOrderNo(), order);
+        }
+        List<TradeOrder> rows = tradeOrderMapper.selectList(new QueryWrapper<TradeOrder>()
+                .select("id", "order_no")
+                .in("order_no", byOrderNo.keySet()));
+        for (TradeOrder row : rows) {
+            byOrderNo.get(row.getOrderNo()).setId(row.getId());
+        }
+    }
+
+    /**
+     * 停止接收新订单，写完缓冲中已有的订单后退出
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        if (journal == null) {
+            return;
+        }
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        journal.close();
+        log.info("订单落库线程已停止: remaining={}", buffer.size());
+    }
+}
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.ppcex.trade.entity.TradeDetail;
+import com.ppcex.trade.dto.CursorPage;
 import com.ppcex.trade.dto.TradeDetailVO;
 
 import java.util.List;
@@ -12,6 +13,12 @@ public interface TradeDetailService extends IService<TradeDetail> {
 
     IPage<TradeDetailVO> getTradeDetailPage(Page<TradeDetail> page, Long userId, String symbol, String startTime, String endTime);
 
+    /**
+     * 按(create_time, id)倒序游标分页，cursor为空时从最新一条开始；withTotal为true时才统计总数
+     */
+    CursorPage<TradeDetailVO> getTradeDetailsByCursor(Long userId, String symbol, String startTime, String endTime,
+                                                      String cursor, int size, boolean withTotal);
+
     List<TradeDetailVO> getRecentTradesBySymbol(String symbol, Integer limit);
 
     List<TradeDetailVO> getUserTrades(Long userId, String symbol);
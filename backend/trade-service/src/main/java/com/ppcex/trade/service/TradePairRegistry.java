@@ -0,0 +1,118 @@
+package com.ppcex.trade.service;
+
+import com.ppcex.trade.config.TradePairProperties;
+import com.ppcex.trade.dto.TradePairVO;
+import com.ppcex.trade.mapper.TradePairMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内交易对注册表：启动时全量加载，收到PAIR_UPDATED消息或轮询到表版本变化时整体替换。
+ * 查询只读一个不可变Map，不访问数据库；快照中的对象不对外暴露，每次查询返回副本，调用方修改不影响快照。
+ */
+@Slf4j
+@Component
+public class TradePairRegistry {
+
+    @Autowired
+    private TradePairMapper tradePairMapper;
+
+    @Autowired
+    private TradePairProperties tradePairProperties;
+
+    private volatile Map<String, TradePairVO> pairsBySymbol = Map.of();
+    private volatile String version;
+
+    private ScheduledExecutorService versionPoller;
+
+    @PostConstruct
+    public void init() {
+        reload();
+        versionPoller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "trade-pair-registry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = tradePairProperties.getPollIntervalSeconds();
+        versionPoller.scheduleWithFixedDelay(this::pollVersion, interval, interval, TimeUnit.SECONDS);
+    }
+
+    public TradePairVO get(String symbol) {
+        TradePairVO pair = symbol != null ? pairsBySymbol.get(symbol) : null;
+        return pair != null ? copyOf(pair) : null;
+    }
+
+    public Map<String, TradePairVO> getAll() {
+        Map<String, TradePairVO> copies = new HashMap<>(pairsBySymbol.size() * 2);
+        pairsBySymbol.forEach((symbol, pair) -> copies.put(symbol, copyOf(pair)));
+        return copies;
+    }
+
+    /**
+     * 全量重新加载并替换快照，加载失败时保留旧快照
+     */
+    public synchronized void reload() {
+        try {
+            String currentVersion = tradePairMapper.selectTradePairVersion();
+            List<TradePairVO> pairs = tradePairMapper.selectAllTradePairVOs();
+            Map<String, TradePairVO> loaded = new HashMap<>(pairs.size() * 2);
+            for (TradePairVO pair : pairs) {
+                loaded.put(pair.getSymbol(), pair);
+            }
+            pairsBySymbol = Map.copyOf(loaded);
+            version = currentVersion;
+            log.info("交易对注册表已加载: count={}, version={}", loaded.size(), currentVersion);
+        } catch (Exception e) {
+            log.error("交易对注册表加载失败，继续使用旧数据: count={}", pairsBySymbol.size(), e);
+        }
+    }
+
+    private static TradePairVO copyOf(TradePairVO pair) {
+        TradePairVO copy = new TradePairVO();
+        copy.setId(pair.getId());
+        copy.setSymbol(pair.getSymbol());
+        copy.setBaseCoin(pair.getBaseCoin());
+        copy.setQuoteCoin(pair.getQuoteCoin());
+        copy.setPairName(pair.getPairName());
+        copy.setStatus(pair.getStatus());
+        copy.setPricePrecision(pair.getPricePrecision());
+        copy.setAmountPrecision(pair.getAmountPrecision());
+        copy.setMinAmount(pair.getMinAmount());
+        copy.setMaxAmount(pair.getMaxAmount());
+        copy.setMinPrice(pair.getMinPrice());
+        copy.setMaxPrice(pair.getMaxPrice());
+        copy.setFeeRate(pair.getFeeRate());
+        copy.setSortOrder(pair.getSortOrder());
+        return copy;
+    }
+
+    private void pollVersion() {
+        try {
+            String currentVersion = tradePairMapper.selectTradePairVersion();
+            if (!Objects.equals(currentVersion, version)) {
+                log.info("交易对表版本变化: {} -> {}", version, currentVersion);
+                reload();
+            }
+        } catch (Exception e) {
+            log.warn("交易对表版本查询失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (versionPoller != null) {
+            versionPoller.shutdownNow();
+        }
+    }
+}
@@ -4,26 +4,44 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.ppcex.trade.config.ArchiveProperties;
+import com.ppcex.trade.config.OrderProperties;
+import com.ppcex.trade.datasource.ReplicaRead;
 import com.ppcex.trade.entity.TradeOrder;
 import com.ppcex.trade.mapper.TradeOrderMapper;
+import com.ppcex.trade.service.ActiveOrderIndex;
+import com.ppcex.trade.service.OrderAdmission;
+import com.ppcex.trade.service.OrderExpiryScheduler;
 import com.ppcex.trade.service.OrderService;
+import com.ppcex.trade.service.OrderWriteBehind;
 import com.ppcex.trade.service.TradePairService;
+import com.ppcex.trade.shard.SymbolRouter;
+import com.ppcex.trade.dto.OrderBatchResultVO;
 import com.ppcex.trade.dto.OrderCreateDTO;
+import com.ppcex.trade.dto.CursorPage;
 import com.ppcex.trade.dto.OrderCancelDTO;
+import com.ppcex.trade.dto.OrderExecutionDelta;
 import com.ppcex.trade.dto.OrderVO;
+import com.ppcex.trade.dto.PageCursor;
 import com.ppcex.trade.dto.TradePairVO;
 import com.ppcex.common.exception.BusinessException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 @Service
@@ -33,68 +51,145 @@ public class OrderServiceImpl extends ServiceImpl<TradeOrderMapper, TradeOrder>
     private TradePairService tradePairService;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private OrderAdmission orderAdmission;
+
+    @Autowired
+    private ActiveOrderIndex activeOrderIndex;
+
+    @Autowired
+    private ArchiveProperties archiveProperties;
+
+    @Autowired
+    private OrderWriteBehind orderWriteBehind;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private OrderProperties orderProperties;
+
+    @Autowired
+    private OrderExpiryScheduler orderExpiryScheduler;
+
+    @Lazy
+    @Autowired
+    private SymbolRouter symbolRouter;
 
-    private static final String ORDER_LOCK_PREFIX = "order:lock:";
     private static final String ORDER_NO_PREFIX = "ORD";
-    private static final String ORDER_RATE_LIMIT_PREFIX = "order:rate:";
+
+    private static final long PENDING_ORDER_WAIT_MILLIS = 3000;
+
+    private static final String CANCEL_NOT_APPLIED = "订单状态已变更，请刷新后重试";
 
     @Override
-    @Transactional
     public OrderVO createOrder(Long userId, OrderCreateDTO orderCreateDTO) {
-        try {
-            String lockKey = ORDER_LOCK_PREFIX + userId;
-            Boolean locked = redisTemplate.opsForValue().setIfAbsent(lockKey, "1", 30, TimeUnit.SECONDS);
-            if (Boolean.FALSE.equals(locked)) {
-                throw new BusinessException("订单创建过于频繁，请稍后再试");
-            }
+        TradePairVO tradePair = tradePairService.getTradePairBySymbol(orderCreateDTO.getSymbol());
+        if (tradePair == null) {
+            throw new BusinessException("交易对不存在");
+        }
+        if (tradePair.getStatus() != 1) {
+            throw new BusinessException("交易对已暂停");
+        }
 
-            if (!checkRateLimit(userId)) {
-                throw new BusinessException("订单创建频率超限，请稍后再试");
-            }
+        validateOrder(orderCreateDTO, tradePair);
 
+        String orderNo = generateOrderNo();
+        if (!orderAdmission.tryAdmit(userId, orderNo)) {
+            throw new BusinessException("订单创建频率超限，请稍后再试");
+        }
+
+        TradeOrder order = buildOrder(userId, orderNo, orderCreateDTO);
+
+        if (orderWriteBehind.isEnabled()) {
+            // 快速接收：日志刷盘即返回，订单ID在落库后生成
+            orderWriteBehind.accept(order);
+        } else {
+            transactionTemplate.executeWithoutResult(status -> {
+                save(order);
+                activeOrderIndex.upsert(order);
+            });
+            orderExpiryScheduler.schedule(order);
+        }
+
+        return toOrderVO(order, tradePair);
+    }
+
+    @Override
+    public List<OrderBatchResultVO> createOrders(Long userId, List<OrderCreateDTO> orderCreateDTOs) {
+        checkBatchSize(orderCreateDTOs.size());
+        OrderBatchResultVO[] results = new OrderBatchResultVO[orderCreateDTOs.size()];
+
+        // 逐项校验，未通过的直接记为失败，不占用准入额度
+        List<Integer> validIndexes = new ArrayList<>();
+        List<String> orderNos = new ArrayList<>();
+        Map<Integer, TradePairVO> tradePairs = new HashMap<>();
+        for (int i = 0; i < orderCreateDTOs.size(); i++) {
+            OrderCreateDTO orderCreateDTO = orderCreateDTOs.get(i);
             TradePairVO tradePair = tradePairService.getTradePairBySymbol(orderCreateDTO.getSymbol());
-            if (tradePair == null) {
-                throw new BusinessException("交易对不存在");
+            try {
+                if (tradePair == null) {
+                    throw new BusinessException("交易对不存在");
+                }
+                if (tradePair.getStatus() != 1) {
+                    throw new BusinessException("交易对已暂停");
+                }
+                validateOrder(orderCreateDTO, tradePair);
+            } catch (BusinessException | IllegalArgumentException e) {
+                results[i] = OrderBatchResultVO.failure(i, e.getMessage());
+                continue;
             }
-            if (tradePair.getStatus() != 1) {
-                throw new BusinessException("交易对已暂停");
+            String orderNo = generateOrderNo();
+            while (orderNos.contains(orderNo)) {
+                orderNo = generateOrderNo();
             }
+            validIndexes.add(i);
+            orderNos.add(orderNo);
+            tradePairs.put(i, tradePair);
+        }
 
-            validateOrder(orderCreateDTO, tradePair);
-
-            TradeOrder order = new TradeOrder();
-            BeanUtils.copyProperties(orderCreateDTO, order);
-            order.setUserId(userId);
-            order.setOrderNo(generateOrderNo());
-            order.setStatus(1);
-            order.setExecutedAmount(BigDecimal.ZERO);
-            order.setExecutedValue(BigDecimal.ZERO);
-            order.setFee(BigDecimal.ZERO);
-            order.setCreateTime(LocalDateTime.now());
-            order.setUpdateTime(LocalDateTime.now());
-
-            if (order.getTimeInForce() == 3) {
-                order.setExpireTime(LocalDateTime.now().plusMinutes(5));
+        int admitted = orderAdmission.tryAdmitBatch(userId, orderNos);
+        Map<Integer, TradeOrder> orders = new HashMap<>();
+        for (int k = 0; k < validIndexes.size(); k++) {
+            int index = validIndexes.get(k);
+            if (k >= admitted) {
+                results[index] = OrderBatchResultVO.failure(index, "订单创建频率超限，请稍后再试");
+                continue;
             }
+            TradeOrder order = buildOrder(userId, orderNos.get(k), orderCreateDTOs.get(index));
+            if (orderWriteBehind.isEnabled()) {
+                try {
+                    orderWriteBehind.accept(order);
+                } catch (BusinessException e) {
+                    results[index] = OrderBatchResultVO.failure(index, e.getMessage());
+                    continue;
+                }
+            }
+            orders.put(index, order);
+        }
 
-            save(order);
-
-            OrderVO orderVO = new OrderVO();
-            BeanUtils.copyProperties(order, orderVO);
-            orderVO.setPairName(tradePair.getPairName());
-            orderVO.setStatusDesc(getOrderStatusDesc(order.getStatus()));
-
-            return orderVO;
-        } finally {
-            String lockKey = ORDER_LOCK_PREFIX + userId;
-            redisTemplate.delete(lockKey);
+        if (!orders.isEmpty() && !orderWriteBehind.isEnabled()) {
+            // rewriteBatchedStatements开启时驱动把整批改写为一条多行插入
+            transactionTemplate.executeWithoutResult(status -> {
+                saveBatch(orders.values(), orders.size());
+                orders.values().forEach(activeOrderIndex::upsert);
+            });
+            orders.values().forEach(orderExpiryScheduler::schedule);
         }
+
+        orders.forEach((index, order) ->
+                results[index] = OrderBatchResultVO.success(index, toOrderVO(order, tradePairs.get(index))));
+        log.info("批量下单完成: userId={}, requested={}, accepted={}", userId, orderCreateDTOs.size(), orders.size());
+        return List.of(results);
     }
 
     @Override
-    @Transactional
     public OrderVO cancelOrder(Long userId, OrderCancelDTO orderCancelDTO) {
+        // 先等订单落库、移出订单簿，再开事务撤销，等待期间不占用连接
+        awaitPersisted(orderCancelDTO.getOrderNo());
+        return doCancelOrder(userId, orderCancelDTO);
+    }
+
+    private OrderVO doCancelOrder(Long userId, OrderCancelDTO orderCancelDTO) {
         TradeOrder order = getOne(new QueryWrapper<TradeOrder>()
                 .eq("order_no", orderCancelDTO.getOrderNo())
                 .eq("user_id", userId));
@@ -111,10 +206,9 @@ public class OrderServiceImpl extends ServiceImpl<TradeOrderMapper, TradeOrder>
             throw new BusinessException("订单已完成，不可取消");
         }
 
-        order.setStatus(4);
-        order.setCancelTime(LocalDateTime.now());
-        order.setUpdateTime(LocalDateTime.now());
-        updateById(order);
+        if (cancelOpenOrders(List.of(order)).isEmpty()) {
+            throw new BusinessException(CANCEL_NOT_APPLIED);
+        }
 
         OrderVO orderVO = new OrderVO();
         BeanUtils.copyProperties(order, orderVO);
@@ -124,23 +218,156 @@ public class OrderServiceImpl extends ServiceImpl<TradeOrderMapper, TradeOrder>
     }
 
     @Override
+    public List<OrderBatchResultVO> cancelOrders(Long userId, List<String> orderNos) {
+        checkBatchSize(orderNos.size());
+        orderNos.forEach(this::awaitPersisted);
+
+        Map<String, TradeOrder> orders = new HashMap<>();
+        for (TradeOrder order : list(new QueryWrapper<TradeOrder>()
+                .in("order_no", orderNos)
+                .eq("user_id", userId))) {
+            orders.put(order.getOrderNo(), order);
+        }
+
+        OrderBatchResultVO[] results = new OrderBatchResultVO[orderNos.size()];
+        List<TradeOrder> candidates = new ArrayList<>();
+        List<Integer> candidateIndexes = new ArrayList<>();
+        for (int i = 0; i < orderNos.size(); i++) {
+            // 同一订单号重复出现时只处理第一次
+            TradeOrder order = orders.remove(orderNos.get(i));
+            if (order == null) {
+                results[i] = OrderBatchResultVO.failure(i,
+                        orderNos.subList(0, i).contains(orderNos.get(i)) ? "订单编号重复" : "订单不存在");
+            } else if (order.getStatus() == 4) {
+                results[i] = OrderBatchResultVO.failure(i, "订单已取消");
+            } else if (order.getStatus() == 3) {
+                results[i] = OrderBatchResultVO.failure(i, "订单已完成，不可取消");
+            } else {
+                candidates.add(order);
+                candidateIndexes.add(i);
+            }
+        }
+
+        Set<Long> cancelled = candidates.isEmpty() ? Collections.emptySet() : cancelOpenOrders(candidates);
+        for (int k = 0; k < candidates.size(); k++) {
+            int index = candidateIndexes.get(k);
+            TradeOrder order = candidates.get(k);
+            if (!cancelled.contains(order.getId())) {
+                results[index] = OrderBatchResultVO.failure(index, CANCEL_NOT_APPLIED);
+                continue;
+            }
+            OrderVO orderVO = new OrderVO();
+            BeanUtils.copyProperties(order, orderVO);
+            orderVO.setStatusDesc(getOrderStatusDesc(orderVO.getStatus()));
+            results[index] = OrderBatchResultVO.success(index, orderVO);
+        }
+        log.info("批量撤单完成: userId={}, requested={}, cancelled={}", userId, orderNos.size(), cancelled.size());
+        return List.of(results);
+    }
+
+    /**
+     * 先在撮合线程上把订单移出订单簿，之后不会再有新的成交；再锁定仍在挂单的行按状态条件撤销，
+     * 期间已全部成交或已被撤销的订单不改动。返回实际撤销的订单ID，并把这些订单的状态改为已撤销
+     */
+    private Set<Long> cancelOpenOrders(List<TradeOrder> orders) {
+        List<TradeOrder> removed = symbolRouter.removeFromBooks(orders);
+        if (removed.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<Long> ids = new ArrayList<>(removed.size());
+        removed.forEach(order -> ids.add(order.getId()));
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> cancelled = transactionTemplate.execute(status -> {
+            Set<Long> locked = new HashSet<>();
+            baseMapper.selectCancellableOrders(ids).forEach(order -> locked.add(order.getId()));
+            if (!locked.isEmpty()) {
+                baseMapper.cancelOrders(new ArrayList<>(locked), now);
+            }
+            return locked;
+        });
+        for (TradeOrder order : removed) {
+            if (cancelled.contains(order.getId())) {
+                order.setStatus(4);
+                order.setCancelTime(now);
+                order.setUpdateTime(now);
+            }
+            // 撤销失败的订单已离开订单簿，索引同样按数据库回读
+            activeOrderIndex.remove(order);
+        }
+        return cancelled;
+    }
+
+    @Override
+    @ReplicaRead(readYourWrites = true)
     public OrderVO getOrderByOrderNo(String orderNo) {
-        return baseMapper.selectOrderVOByOrderNo(orderNo);
+        TradeOrder pending = orderWriteBehind.isEnabled() ? orderWriteBehind.getPending(orderNo) : null;
+        if (pending != null) {
+            OrderVO orderVO = new OrderVO();
+            BeanUtils.copyProperties(pending, orderVO);
+            TradePairVO tradePair = tradePairService.getTradePairBySymbol(pending.getSymbol());
+            orderVO.setPairName(tradePair != null ? tradePair.getPairName() : null);
+            orderVO.setStatusDesc(getOrderStatusDesc(pending.getStatus()));
+            return orderVO;
+        }
+        OrderVO order = baseMapper.selectOrderVOByOrderNo(orderNo);
+        if (order == null && archiveProperties.isEnabled()) {
+            order = baseMapper.selectArchivedOrderVOByOrderNo(orderNo);
+        }
+        return order;
     }
 
     @Override
+    @ReplicaRead(readYourWrites = true)
     public IPage<OrderVO> getUserOrders(Page<TradeOrder> page, Long userId, String symbol, Integer status, Integer orderType) {
         return baseMapper.selectOrderVOPage(page, userId, symbol, status, orderType);
     }
 
+    @Override
+    @ReplicaRead(readYourWrites = true)
+    public CursorPage<OrderVO> getUserOrdersByCursor(Long userId, String symbol, Integer status, Integer orderType,
+                                                     String cursor, int size, boolean withTotal) {
+        PageCursor position = PageCursor.decode(cursor);
+        LocalDateTime cursorTime = position != null ? position.getCreateTime() : null;
+        Long cursorId = position != null ? position.getId() : null;
+        List<OrderVO> records = baseMapper.selectOrderVOByCursor(userId, symbol, status, orderType,
+                cursorTime, cursorId, size + 1, false);
+
+        // 热表结果不足一页，或这一页已经越过热表边界时，才需要合并冷表
+        if (archiveProperties.isEnabled() && (records.size() <= size
+                || records.get(records.size() - 1).getCreateTime().isBefore(archiveProperties.hotBoundary()))) {
+            List<OrderVO> archived = baseMapper.selectOrderVOByCursor(userId, symbol, status, orderType,
+                    cursorTime, cursorId, size + 1, true);
+            records = PageCursor.mergeDescending(records, archived, OrderVO::getCreateTime, OrderVO::getId, size + 1);
+        }
+
+        boolean hasMore = records.size() > size;
+        if (hasMore) {
+            records = records.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            OrderVO last = records.get(records.size() - 1);
+            nextCursor = new PageCursor(last.getCreateTime(), last.getId()).encode();
+        }
+        records.forEach(order -> order.setStatusDesc(getOrderStatusDesc(order.getStatus())));
+        Long total = null;
+        if (withTotal) {
+            total = baseMapper.countOrders(userId, symbol, status, orderType, false);
+            if (archiveProperties.isEnabled()) {
+                total += baseMapper.countOrders(userId, symbol, status, orderType, true);
+            }
+        }
+        return new CursorPage<>(records, nextCursor, hasMore, total);
+    }
+
     @Override
     public List<OrderVO> getUserActiveOrders(Long userId) {
-        return baseMapper.selectUserActiveOrders(userId);
+        return activeOrderIndex.getUserActiveOrders(userId);
     }
 
     @Override
     public List<OrderVO> getActiveOrdersBySymbol(String symbol) {
-        return baseMapper.selectActiveOrdersBySymbol(symbol);
+        return activeOrderIndex.getActiveOrdersBySymbol(symbol);
     }
 
     @Override
@@ -149,28 +376,34 @@ public class OrderServiceImpl extends ServiceImpl<TradeOrderMapper, TradeOrder>
         order.setId(orderId);
         order.setStatus(status);
         order.setUpdateTime(LocalDateTime.now());
-        return updateById(order);
+        boolean updated = updateById(order);
+        if (updated) {
+            activeOrderIndex.updateStatus(orderId, status);
+        }
+        return updated;
     }
 
     @Override
     public boolean updateOrderExecution(Long orderId, BigDecimal executedAmount, BigDecimal executedValue, BigDecimal fee) {
-        TradeOrder order = getById(orderId);
-        if (order == null) {
-            return false;
+        OrderExecutionDelta delta = new OrderExecutionDelta(orderId, executedAmount, executedValue, fee);
+        boolean updated = baseMapper.applyExecution(delta) > 0;
+        if (updated) {
+            activeOrderIndex.applyExecutions(List.of(delta));
         }
+        return updated;
+    }
 
-        order.setExecutedAmount(order.getExecutedAmount().add(executedAmount));
-        order.setExecutedValue(order.getExecutedValue().add(executedValue));
-        order.setFee(order.getFee().add(fee));
-        order.setUpdateTime(LocalDateTime.now());
-
-        if (order.getExecutedAmount().compareTo(order.getAmount()) >= 0) {
-            order.setStatus(3);
-        } else {
-            order.setStatus(2);
+    @Override
+    public boolean applyExecutions(Collection<OrderExecutionDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return true;
         }
-
-        return updateById(order);
+        String statement = TradeOrderMapper.class.getName() + ".applyExecution";
+        boolean updated = executeBatch(deltas, DEFAULT_BATCH_SIZE, (sqlSession, delta) -> sqlSession.update(statement, delta));
+        if (updated) {
+            activeOrderIndex.applyExecutions(deltas);
+        }
+        return updated;
     }
 
     @Override
@@ -178,6 +411,50 @@ public class OrderServiceImpl extends ServiceImpl<TradeOrderMapper, TradeOrder>
         return ORDER_NO_PREFIX + System.currentTimeMillis() + String.format("%04d", (int)(Math.random() * 10000));
     }
 
+    private TradeOrder buildOrder(Long userId, String orderNo, OrderCreateDTO orderCreateDTO) {
+        TradeOrder order = new TradeOrder();
+        BeanUtils.copyProperties(orderCreateDTO, order);
+        order.setUserId(userId);
+        order.setOrderNo(orderNo);
+        order.setStatus(1);
+        order.setExecutedAmount(BigDecimal.ZERO);
+        order.setExecutedValue(BigDecimal.ZERO);
+        order.setFee(BigDecimal.ZERO);
+        order.setCreateTime(LocalDateTime.now());
+        order.setUpdateTime(LocalDateTime.now());
+
+        if (order.getTimeInForce() == 3) {
+            order.setExpireTime(LocalDateTime.now().plusMinutes(5));
+        }
+        return order;
+    }
+
+    private OrderVO toOrderVO(TradeOrder order, TradePairVO tradePair) {
+        OrderVO orderVO = new OrderVO();
+        BeanUtils.copyProperties(order, orderVO);
+        orderVO.setPairName(tradePair.getPairName());
+        orderVO.setStatusDesc(getOrderStatusDesc(order.getStatus()));
+        return orderVO;
+    }
+
+    private void checkBatchSize(int size) {
+        if (size > orderProperties.getBatchMaxSize()) {
+            throw new BusinessException("单次最多提交 " + orderProperties.getBatchMaxSize() + " 个订单");
+        }
+    }
+
+    private void awaitPersisted(String orderNo) {
+        if (!orderWriteBehind.isEnabled()) {
+            return;
+        }
+        try {
+            orderWriteBehind.awaitPersisted(orderNo, PENDING_ORDER_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("订单处理中，请稍后再试");
+        }
+    }
+
     private void validateOrder(OrderCreateDTO orderCreateDTO, TradePairVO tradePair) {
         if (orderCreateDTO.getAmount().compareTo(tradePair.getMinAmount()) < 0) {
             throw new BusinessException("订单数量不能小于最小数量 " + tradePair.getMinAmount());
@@ -203,20 +480,6 @@ public class OrderServiceImpl extends ServiceImpl<TradeOrderMapper, TradeOrder>
         }
     }
 
-    private boolean checkRateLimit(Long userId) {
-        String key = ORDER_RATE_LIMIT_PREFIX + userId;
-        Integer count = (Integer) redisTemplate.opsForValue().get(key);
-        if (count == null) {
-            redisTemplate.opsForValue().set(key, 1, 1, TimeUnit.MINUTES);
-            return true;
-        } else if (count < 10) {
-            redisTemplate.opsForValue().increment(key);
-            return true;
-        } else {
-            return false;
-        }
-    }
-
     private String getOrderStatusDesc(Integer status) {
         switch (status) {
             case 1: return "待成交";
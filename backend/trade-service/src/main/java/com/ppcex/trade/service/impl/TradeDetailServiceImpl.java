@@ -3,10 +3,15 @@ package com.ppcex.trade.service.impl;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.ppcex.trade.config.ArchiveProperties;
+import com.ppcex.trade.datasource.ReplicaRead;
 import com.ppcex.trade.entity.TradeDetail;
 import com.ppcex.trade.mapper.TradeDetailMapper;
 import com.ppcex.trade.service.TradeDetailService;
+import com.ppcex.trade.dto.CursorPage;
+import com.ppcex.trade.dto.PageCursor;
 import com.ppcex.trade.dto.TradeDetailVO;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -15,17 +20,61 @@ import java.util.List;
 @Service
 public class TradeDetailServiceImpl extends ServiceImpl<TradeDetailMapper, TradeDetail> implements TradeDetailService {
 
+    @Autowired
+    private ArchiveProperties archiveProperties;
+
     @Override
+    @ReplicaRead
     public IPage<TradeDetailVO> getTradeDetailPage(Page<TradeDetail> page, Long userId, String symbol, String startTime, String endTime) {
         return baseMapper.selectTradeDetailVOPage(page, userId, symbol, startTime, endTime);
     }
 
     @Override
+    @ReplicaRead
+    public CursorPage<TradeDetailVO> getTradeDetailsByCursor(Long userId, String symbol, String startTime, String endTime,
+                                                             String cursor, int size, boolean withTotal) {
+        PageCursor position = PageCursor.decode(cursor);
+        LocalDateTime cursorTime = position != null ? position.getCreateTime() : null;
+        Long cursorId = position != null ? position.getId() : null;
+        List<TradeDetailVO> records = baseMapper.selectTradeDetailVOByCursor(userId, symbol, startTime, endTime,
+                cursorTime, cursorId, size + 1, false);
+
+        // 热表结果不足一页，或这一页已经越过热表边界时，才需要合并冷表
+        if (archiveProperties.isEnabled() && (records.size() <= size
+                || records.get(records.size() - 1).getCreateTime().isBefore(archiveProperties.hotBoundary()))) {
+            List<TradeDetailVO> archived = baseMapper.selectTradeDetailVOByCursor(userId, symbol, startTime, endTime,
+                    cursorTime, cursorId, size + 1, true);
+            records = PageCursor.mergeDescending(records, archived, TradeDetailVO::getCreateTime, TradeDetailVO::getId,
+                    size + 1);
+        }
+
+        boolean hasMore = records.size() > size;
+        if (hasMore) {
+            records = records.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            TradeDetailVO last = records.get(records.size() - 1);
+            nextCursor = new PageCursor(last.getCreateTime(), last.getId()).encode();
+        }
+        Long total = null;
+        if (withTotal) {
+            total = baseMapper.countTradeDetails(userId, symbol, startTime, endTime, false);
+            if (archiveProperties.isEnabled()) {
+                total += baseMapper.countTradeDetails(userId, symbol, startTime, endTime, true);
+            }
+        }
+        return new CursorPage<>(records, nextCursor, hasMore, total);
+    }
+
+    @Override
+    @ReplicaRead
     public List<TradeDetailVO> getRecentTradesBySymbol(String symbol, Integer limit) {
         return baseMapper.selectRecentTradesBySymbol(symbol, limit != null ? limit : 50);
     }
 
     @Override
+    @ReplicaRead
     public List<TradeDetailVO> getUserTrades(Long userId, String symbol) {
         return baseMapper.selectUserTrades(userId, symbol);
     }
@@ -5,9 +5,12 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.ppcex.trade.entity.TradePair;
 import com.ppcex.trade.mapper.TradePairMapper;
+import com.ppcex.trade.mq.OrderMessageProducer;
+import com.ppcex.trade.service.TradePairRegistry;
 import com.ppcex.trade.service.TradePairService;
 import com.ppcex.trade.dto.TradePairVO;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -16,6 +19,12 @@ import java.util.List;
 @Service
 public class TradePairServiceImpl extends ServiceImpl<TradePairMapper, TradePair> implements TradePairService {
 
+    @Autowired
+    private TradePairRegistry tradePairRegistry;
+
+    @Autowired
+    private OrderMessageProducer orderMessageProducer;
+
     @Override
     public IPage<TradePairVO> getTradePairPage(Page<TradePair> page, String symbol, Integer status) {
         return baseMapper.selectTradePairVOPage(page, symbol, status);
@@ -28,7 +37,7 @@ public class TradePairServiceImpl extends ServiceImpl<TradePairMapper, TradePair
 
     @Override
     public TradePairVO getTradePairBySymbol(String symbol) {
-        return baseMapper.selectTradePairVOBySymbol(symbol);
+        return tradePairRegistry.get(symbol);
     }
 
     @Override
@@ -45,18 +54,39 @@ public class TradePairServiceImpl extends ServiceImpl<TradePairMapper, TradePair
     @Override
     public boolean addTradePair(TradePair tradePair) {
         validateTradePair(tradePair);
-        return save(tradePair);
+        boolean saved = save(tradePair);
+        if (saved) {
+            onTradePairChanged(tradePair.getSymbol());
+        }
+        return saved;
     }
 
     @Override
     public boolean updateTradePair(TradePair tradePair) {
         validateTradePair(tradePair);
-        return updateById(tradePair);
+        boolean updated = updateById(tradePair);
+        if (updated) {
+            onTradePairChanged(tradePair.getSymbol());
+        }
+        return updated;
     }
 
     @Override
     public boolean deleteTradePair(Long id) {
-        return removeById(id);
+        TradePair tradePair = getById(id);
+        boolean removed = removeById(id);
+        if (removed && tradePair != null) {
+            onTradePairChanged(tradePair.getSymbol());
+        }
+        return removed;
+    }
+
+    /**
+     * 本实例立即重新加载，其他实例通过PAIR_UPDATED消息或版本轮询刷新
+     */
+    private void onTradePairChanged(String symbol) {
+        tradePairRegistry.reload();
+        orderMessageProducer.sendPairUpdatedMessage(symbol);
     }
 
     private void validateTradePair(TradePair tradePair) {
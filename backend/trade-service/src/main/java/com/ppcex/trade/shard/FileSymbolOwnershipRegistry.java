@@ -0,0 +1,65 @@
+package com.ppcex.trade.shard;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 文件注册表：各实例读取同一个properties文件（共享存储或由部署工具分发），写入时先写临时文件再原子替换
+ */
+@Slf4j
+public class FileSymbolOwnershipRegistry implements SymbolOwnershipRegistry {
+
+    private final Path path;
+
+    public FileSymbolOwnershipRegistry(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public Map<String, String> load() {
+        if (!Files.exists(path)) {
+            return Map.of();
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取交易对归属文件失败: " + path, e);
+        }
+        Map<String, String> owners = new HashMap<>();
+        properties.forEach((symbol, instanceId) -> owners.put(symbol.toString(), instanceId.toString().trim()));
+        return owners;
+    }
+
+    @Override
+    public synchronized void assign(String symbol, String instanceId) {
+        Map<String, String> owners = new HashMap<>(load());
+        owners.put(symbol, instanceId);
+        Properties properties = new Properties();
+        properties.putAll(owners);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "symbol=instanceId");
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入交易对归属文件失败: " + path, e);
+        }
+        log.info("交易对归属已写入: symbol={}, instanceId={}", symbol, instanceId);
+    }
+}
@@ -0,0 +1,22 @@
+package com.ppcex.trade.shard;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内注册表，只在单进程内有效，用于测试和本地调试
+ */
+public class InMemorySymbolOwnershipRegistry implements SymbolOwnershipRegistry {
+
+    private final Map<String, String> owners = new ConcurrentHashMap<>();
+
+    @Override
+    public Map<String, String> load() {
+        return Map.copyOf(owners);
+    }
+
+    @Override
+    public void assign(String symbol, String instanceId) {
+        owners.put(symbol, instanceId);
+    }
+}
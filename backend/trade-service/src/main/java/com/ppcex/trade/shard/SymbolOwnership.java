@@ -0,0 +1,231 @@
+package com.ppcex.trade.shard;
+
+import com.ppcex.trade.config.ShardingProperties;
+import com.ppcex.trade.dto.OrderVO;
+import com.ppcex.trade.engine.MatchingEngine;
+import com.ppcex.trade.entity.TradeOrder;
+import com.ppcex.trade.mapper.TradeOrderMapper;
+import com.ppcex.trade.security.InternalTokenFilter;
+import com.ppcex.common.exception.BusinessException;
+import com.ppcex.common.response.Result;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 交易对归属：每个交易对只在一个实例上撮合。显式分配以注册表为准，未分配的按symbol哈希落到固定实例。
+ * 归属变更时由新归属方在该交易对的撮合线程上向原归属方拉取订单簿快照，原归属方交出订单簿后不再本地撮合；
+ * 原归属方不可达或归属来源未知时，从主库的活动订单重建订单簿，不依赖本实例的内存索引。
+ */
+@Slf4j
+@Component
+public class SymbolOwnership {
+
+    @Autowired
+    private ShardingProperties shardingProperties;
+
+    @Autowired
+    private SymbolOwnershipRegistry registry;
+
+    @Autowired
+    private MatchingEngine matchingEngine;
+
+    @Autowired
+    private TradeOrderMapper tradeOrderMapper;
+
+    @Autowired
+    private RestTemplateBuilder restTemplateBuilder;
+
+    private static final ParameterizedTypeReference<Result<List<TradeOrder>>> SNAPSHOT_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private volatile Map<String, String> assignments = Map.of();
+    private final Map<String, CompletableFuture<Integer>> installed = new ConcurrentHashMap<>();
+    private final Map<String, String> previousOwners = new ConcurrentHashMap<>();
+
+    private List<String> instanceIds;
+    private RestTemplate restTemplate;
+    private ScheduledExecutorService registryPoller;
+
+    @PostConstruct
+    public void init() {
+        if (!shardingProperties.isEnabled()) {
+            return;
+        }
+        if (!shardingProperties.getInstances().containsKey(shardingProperties.getInstanceId())) {
+            throw new IllegalStateException("本实例未在cex.trade.sharding.instances中配置: "
+                    + shardingProperties.getInstanceId());
+        }
+        if (!StringUtils.hasText(shardingProperties.getInternalToken())) {
+            throw new IllegalStateException("启用分片时须配置cex.trade.sharding.internal-token");
+        }
+        instanceIds = new ArrayList<>(shardingProperties.getInstances().keySet());
+        Collections.sort(instanceIds);
+        Duration timeout = Duration.ofMillis(shardingProperties.getRequestTimeoutMillis());
+        restTemplate = restTemplateBuilder.setConnectTimeout(timeout).setReadTimeout(timeout)
+                .defaultHeader(InternalTokenFilter.HEADER, shardingProperties.getInternalToken())
+                .build();
+
+        refresh();
+        registryPoller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "trade-symbol-ownership");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = shardingProperties.getPollIntervalSeconds();
+        registryPoller.scheduleWithFixedDelay(this::pollRegistry, interval, interval, TimeUnit.SECONDS);
+        log.info("交易对分片已启用: instanceId={}, instances={}", shardingProperties.getInstanceId(), instanceIds);
+    }
+
+    public boolean isEnabled() {
+        return shardingProperties.isEnabled();
+    }
+
+    public String getInstanceId() {
+        return shardingProperties.getInstanceId();
+    }
+
+    public String ownerOf(String symbol) {
+        return ownerIn(assignments, symbol);
+    }
+
+    public boolean isLocal(String symbol) {
+        return !isEnabled() || getInstanceId().equals(ownerOf(symbol));
+    }
+
+    public String baseUrlOf(String instanceId) {
+        return shardingProperties.getInstances().get(instanceId);
+    }
+
+    /**
+     * 本实例首次处理某交易对前装入订单簿；装载任务先于后续订单进入撮合线程，调用方无需等待
+     */
+    public void ensureInstalled(String symbol) {
+        if (isEnabled()) {
+            installed.computeIfAbsent(symbol, s -> matchingEngine.installOrderBook(s, () -> loadSnapshot(s)));
+        }
+    }
+
+    /**
+     * 应新归属方请求交出订单簿；注册表仍显示本实例为归属方时拒绝，避免两边同时撮合
+     */
+    public List<TradeOrder> handover(String symbol) {
+        refresh();
+        if (isLocal(symbol)) {
+            throw new BusinessException("交易对仍归属本实例: " + symbol);
+        }
+        installed.remove(symbol);
+        try {
+            return matchingEngine.releaseOrderBook(symbol)
+                    .get(shardingProperties.getRequestTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("交出订单簿失败");
+        } catch (Exception e) {
+            log.error("交出订单簿失败: symbol={}", symbol, e);
+            throw new BusinessException("交出订单簿失败");
+        }
+    }
+
+    /**
+     * 写入新的归属并立即刷新本地视图，其他实例在下次轮询时生效
+     */
+    public void assign(String symbol, String instanceId) {
+        if (!shardingProperties.getInstances().containsKey(instanceId)) {
+            throw new BusinessException("未知的实例: " + instanceId);
+        }
+        registry.assign(symbol, instanceId);
+        refresh();
+    }
+
+    public synchronized void refresh() {
+        Map<String, String> loaded = registry.load();
+        Map<String, String> previous = assignments;
+        Set<String> symbols = new HashSet<>(previous.keySet());
+        symbols.addAll(loaded.keySet());
+        symbols.addAll(installed.keySet());
+        assignments = Map.copyOf(loaded);
+
+        String self = getInstanceId();
+        for (String symbol : symbols) {
+            String oldOwner = ownerIn(previous, symbol);
+            String newOwner = ownerOf(symbol);
+            if (Objects.equals(oldOwner, newOwner)) {
+                continue;
+            }
+            if (self.equals(newOwner)) {
+                previousOwners.put(symbol, oldOwner);
+                log.info("交易对归属转入本实例: symbol={}, from={}", symbol, oldOwner);
+            } else if (self.equals(oldOwner)) {
+                // 订单簿保留到新归属方拉取快照，期间本实例的请求已转发给新归属方
+                installed.remove(symbol);
+                log.info("交易对归属转出本实例: symbol={}, to={}", symbol, newOwner);
+            }
+        }
+    }
+
+    private String ownerIn(Map<String, String> owners, String symbol) {
+        String owner = owners.get(symbol);
+        if (owner != null && shardingProperties.getInstances().containsKey(owner)) {
+            return owner;
+        }
+        return instanceIds.get(Math.floorMod(symbol.hashCode(), instanceIds.size()));
+    }
+
+    private void pollRegistry() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("交易对归属注册表读取失败", e);
+        }
+    }
+
+    private List<TradeOrder> loadSnapshot(String symbol) {
+        String previousOwner = previousOwners.remove(symbol);
+        if (previousOwner != null && !previousOwner.equals(getInstanceId())) {
+            try {
+                Result<List<TradeOrder>> result = restTemplate.exchange(
+                        baseUrlOf(previousOwner) + "/internal/trade/shard/handover?symbol={symbol}",
+                        HttpMethod.POST, null, SNAPSHOT_TYPE, symbol).getBody();
+                if (result != null && result.isSuccess() && result.getData() != null) {
+                    return result.getData();
+                }
+                log.warn("原归属方未交出订单簿，从活动订单重建: symbol={}, from={}, message={}",
+                        symbol, previousOwner, result != null ? result.getMessage() : null);
+            } catch (Exception e) {
+                log.warn("拉取订单簿快照失败，从活动订单重建: symbol={}, from={}", symbol, previousOwner, e);
+            }
+        }
+        // 其他实例的订单不一定已进入本实例的活动订单索引，直接读主库
+        List<TradeOrder> orders = new ArrayList<>();
+        for (OrderVO orderVO : tradeOrderMapper.selectActiveOrdersBySymbol(symbol)) {
+            TradeOrder order = new TradeOrder();
+            BeanUtils.copyProperties(orderVO, order);
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (registryPoller != null) {
+            registryPoller.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.ppcex.trade.shard;
+
+import java.util.Map;
+
+/**
+ * 交易对归属注册表：保存显式分配的symbol到实例标识的映射，各实例定期读取
+ */
+public interface SymbolOwnershipRegistry {
+
+    /**
+     * 读取当前全部显式分配
+     */
+    Map<String, String> load();
+
+    /**
+     * 把交易对分配给指定实例
+     */
+    void assign(String symbol, String instanceId);
+}
@@ -0,0 +1,159 @@
+package com.ppcex.trade.shard;
+
+import com.ppcex.trade.config.ShardingProperties;
+import com.ppcex.trade.engine.MatchingEngine;
+import com.ppcex.trade.entity.TradeOrder;
+import com.ppcex.trade.security.InternalTokenFilter;
+import com.ppcex.common.exception.BusinessException;
+import com.ppcex.common.response.PageResult;
+import com.ppcex.common.response.Result;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 撮合请求路由：交易对归属本实例时直接交给撮合引擎，否则转发到归属实例的内部接口。
+ * 转发只走一跳，接收方按最新注册表仍不是归属方时直接拒绝，不再二次转发。
+ */
+@Slf4j
+@Component
+public class SymbolRouter {
+
+    @Autowired
+    private SymbolOwnership symbolOwnership;
+
+    @Autowired
+    private MatchingEngine matchingEngine;
+
+    @Autowired
+    private ShardingProperties shardingProperties;
+
+    @Autowired
+    private RestTemplateBuilder restTemplateBuilder;
+
+    private static final String INTERNAL_PATH = "/internal/trade/shard";
+
+    private static final ParameterizedTypeReference<Result<Void>> VOID_TYPE = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<Result<PageResult<Map<String, Object>>>> ORDER_BOOK_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private RestTemplate restTemplate;
+
+    @PostConstruct
+    public void init() {
+        Duration timeout = Duration.ofMillis(shardingProperties.getRequestTimeoutMillis());
+        restTemplate = restTemplateBuilder.setConnectTimeout(timeout).setReadTimeout(timeout)
+                .defaultHeader(InternalTokenFilter.HEADER, Objects.toString(shardingProperties.getInternalToken(), ""))
+                .build();
+    }
+
+    public CompletableFuture<Void> processOrder(TradeOrder order) {
+        String symbol = order.getSymbol();
+        if (symbolOwnership.isLocal(symbol)) {
+            symbolOwnership.ensureInstalled(symbol);
+            return matchingEngine.processOrder(order);
+        }
+        forward(symbol, "/orders", order);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    public CompletableFuture<Void> cancelOrder(TradeOrder order) {
+        String symbol = order.getSymbol();
+        if (symbolOwnership.isLocal(symbol)) {
+            symbolOwnership.ensureInstalled(symbol);
+            return matchingEngine.cancelOrder(order);
+        }
+        forward(symbol, "/orders/cancel", order);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * 撤单前把订单移出所在实例的订单簿，等撮合线程处理完再返回；只返回已确认移出的订单，其余不应改为已撤销
+     */
+    public List<TradeOrder> removeFromBooks(List<TradeOrder> orders) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(orders.size());
+        for (TradeOrder order : orders) {
+            try {
+                futures.add(cancelOrder(order));
+            } catch (Exception e) {
+                futures.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        List<TradeOrder> removed = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            TradeOrder order = orders.get(i);
+            try {
+                futures.get(i).get(shardingProperties.getRequestTimeoutMillis(), TimeUnit.MILLISECONDS);
+                removed.add(order);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.warn("订单移出订单簿失败: orderNo={}, symbol={}", order.getOrderNo(), order.getSymbol(), e);
+            }
+        }
+        return removed;
+    }
+
+    public PageResult<Map<String, Object>> getFullOrderBook(String symbol, Integer direction, int page, int size) {
+        if (symbolOwnership.isLocal(symbol)) {
+            symbolOwnership.ensureInstalled(symbol);
+            return matchingEngine.getFullOrderBook(symbol, direction, page, size);
+        }
+        String owner = symbolOwnership.ownerOf(symbol);
+        Result<PageResult<Map<String, Object>>> result = restTemplate.exchange(
+                symbolOwnership.baseUrlOf(owner) + INTERNAL_PATH + "/orderbook?symbol={symbol}&direction={direction}&page={page}&size={size}",
+                HttpMethod.GET, null, ORDER_BOOK_TYPE, symbol, direction, page, size).getBody();
+        return result != null && result.isSuccess() ? result.getData() : null;
+    }
+
+    /**
+     * 处理其他实例转发来的请求：先刷新注册表，确认本实例是归属方后在本地执行
+     */
+    public void acceptForwarded(TradeOrder order, boolean cancel) {
+        String symbol = order.getSymbol();
+        if (!symbolOwnership.isLocal(symbol)) {
+            symbolOwnership.refresh();
+            if (!symbolOwnership.isLocal(symbol)) {
+                throw new BusinessException("交易对不归属本实例: " + symbol);
+            }
+        }
+        symbolOwnership.ensureInstalled(symbol);
+        if (cancel) {
+            // 等撮合线程移出订单后再响应，转发方据此才改订单状态
+            matchingEngine.cancelOrder(order).join();
+        } else {
+            matchingEngine.processOrder(order);
+        }
+    }
+
+    private void forward(String symbol, String path, TradeOrder order) {
+        String owner = symbolOwnership.ownerOf(symbol);
+        try {
+            Result<Void> result = restTemplate.exchange(symbolOwnership.baseUrlOf(owner) + INTERNAL_PATH + path,
+                    HttpMethod.POST, new HttpEntity<>(order), VOID_TYPE).getBody();
+            if (result == null || !result.isSuccess()) {
+                throw new BusinessException(result != null ? result.getMessage() : "撮合请求转发失败");
+            }
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("撮合请求转发失败: symbol={}, owner={}, orderNo={}", symbol, owner, order.getOrderNo(), e);
+            throw new BusinessException("撮合请求转发失败");
+        }
+    }
+}
@@ -0,0 +1,8 @@
+-- 历史订单、成交按(create_time, id)倒序游标分页所需的联合索引
+
+ALTER TABLE `trade_order`
+  ADD KEY `idx_user_create_time_id` (`user_id`, `create_time`, `id`);
+
+ALTER TABLE `trade_detail`
+  ADD KEY `idx_maker_user_create_time_id` (`maker_user_id`, `create_time`, `id`),
+  ADD KEY `idx_taker_user_create_time_id` (`taker_user_id`, `create_time`, `id`);
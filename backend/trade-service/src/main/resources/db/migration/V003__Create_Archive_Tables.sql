@@ -0,0 +1,8 @@
+-- 终态订单和历史成交的冷数据表，结构和索引与热表一致
+
+CREATE TABLE IF NOT EXISTS `trade_order_archive` LIKE `trade_order`;
+
+CREATE TABLE IF NOT EXISTS `trade_detail_archive` LIKE `trade_detail`;
+
+-- 归档扫描按状态和更新时间筛选终态订单，索引带上主键避免回表
+ALTER TABLE `trade_order` ADD KEY `idx_status_update_time` (`status`, `update_time`, `id`);
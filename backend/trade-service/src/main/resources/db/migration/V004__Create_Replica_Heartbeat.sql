@@ -0,0 +1,7 @@
+-- 从库延迟探测心跳，各实例定期在主库写入自己的一行，再从从库读回
+
+CREATE TABLE IF NOT EXISTS `replica_heartbeat` (
+    `instance_id` VARCHAR(64) NOT NULL COMMENT '实例标识',
+    `beat_millis` BIGINT NOT NULL COMMENT '心跳时间(毫秒)',
+    PRIMARY KEY (`instance_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='从库延迟心跳表';
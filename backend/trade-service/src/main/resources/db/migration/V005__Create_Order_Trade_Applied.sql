@@ -0,0 +1,9 @@
+-- 已计入订单的成交，订单成交消息按 成交编号+订单编号 去重，重投时不再重复累加
+
+CREATE TABLE IF NOT EXISTS `order_trade_applied` (
+    `trade_no` VARCHAR(32) NOT NULL COMMENT '成交编号',
+    `order_no` VARCHAR(32) NOT NULL COMMENT '订单编号',
+    `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '处理时间',
+    PRIMARY KEY (`trade_no`, `order_no`),
+    KEY `idx_create_time` (`create_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单成交消息去重表';
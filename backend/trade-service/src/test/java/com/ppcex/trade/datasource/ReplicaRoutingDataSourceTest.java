@@ -0,0 +1,173 @@
+package com.ppcex.trade.datasource;
+
+import com.ppcex.common.util.UserContext;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private static final String INSTANCE_ID = "trade-test";
+    private static final long MAX_LAG_MILLIS = 2000;
+
+    private JdbcTemplate primaryJdbc;
+    private JdbcTemplate replicaJdbc;
+    private JdbcTemplate routedJdbc;
+    private ReplicaLagMonitor lagMonitor;
+    private TransactionTemplate transactionTemplate;
+    private QueryTarget queryTarget;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = h2("primary");
+        DataSource replica = h2("replica");
+        primaryJdbc = new JdbcTemplate(primary);
+        replicaJdbc = new JdbcTemplate(replica);
+        lagMonitor = new ReplicaLagMonitor(primary, replica, INSTANCE_ID, MAX_LAG_MILLIS, 1000);
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica, lagMonitor);
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        routedJdbc = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new QueryTarget(routedJdbc));
+        proxyFactory.addAspect(new ReplicaReadAspect());
+        queryTarget = proxyFactory.getProxy();
+
+        replicateHeartbeat(System.currentTimeMillis());
+        lagMonitor.probe();
+    }
+
+    @AfterEach
+    void tearDown() {
+        UserContext.clear();
+        primaryJdbc.execute("DROP ALL OBJECTS");
+        replicaJdbc.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void testPlainQueryUsesPrimary() {
+        assertEquals("primary", currentNode());
+    }
+
+    @Test
+    void testReadOnlyTransactionUsesReplica() {
+        transactionTemplate.setReadOnly(true);
+        assertEquals("replica", transactionTemplate.execute(status -> currentNode()));
+    }
+
+    @Test
+    void testReadWriteTransactionUsesPrimary() {
+        assertEquals("primary", transactionTemplate.execute(status -> currentNode()));
+    }
+
+    @Test
+    void testAnnotatedMethodUsesReplica() {
+        assertEquals("replica", queryTarget.replicaQuery());
+        assertNull(ReplicaRoutingContext.current());
+        assertEquals("primary", currentNode());
+    }
+
+    @Test
+    void testLaggingReplicaFallsBackToPrimary() {
+        replicateHeartbeat(System.currentTimeMillis() - MAX_LAG_MILLIS * 5);
+        lagMonitor.probe();
+
+        assertFalse(lagMonitor.isHealthy());
+        assertEquals("primary", queryTarget.replicaQuery());
+        transactionTemplate.setReadOnly(true);
+        assertEquals("primary", transactionTemplate.execute(status -> currentNode()));
+    }
+
+    @Test
+    void testUnreachableReplicaFallsBackToPrimary() {
+        replicaJdbc.execute("DROP TABLE replica_heartbeat");
+        lagMonitor.probe();
+
+        assertFalse(lagMonitor.isHealthy());
+        assertEquals("primary", queryTarget.replicaQuery());
+    }
+
+    @Test
+    void testReadYourWritesWaitsForReplication() {
+        UserContext.setCurrentUserId(1L);
+        replicateHeartbeat(System.currentTimeMillis() - 100);
+        lagMonitor.probe();
+
+        // 读写事务记下本用户的写入时间，从库还未同步到该时间点
+        transactionTemplate.executeWithoutResult(status -> currentNode());
+        assertTrue(lagMonitor.isHealthy());
+        assertEquals("primary", queryTarget.readYourWritesQuery());
+        assertEquals("replica", queryTarget.replicaQuery());
+
+        UserContext.setCurrentUserId(2L);
+        assertEquals("replica", queryTarget.readYourWritesQuery());
+
+        UserContext.setCurrentUserId(1L);
+        replicateHeartbeat(System.currentTimeMillis() + 1);
+        lagMonitor.probe();
+        assertEquals("replica", queryTarget.readYourWritesQuery());
+    }
+
+    @Test
+    void testProbeWritesHeartbeatToPrimary() {
+        lagMonitor.probe();
+
+        Long beat = primaryJdbc.queryForObject(
+                "SELECT beat_millis FROM replica_heartbeat WHERE instance_id = ?", Long.class, INSTANCE_ID);
+        assertNotNull(beat);
+        assertTrue(System.currentTimeMillis() - beat < MAX_LAG_MILLIS);
+    }
+
+    private String currentNode() {
+        return routedJdbc.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    /**
+     * 两个内存库之间没有复制，直接改写从库心跳模拟从库同步到的时间点
+     */
+    private void replicateHeartbeat(long beatMillis) {
+        replicaJdbc.update("MERGE INTO replica_heartbeat (instance_id, beat_millis) KEY (instance_id) VALUES (?, ?)",
+                INSTANCE_ID, beatMillis);
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE replica_heartbeat (instance_id VARCHAR(64) PRIMARY KEY, beat_millis BIGINT NOT NULL)");
+        jdbc.execute("CREATE TABLE node (name VARCHAR(16))");
+        jdbc.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+
+    static class QueryTarget {
+
+        private final JdbcTemplate jdbcTemplate;
+
+        QueryTarget(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @ReplicaRead
+        public String replicaQuery() {
+            return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+        }
+
+        @ReplicaRead(readYourWrites = true)
+        public String readYourWritesQuery() {
+            return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.ppcex.trade.engine;
+
+import com.ppcex.trade.dto.OrderExecutionDelta;
+import com.ppcex.trade.entity.TradeDetail;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FailedTradeJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testReplayInOrderAndRemoveReplayed() throws Exception {
+        FailedTradeJournal journal = new FailedTradeJournal(dir.resolve("failed.log"));
+        journal.append(batch("T1", 1L));
+        journal.append(batch("T2", 2L));
+
+        List<String> replayed = new ArrayList<>();
+        assertEquals(2, journal.replay(batch -> replayed.add(batch.getTrades().get(0).getTradeNo())));
+
+        assertEquals(List.of("T1", "T2"), replayed);
+        assertEquals(0, journal.size());
+        journal.close();
+    }
+
+    @Test
+    void testReplayStopsAtFirstFailureAndKeepsRest() throws Exception {
+        FailedTradeJournal journal = new FailedTradeJournal(dir.resolve("failed.log"));
+        journal.append(batch("T1", 1L));
+        journal.append(batch("T2", 2L));
+        journal.append(batch("T3", 3L));
+
+        assertEquals(1, journal.replay(batch -> !"T2".equals(batch.getTrades().get(0).getTradeNo())));
+        journal.append(batch("T4", 4L));
+
+        List<String> remaining = new ArrayList<>();
+        journal.replay(batch -> remaining.add(batch.getTrades().get(0).getTradeNo()) && false);
+        assertEquals(List.of("T2"), remaining);
+        assertEquals(3, journal.size());
+        journal.close();
+    }
+
+    @Test
+    void testDeltasSurviveRoundTrip() throws Exception {
+        FailedTradeJournal journal = new FailedTradeJournal(dir.resolve("failed.log"));
+        journal.append(new FailedTradeJournal.FailedTradeBatch("BTC/USDT", "T7", List.of(),
+                List.of(new OrderExecutionDelta(7L, new BigDecimal("0.5"), new BigDecimal("25000"), new BigDecimal("25")))));
+        journal.close();
+
+        FailedTradeJournal reopened = new FailedTradeJournal(dir.resolve("failed.log"));
+        List<FailedTradeJournal.FailedTradeBatch> read = new ArrayList<>();
+        reopened.replay(read::add);
+        assertEquals(1, read.size());
+        assertTrue(read.get(0).getTrades().isEmpty());
+        assertEquals("T7", read.get(0).getBatchNo());
+        OrderExecutionDelta delta = read.get(0).getDeltas().get(0);
+        assertEquals(7L, delta.getOrderId());
+        assertEquals(0, new BigDecimal("25000").compareTo(delta.getExecutedValue()));
+        reopened.close();
+    }
+
+    @Test
+    void testTornTailIsTruncatedBeforeAppend() throws Exception {
+        Path path = dir.resolve("failed.log");
+        FailedTradeJournal journal = new FailedTradeJournal(path);
+        journal.append(batch("T1", 1L));
+        journal.close();
+        Files.write(path, "{\"symbol\":\"BTC/US".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        FailedTradeJournal reopened = new FailedTradeJournal(path);
+        reopened.append(batch("T2", 2L));
+
+        List<String> replayed = new ArrayList<>();
+        reopened.replay(batch -> replayed.add(batch.getTrades().get(0).getTradeNo()));
+        assertEquals(List.of("T1", "T2"), replayed);
+        reopened.close();
+    }
+
+    private FailedTradeJournal.FailedTradeBatch batch(String tradeNo, Long orderId) {
+        TradeDetail trade = new TradeDetail();
+        trade.setTradeNo(tradeNo);
+        trade.setSymbol("BTC/USDT");
+        trade.setPrice(new BigDecimal("50000"));
+        trade.setAmount(BigDecimal.ONE);
+        return new FailedTradeJournal.FailedTradeBatch("BTC/USDT", tradeNo, List.of(trade),
+                List.of(new OrderExecutionDelta(orderId, BigDecimal.ONE, new BigDecimal("50000"), new BigDecimal("50"))));
+    }
+}
@@ -0,0 +1,92 @@
+package com.ppcex.trade.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolExecutorTest {
+
+    private SymbolExecutor executor;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void testSameSymbolRunsInSubmissionOrderOnOneThread() throws Exception {
+        executor = new SymbolExecutor("test", 4, 1000);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int index = i;
+            futures.add(executor.execute("BTC/USDT", () -> {
+                order.add(index);
+                threads.add(Thread.currentThread().getName());
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, order.get(i));
+        }
+        assertEquals(1, threads.stream().distinct().count());
+    }
+
+    @Test
+    void testFullQueueRejectsByDefault() throws Exception {
+        executor = new SymbolExecutor("test", 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute("A", () -> await(release));
+        executor.execute("A", () -> { });
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute("A", () -> { }));
+        release.countDown();
+    }
+
+    @Test
+    void testFullQueueBlocksSubmitterWhenConfigured() throws Exception {
+        executor = new SymbolExecutor("test", 1, 1, true);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> done = Collections.synchronizedList(new ArrayList<>());
+        executor.execute("A", () -> await(release));
+        executor.execute("A", () -> done.add(1));
+
+        CompletableFuture<Void> submitted = CompletableFuture.runAsync(() -> executor.execute("A", () -> done.add(2)));
+        Thread.sleep(200);
+        assertFalse(submitted.isDone(), "队列满时提交方应阻塞而不是失败");
+
+        release.countDown();
+        submitted.get(5, TimeUnit.SECONDS);
+        executor.shutdown(5, TimeUnit.SECONDS);
+        assertEquals(List.of(1, 2), done);
+    }
+
+    @Test
+    void testBlockingExecutorRejectsAfterShutdown() throws Exception {
+        executor = new SymbolExecutor("test", 1, 1, true);
+        executor.shutdown(1, TimeUnit.SECONDS);
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute("A", () -> { }));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.ppcex.trade.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private static final long TICK = 10;
+    private static final long START = 1000;
+
+    @Test
+    void testFiresAfterDeadlineTickWithinOneTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 8, START);
+        List<String> fired = new ArrayList<>();
+        assertTrue(wheel.add(START, "onStart"));
+        assertTrue(wheel.add(1015, "midTick"));
+        assertTrue(wheel.add(1020, "onBoundary"));
+
+        wheel.advance(1009, fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advance(1010, fired::add);
+        assertEquals(List.of("onStart"), fired);
+
+        wheel.advance(1019, fired::add);
+        assertEquals(List.of("onStart"), fired);
+        wheel.advance(1020, fired::add);
+        assertEquals(List.of("onStart", "midTick"), fired);
+
+        // 恰好落在tick边界的到期时间要等这个tick走完，不会提前触发
+        wheel.advance(1029, fired::add);
+        assertEquals(2, fired.size());
+        wheel.advance(1030, fired::add);
+        assertEquals(List.of("onStart", "midTick", "onBoundary"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testCascadesFromUpperLevelsAtExactTick() {
+        // 每层4槽：第0层覆盖40ms，第1层160ms，第2层640ms，更远的到期时间落到第3层
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 4, START);
+        Random random = new Random(42);
+        List<Long> deadlines = new ArrayList<>(List.of(1005L, 1039L, 1040L, 1045L, 1159L, 1160L, 1170L, 1639L, 1650L, 3000L));
+        for (int i = 0; i < 200; i++) {
+            deadlines.add(START + random.nextInt(3000));
+        }
+        for (Long deadline : deadlines) {
+            assertTrue(wheel.add(deadline, deadline));
+        }
+
+        Map<Long, Integer> pending = new HashMap<>();
+        deadlines.forEach(deadline -> pending.merge(deadline, 1, Integer::sum));
+        for (long now = START; now <= 4100; now++) {
+            long current = now;
+            wheel.advance(now, deadline -> {
+                assertEquals(expectedFireTime(deadline), current, "deadline=" + deadline);
+                pending.merge(deadline, -1, Integer::sum);
+            });
+        }
+        pending.values().forEach(count -> assertEquals(0, count));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testCatchUpOverManyTicksInDeadlineOrder() {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 4, START);
+        long[] deadlines = {2500, 1003, 1700, 1041, 1199, 5000};
+        for (long deadline : deadlines) {
+            wheel.add(deadline, deadline);
+        }
+
+        // 线程停顿后一次推进多个tick，期间到期的全部按到期顺序交出
+        List<Long> fired = new ArrayList<>();
+        wheel.advance(2509, fired::add);
+        assertEquals(List.of(1003L, 1041L, 1199L, 1700L), fired);
+        assertEquals(2, wheel.size());
+
+        wheel.advance(2510, fired::add);
+        assertEquals(List.of(1003L, 1041L, 1199L, 1700L, 2500L), fired);
+        wheel.advance(5010, fired::add);
+        assertEquals(6, fired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testPastDeadlineIsRejected() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 8, START + 3);
+        assertFalse(wheel.add(999, "beforeStart"));
+        // 起点按tick对齐，当前tick内已过的时间仍可加入，下个tick触发
+        assertTrue(wheel.add(1001, "currentTick"));
+
+        wheel.advance(1100, item -> { });
+        assertFalse(wheel.add(1050, "past"));
+        assertFalse(wheel.add(1099, "lastTick"));
+        assertTrue(wheel.add(1100, "now"));
+        assertEquals(1, wheel.size());
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(1110, fired::add);
+        assertEquals(List.of("now"), fired);
+    }
+
+    private static long expectedFireTime(long deadline) {
+        return (deadline / TICK + 1) * TICK;
+    }
+}
@@ -0,0 +1,86 @@
+package com.ppcex.trade.engine;
+
+import com.ppcex.trade.config.MatchingProperties;
+import com.ppcex.trade.entity.TradeDetail;
+import com.ppcex.trade.mapper.TradeDetailMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class TradeDetailWriterTest {
+
+    private TradeDetailWriter writer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    void testFullBufferBlocksSubmitterInsteadOfFailing() throws Exception {
+        TradeDetailMapper mapper = mock(TradeDetailMapper.class);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch inserting = new CountDownLatch(1);
+        when(mapper.insertBatch(anyList())).thenAnswer(invocation -> {
+            inserting.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return 1;
+        });
+        writer = newWriter(mapper, 1);
+
+        CompletableFuture<Void> first = writer.write(List.of(trade("T1")));
+        assertTrue(inserting.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> second = writer.write(List.of(trade("T2")));
+
+        CompletableFuture<CompletableFuture<Void>> third = CompletableFuture.supplyAsync(() -> writer.write(List.of(trade("T3"))));
+        Thread.sleep(200);
+        assertFalse(third.isDone(), "缓冲满时提交方应阻塞而不是失败");
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        third.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testExhaustedRetriesCompleteExceptionally() throws Exception {
+        TradeDetailMapper mapper = mock(TradeDetailMapper.class);
+        when(mapper.insertBatch(anyList())).thenThrow(new RuntimeException("db down"));
+        writer = newWriter(mapper, 10);
+
+        CompletableFuture<Void> future = writer.write(List.of(trade("T1")));
+
+        assertThrows(Exception.class, () -> future.get(10, TimeUnit.SECONDS));
+        verify(mapper, times(4)).insertBatch(anyList());
+    }
+
+    private TradeDetailWriter newWriter(TradeDetailMapper mapper, int bufferCapacity) {
+        MatchingProperties properties = new MatchingProperties();
+        properties.setTradeBufferCapacity(bufferCapacity);
+        properties.setTradeFlushMaxDelayMillis(0);
+        TradeDetailWriter tradeDetailWriter = new TradeDetailWriter();
+        ReflectionTestUtils.setField(tradeDetailWriter, "tradeDetailMapper", mapper);
+        ReflectionTestUtils.setField(tradeDetailWriter, "matchingProperties", properties);
+        ReflectionTestUtils.setField(tradeDetailWriter, "meterRegistry", new SimpleMeterRegistry());
+        tradeDetailWriter.init();
+        return tradeDetailWriter;
+    }
+
+    private TradeDetail trade(String tradeNo) {
+        TradeDetail trade = new TradeDetail();
+        trade.setTradeNo(tradeNo);
+        return trade;
+    }
+}
@@ -0,0 +1,110 @@
+package com.ppcex.trade.mq;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.ppcex.trade.entity.TradeOrder;
+import com.ppcex.trade.mapper.TradeOrderMapper;
+import com.ppcex.trade.service.ActiveOrderIndex;
+import com.ppcex.trade.service.OrderService;
+import com.ppcex.trade.shard.SymbolRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OrderMessageConsumerTest {
+
+    private final List<TradeOrder> rows = new ArrayList<>();
+    private OrderService orderService;
+    private TradeOrderMapper tradeOrderMapper;
+    private SymbolRouter symbolRouter;
+    private OrderMessageConsumer consumer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        orderService = mock(OrderService.class);
+        when(orderService.list(any(Wrapper.class))).thenAnswer(inv -> new ArrayList<>(rows));
+        tradeOrderMapper = mock(TradeOrderMapper.class);
+        symbolRouter = mock(SymbolRouter.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(inv -> {
+            ((Consumer<TransactionStatus>) inv.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        consumer = new OrderMessageConsumer();
+        ReflectionTestUtils.setField(consumer, "orderService", orderService);
+        ReflectionTestUtils.setField(consumer, "tradeOrderMapper", tradeOrderMapper);
+        ReflectionTestUtils.setField(consumer, "activeOrderIndex", mock(ActiveOrderIndex.class));
+        ReflectionTestUtils.setField(consumer, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(consumer, "symbolRouter", symbolRouter);
+    }
+
+    @Test
+    void testCancelUpdatesOnlyOrdersRemovedFromBook() {
+        TradeOrder removed = order(1L, "O1");
+        TradeOrder booked = order(2L, "O2");
+        rows.add(removed);
+        rows.add(booked);
+        when(symbolRouter.removeFromBooks(anyList())).thenReturn(List.of(removed));
+
+        boolean done = consumer.processBatch(List.of(
+                message("ORDER_CANCEL", "O1"), message("ORDER_CANCEL", "O2")));
+
+        // 未能移出订单簿的订单不改状态，整批稍后重投
+        assertFalse(done);
+        verify(symbolRouter).removeFromBooks(List.of(removed, booked));
+        verify(tradeOrderMapper).cancelOrders(eq(List.of(1L)), any());
+    }
+
+    @Test
+    void testTimeoutRemovesFromBookBeforeUpdate() {
+        TradeOrder order = order(3L, "O3");
+        order.setStatus(2);
+        rows.add(order);
+        when(symbolRouter.removeFromBooks(anyList())).thenReturn(List.of(order));
+
+        assertTrue(consumer.processBatch(List.of(message("ORDER_TIMEOUT", "O3"))));
+
+        var inOrder = inOrder(symbolRouter, tradeOrderMapper);
+        inOrder.verify(symbolRouter).removeFromBooks(List.of(order));
+        inOrder.verify(tradeOrderMapper).cancelOrders(eq(List.of(3L)), any());
+    }
+
+    @Test
+    void testFinishedOrderIsNotSentToBook() {
+        TradeOrder order = order(4L, "O4");
+        order.setStatus(3);
+        rows.add(order);
+
+        assertTrue(consumer.processBatch(List.of(message("ORDER_CANCEL", "O4"))));
+        verifyNoInteractions(symbolRouter);
+    }
+
+    private static TradeOrder order(Long id, String orderNo) {
+        TradeOrder order = new TradeOrder();
+        order.setId(id);
+        order.setOrderNo(orderNo);
+        order.setSymbol("BTCUSDT");
+        order.setDirection(1);
+        order.setPrice(new BigDecimal("100"));
+        order.setStatus(1);
+        return order;
+    }
+
+    private static OrderMessageConsumer.PendingMessage message(String tags, String orderNo) {
+        return new OrderMessageConsumer.PendingMessage(tags, "{\"orderNo\":\"" + orderNo + "\"}");
+    }
+}
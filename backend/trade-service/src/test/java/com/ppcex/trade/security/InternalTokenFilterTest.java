@@ -0,0 +1,44 @@
+package com.ppcex.trade.security;
+
+import com.ppcex.trade.config.ShardingProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InternalTokenFilterTest {
+
+    @Test
+    void testInternalPathRequiresMatchingToken() throws Exception {
+        ShardingProperties properties = new ShardingProperties();
+        properties.setInternalToken("secret");
+        InternalTokenFilter filter = new InternalTokenFilter(properties);
+
+        assertEquals(403, filter(filter, "/internal/trade/shard/handover", null).getStatus());
+        assertEquals(403, filter(filter, "/internal/trade/shard/assign", "wrong").getStatus());
+        assertEquals(200, filter(filter, "/internal/trade/shard/assign", "secret").getStatus());
+        // 对外接口不受影响
+        assertEquals(200, filter(filter, "/api/v1/order/create", null).getStatus());
+    }
+
+    @Test
+    void testRejectWhenTokenNotConfigured() throws Exception {
+        InternalTokenFilter filter = new InternalTokenFilter(new ShardingProperties());
+
+        assertEquals(403, filter(filter, "/internal/trade/shard/orders", "").getStatus());
+        assertEquals(403, filter(filter, "/internal/trade/shard/orders", "null").getStatus());
+    }
+
+    private static MockHttpServletResponse filter(InternalTokenFilter filter, String path, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setServletPath(path);
+        if (token != null) {
+            request.addHeader(InternalTokenFilter.HEADER, token);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
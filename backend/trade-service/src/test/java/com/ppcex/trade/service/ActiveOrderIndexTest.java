@@ -0,0 +1,196 @@
+package com.ppcex.trade.service;
+
+import com.ppcex.trade.dto.OrderExecutionDelta;
+import com.ppcex.trade.dto.OrderVO;
+import com.ppcex.trade.entity.TradeOrder;
+import com.ppcex.trade.mapper.TradeOrderMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ActiveOrderIndexTest {
+
+    /** 模拟数据库中订单的当前行 */
+    private final Map<Long, OrderVO> rows = new ConcurrentHashMap<>();
+    private TradeOrderMapper mapper;
+    private StringRedisTemplate redisTemplate;
+    private ActiveOrderIndex index;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        mapper = mock(TradeOrderMapper.class);
+        when(mapper.selectAllActiveOrders()).thenAnswer(inv -> {
+            List<OrderVO> active = new ArrayList<>();
+            rows.values().stream().filter(row -> row.getStatus() <= 2).forEach(row -> active.add(copy(row)));
+            return active;
+        });
+        when(mapper.selectOrderVOsByIds(any())).thenAnswer(inv -> {
+            List<OrderVO> result = new ArrayList<>();
+            for (Long id : (Collection<Long>) inv.getArgument(0)) {
+                OrderVO row = rows.get(id);
+                if (row != null) {
+                    result.add(copy(row));
+                }
+            }
+            return result;
+        });
+        redisTemplate = mock(StringRedisTemplate.class);
+        index = new ActiveOrderIndex();
+        ReflectionTestUtils.setField(index, "tradeOrderMapper", mapper);
+        ReflectionTestUtils.setField(index, "stringRedisTemplate", redisTemplate);
+    }
+
+    @Test
+    void testLocalChangesAreVisibleWithoutReadBack() {
+        index.upsert(order(1L, 1, "0"));
+        assertEquals(1, index.getUserActiveOrders(100L).size());
+
+        index.applyExecutions(List.of(delta(1L, "0.4")));
+        OrderVO active = index.getUserActiveOrders(100L).get(0);
+        assertEquals(2, active.getStatus());
+        assertEquals(0, new BigDecimal("0.4").compareTo(active.getExecutedAmount()));
+        assertEquals("部分成交", active.getStatusDesc());
+
+        index.remove(order(1L, 4, "0.4"));
+        assertTrue(index.getUserActiveOrders(100L).isEmpty());
+        verify(mapper, never()).selectOrderVOsByIds(any());
+    }
+
+    @Test
+    void testStaleUpsertAfterDeltaKeepsExecution() {
+        TradeOrder stale = order(1L, 1, "0");
+        index.upsert(stale);
+
+        // 成交增量先写入，随后到达的旧快照不能把已成交数量和状态改回去
+        index.applyExecutions(List.of(delta(1L, "0.4")));
+        index.upsert(stale);
+
+        List<OrderVO> active = index.getActiveOrdersBySymbol("BTCUSDT");
+        assertEquals(1, active.size());
+        assertEquals(2, active.get(0).getStatus());
+        assertEquals(0, new BigDecimal("0.4").compareTo(active.get(0).getExecutedAmount()));
+    }
+
+    @Test
+    void testLateUpsertAfterRemoveDoesNotResurrectOrder() {
+        index.upsert(order(2L, 1, "0"));
+        assertEquals(1, index.size());
+
+        index.remove(order(2L, 4, "0"));
+        index.upsert(order(2L, 1, "0"));
+        rows.put(2L, row(2L, 1, "0"));
+        index.rebuild();
+
+        assertEquals(0, index.size());
+        assertTrue(index.getUserActiveOrders(100L).isEmpty());
+        assertTrue(index.getActiveOrdersBySymbol("BTCUSDT").isEmpty());
+    }
+
+    @Test
+    void testDeltaToFilledRemovesOrder() {
+        rows.put(3L, row(3L, 1, "0"));
+        rows.put(4L, row(4L, 1, "0"));
+        index.rebuild();
+        assertEquals(2, index.size());
+
+        index.applyExecutions(List.of(delta(3L, "1"), delta(4L, "0.5")));
+
+        List<OrderVO> active = index.getUserActiveOrders(100L);
+        assertEquals(1, active.size());
+        assertEquals(4L, active.get(0).getId());
+        verify(redisTemplate).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void testRemoteChangeIsReadBack() {
+        index.upsert(order(5L, 1, "0"));
+
+        rows.put(5L, row(5L, 2, "0.3"));
+        rows.put(6L, row(6L, 1, "0"));
+        ReflectionTestUtils.invokeMethod(index, "onChanged",
+                (Object) "other-instance:5,6".getBytes(StandardCharsets.UTF_8));
+        index.refreshPending();
+
+        assertEquals(2, index.size());
+        OrderVO partial = index.getActiveOrdersBySymbol("BTCUSDT").stream()
+                .filter(order -> order.getId() == 5L).findFirst().orElseThrow();
+        assertEquals(2, partial.getStatus());
+        assertEquals(0, new BigDecimal("0.3").compareTo(partial.getExecutedAmount()));
+    }
+
+    @Test
+    void testDeltaForUnknownOrderIsReadBack() {
+        rows.put(7L, row(7L, 2, "0.2"));
+        index.applyExecutions(List.of(delta(7L, "0.2")));
+        assertEquals(0, index.size());
+
+        index.refreshPending();
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testRebuildUsesDatabaseState() {
+        index.upsert(order(8L, 1, "0"));
+
+        rows.put(9L, row(9L, 1, "0"));
+        index.rebuild();
+
+        assertEquals(List.of(9L), index.getUserActiveOrders(100L).stream().map(OrderVO::getId).toList());
+    }
+
+    private static OrderVO row(Long id, int status, String executed) {
+        OrderVO row = new OrderVO();
+        row.setId(id);
+        row.setUserId(100L);
+        row.setSymbol("BTCUSDT");
+        row.setPrice(new BigDecimal("100"));
+        row.setAmount(BigDecimal.ONE);
+        row.setExecutedAmount(new BigDecimal(executed));
+        row.setStatus(status);
+        row.setCreateTime(LocalDateTime.now());
+        return row;
+    }
+
+    private static OrderVO copy(OrderVO source) {
+        OrderVO row = row(source.getId(), source.getStatus(), source.getExecutedAmount().toPlainString());
+        row.setCreateTime(source.getCreateTime());
+        return row;
+    }
+
+    private static TradeOrder order(Long id, int status, String executed) {
+        TradeOrder order = new TradeOrder();
+        order.setId(id);
+        order.setUserId(100L);
+        order.setSymbol("BTCUSDT");
+        order.setPrice(new BigDecimal("100"));
+        order.setAmount(BigDecimal.ONE);
+        order.setStatus(status);
+        order.setExecutedAmount(new BigDecimal(executed));
+        order.setCreateTime(LocalDateTime.now());
+        return order;
+    }
+
+    private static OrderExecutionDelta delta(Long orderId, String amount) {
+        return new OrderExecutionDelta(orderId, new BigDecimal(amount), new BigDecimal(amount).multiply(new BigDecimal("100")),
+                BigDecimal.ZERO);
+    }
+}
@@ -0,0 +1,95 @@
+package com.ppcex.trade.service;
+
+import com.ppcex.trade.config.OrderProperties;
+import com.ppcex.trade.engine.TimingWheel;
+import com.ppcex.trade.entity.TradeOrder;
+import com.ppcex.trade.mapper.TradeOrderMapper;
+import com.ppcex.trade.shard.SymbolRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OrderExpirySchedulerTest {
+
+    private final List<TradeOrder> rows = new ArrayList<>();
+    private TradeOrderMapper mapper;
+    private SymbolRouter symbolRouter;
+    private TransactionTemplate transactionTemplate;
+    private ActiveOrderIndex activeOrderIndex;
+    private TimingWheel<Long> wheel;
+    private OrderExpiryScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        mapper = mock(TradeOrderMapper.class);
+        when(mapper.selectList(any())).thenAnswer(inv -> new ArrayList<>(rows));
+        when(mapper.selectExpirableOrders(anyList(), any())).thenAnswer(inv -> new ArrayList<>(rows));
+        symbolRouter = mock(SymbolRouter.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        activeOrderIndex = mock(ActiveOrderIndex.class);
+        // 不启动定时线程，测试中直接调用批处理
+        wheel = new TimingWheel<>(100, 64, System.currentTimeMillis());
+
+        scheduler = new OrderExpiryScheduler();
+        ReflectionTestUtils.setField(scheduler, "tradeOrderMapper", mapper);
+        ReflectionTestUtils.setField(scheduler, "activeOrderIndex", activeOrderIndex);
+        ReflectionTestUtils.setField(scheduler, "orderProperties", new OrderProperties());
+        ReflectionTestUtils.setField(scheduler, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(scheduler, "symbolRouter", symbolRouter);
+        ReflectionTestUtils.setField(scheduler, "wheel", wheel);
+    }
+
+    @Test
+    void testOrderNotRemovedFromBookIsRetried() {
+        rows.add(order(1L));
+        when(symbolRouter.removeFromBooks(anyList())).thenReturn(List.of());
+
+        scheduler.expire(List.of(1L));
+
+        verifyNoInteractions(transactionTemplate);
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedUpdateIsRetriedWithoutRemovingAgain() {
+        TradeOrder order = order(2L);
+        rows.add(order);
+        when(symbolRouter.removeFromBooks(anyList())).thenReturn(List.of(order));
+        when(transactionTemplate.execute(any()))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"))
+                .thenAnswer(inv -> ((TransactionCallback<Object>) inv.getArgument(0)).doInTransaction(null));
+
+        scheduler.expire(List.of(2L));
+        verify(mapper, never()).cancelOrders(anyList(), any());
+        verify(activeOrderIndex, never()).remove(any());
+        assertEquals(1, wheel.size());
+
+        // 重试时订单已不在订单簿中，直接写库
+        scheduler.expire(List.of(2L));
+        verify(symbolRouter, times(1)).removeFromBooks(anyList());
+        verify(mapper).cancelOrders(eq(List.of(2L)), any());
+        verify(activeOrderIndex).remove(order);
+    }
+
+    private static TradeOrder order(Long id) {
+        TradeOrder order = new TradeOrder();
+        order.setId(id);
+        order.setOrderNo("O" + id);
+        order.setSymbol("BTCUSDT");
+        order.setStatus(2);
+        return order;
+    }
+}
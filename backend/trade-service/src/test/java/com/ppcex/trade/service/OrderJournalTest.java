@@ -0,0 +1,202 @@
+package com.ppcex.trade.service;
+
+import com.ppcex.trade.entity.TradeOrder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testAppendedOrdersSurviveReopen() throws Exception {
+        Path path = dir.resolve("orders.log");
+        OrderJournal journal = new OrderJournal(path);
+        journal.append(order("O1"));
+        journal.append(order("O2"));
+        journal.close();
+
+        OrderJournal reopened = new OrderJournal(path);
+        List<TradeOrder> orders = reopened.readAll();
+        assertEquals(2, orders.size());
+        assertEquals("O1", orders.get(0).getOrderNo());
+        assertEquals(0, new BigDecimal("1.5").compareTo(orders.get(1).getAmount()));
+        reopened.close();
+    }
+
+    @Test
+    void testTornLastLineIsTruncatedOnOpen() throws Exception {
+        Path path = dir.resolve("orders.log");
+        OrderJournal journal = new OrderJournal(path);
+        journal.append(order("O1"));
+        journal.close();
+        Files.write(dir.resolve("orders.log.1"), "{\"orderNo\":\"O2\",\"amo".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        OrderJournal reopened = new OrderJournal(path);
+        reopened.append(order("O3"));
+
+        List<TradeOrder> orders = reopened.readAll();
+        assertEquals(2, orders.size());
+        assertEquals("O1", orders.get(0).getOrderNo());
+        assertEquals("O3", orders.get(1).getOrderNo());
+        reopened.close();
+    }
+
+    @Test
+    void testLegacyUnsegmentedJournalIsRecovered() throws Exception {
+        Path path = dir.resolve("orders.log");
+        Files.write(path, ("{\"orderNo\":\"O1\",\"amount\":1}\n").getBytes(StandardCharsets.UTF_8));
+
+        OrderJournal journal = new OrderJournal(path);
+        assertEquals(List.of("O1"), journal.readAll().stream().map(TradeOrder::getOrderNo).toList());
+        journal.clear();
+        assertFalse(Files.exists(path));
+        journal.close();
+    }
+
+    @Test
+    void testSegmentClearedOnlyWhenAllAcceptedOrdersPersisted() throws Exception {
+        OrderJournal journal = new OrderJournal(dir.resolve("orders.log"));
+        long seq = journal.append(order("O1"));
+        journal.append(order("O2"));
+
+        journal.markPersisted(seq, 1);
+        assertEquals(2, journal.readAll().size());
+        journal.markPersisted(seq, 1);
+        assertTrue(journal.readAll().isEmpty());
+
+        // 清空后计数延续，新追加的订单落库前不会被清掉
+        journal.append(order("O3"));
+        assertEquals(1, journal.readAll().size());
+        journal.close();
+    }
+
+    @Test
+    void testSealedSegmentIsDeletedOnceItsOrdersPersist() throws Exception {
+        // 每个分段只放一条，模拟持续接单时的滚动
+        OrderJournal journal = new OrderJournal(dir.resolve("orders.log"), 1);
+        long first = journal.append(order("O1"));
+        long second = journal.append(order("O2"));
+        journal.append(order("O3"));
+        assertNotEquals(first, second);
+
+        // 较早的分段全部落库即可删除，不需要等后面的订单也落库
+        journal.markPersisted(second, 1);
+        assertFalse(Files.exists(dir.resolve("orders.log." + second)));
+        assertEquals(List.of("O1", "O3"), journal.readAll().stream().map(TradeOrder::getOrderNo).toList());
+        journal.markPersisted(first, 1);
+        assertEquals(List.of("O3"), journal.readAll().stream().map(TradeOrder::getOrderNo).toList());
+        journal.close();
+    }
+
+    @Test
+    void testClearDropsRecoveredRecordsWithoutCountingThem() throws Exception {
+        Path path = dir.resolve("orders.log");
+        OrderJournal journal = new OrderJournal(path);
+        journal.append(order("O1"));
+        journal.close();
+
+        OrderJournal reopened = new OrderJournal(path);
+        reopened.clear();
+        assertTrue(reopened.readAll().isEmpty());
+        long seq = reopened.append(order("O2"));
+        assertEquals(1, reopened.readAll().size());
+        reopened.markPersisted(seq, 1);
+        assertTrue(reopened.readAll().isEmpty());
+        reopened.close();
+    }
+
+    @Test
+    void testConcurrentAppendsAreNeverDroppedBeforePersisted() throws Exception {
+        OrderJournal journal = new OrderJournal(dir.resolve("orders.log"), 4096);
+        int threads = 4;
+        int perThread = 200;
+        BlockingQueue<Map.Entry<String, Long>> appended = new LinkedBlockingQueue<>();
+        Map<String, Long> unpersisted = new ConcurrentHashMap<>();
+        AtomicBoolean done = new AtomicBoolean();
+
+        // 模拟写入线程：持续有新追加时也逐条登记落库，不等日志空闲；部分订单迟迟不落库
+        Thread persister = new Thread(() -> {
+            try {
+                while (!done.get() || !appended.isEmpty()) {
+                    Map.Entry<String, Long> entry = appended.poll(1, TimeUnit.MILLISECONDS);
+                    if (entry == null) {
+                        continue;
+                    }
+                    if (ThreadLocalRandom.current().nextInt(20) == 0) {
+                        unpersisted.put(entry.getKey(), entry.getValue());
+                    } else {
+                        journal.markPersisted(entry.getValue(), 1);
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        persister.start();
+
+        List<Thread> appenders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * perThread;
+            Thread appender = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    try {
+                        String orderNo = "O" + (offset + i);
+                        appended.add(Map.entry(orderNo, journal.append(order(orderNo))));
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            appenders.add(appender);
+            appender.start();
+        }
+        for (Thread appender : appenders) {
+            appender.join();
+        }
+        done.set(true);
+        persister.join();
+
+        // 未落库的订单一条不少，且没有残缺行；全部落库的分段已删除，日志小于全部订单
+        Set<String> journaled = new HashSet<>();
+        journal.readAll().forEach(order -> journaled.add(order.getOrderNo()));
+        assertTrue(journaled.containsAll(unpersisted.keySet()));
+        assertTrue(journaled.size() < threads * perThread);
+
+        unpersisted.values().forEach(seq -> journal.markPersisted(seq, 1));
+        assertTrue(journal.readAll().isEmpty());
+        journal.close();
+    }
+
+    private static TradeOrder order(String orderNo) {
+        TradeOrder order = new TradeOrder();
+        order.setOrderNo(orderNo);
+        order.setUserId(1L);
+        order.setSymbol("BTCUSDT");
+        order.setPrice(new BigDecimal("100"));
+        order.setAmount(new BigDecimal("1.5"));
+        order.setStatus(1);
+        return order;
+    }
+}
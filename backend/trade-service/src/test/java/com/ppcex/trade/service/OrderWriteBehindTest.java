@@ -0,0 +1,138 @@
+package com.ppcex.trade.service;
+
+import com.ppcex.trade.config.OrderProperties;
+import com.ppcex.trade.entity.TradeOrder;
+import com.ppcex.trade.mapper.TradeOrderMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class OrderWriteBehindTest {
+
+    @TempDir
+    Path dir;
+
+    /** 模拟订单表：订单号唯一，重复插入被忽略 */
+    private final Map<String, Long> table = new ConcurrentHashMap<>();
+    private final TradeOrderMapper mapper = mock(TradeOrderMapper.class);
+    private final ActiveOrderIndex activeOrderIndex = mock(ActiveOrderIndex.class);
+    private final OrderExpiryScheduler expiryScheduler = mock(OrderExpiryScheduler.class);
+    private OrderWriteBehind writeBehind;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (writeBehind != null) {
+            writeBehind.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRecoverReinsertsJournalIgnoringPersistedRows() throws Exception {
+        Path path = dir.resolve("orders.log");
+        OrderJournal journal = new OrderJournal(path);
+        journal.append(order("O1"));
+        journal.append(order("O2"));
+        journal.append(order("O3"));
+        journal.append(order("O4"));
+        journal.close();
+        // O1、O2在崩溃前已经落库，O4已成交并归档
+        table.put("O1", 1L);
+        table.put("O2", 2L);
+        when(mapper.selectArchivedOrderNos(anyCollection())).thenReturn(List.of("O4"));
+
+        writeBehind = newWriteBehind(path);
+
+        verify(mapper, times(1)).insertBatch(anyList());
+        assertEquals(3, table.size());
+        assertFalse(table.containsKey("O4"));
+        verify(activeOrderIndex).rebuild();
+        verify(expiryScheduler, times(3)).schedule(any());
+        assertTrue(new OrderJournal(path).readAll().isEmpty());
+    }
+
+    @Test
+    void testAwaitPersistedReturnsAfterFlush() throws Exception {
+        writeBehind = newWriteBehind(dir.resolve("orders.log"));
+        TradeOrder order = order("O1");
+        writeBehind.accept(order);
+
+        writeBehind.awaitPersisted("O1", 5000);
+
+        assertNull(writeBehind.getPending("O1"));
+        assertEquals(table.get("O1"), order.getId());
+        verify(activeOrderIndex).upsert(order);
+        // 落库后所在日志分段随即清空，不依赖写入线程空闲
+        OrderJournal journal = (OrderJournal) ReflectionTestUtils.getField(writeBehind, "journal");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!journal.readAll().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(journal.readAll().isEmpty());
+        // 已落库或不存在的订单不等待
+        writeBehind.awaitPersisted("O1", 0);
+        writeBehind.awaitPersisted("unknown", 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private OrderWriteBehind newWriteBehind(Path journalPath) throws Exception {
+        when(mapper.insertBatch(anyList())).thenAnswer(inv -> {
+            int inserted = 0;
+            for (TradeOrder order : (List<TradeOrder>) inv.getArgument(0)) {
+                if (table.putIfAbsent(order.getOrderNo(), table.size() + 1L) == null) {
+                    inserted++;
+                }
+            }
+            return inserted;
+        });
+        when(mapper.selectList(any())).thenAnswer(inv -> {
+            List<TradeOrder> rows = new ArrayList<>();
+            table.forEach((orderNo, id) -> {
+                TradeOrder row = new TradeOrder();
+                row.setOrderNo(orderNo);
+                row.setId(id);
+                rows.add(row);
+            });
+            return rows;
+        });
+        OrderProperties properties = new OrderProperties();
+        properties.setFastAccept(true);
+        properties.setJournalPath(journalPath.toString());
+        ObjectProvider<?> lagMonitor = mock(ObjectProvider.class);
+
+        OrderWriteBehind writeBehind = new OrderWriteBehind();
+        ReflectionTestUtils.setField(writeBehind, "tradeOrderMapper", mapper);
+        ReflectionTestUtils.setField(writeBehind, "activeOrderIndex", activeOrderIndex);
+        ReflectionTestUtils.setField(writeBehind, "orderProperties", properties);
+        ReflectionTestUtils.setField(writeBehind, "orderExpiryScheduler", expiryScheduler);
+        ReflectionTestUtils.setField(writeBehind, "replicaLagMonitor", lagMonitor);
+        writeBehind.init();
+        return writeBehind;
+    }
+
+    private static TradeOrder order(String orderNo) {
+        TradeOrder order = new TradeOrder();
+        order.setOrderNo(orderNo);
+        order.setUserId(1L);
+        order.setSymbol("BTCUSDT");
+        order.setPrice(new BigDecimal("100"));
+        order.setAmount(BigDecimal.ONE);
+        order.setStatus(1);
+        return order;
+    }
+}
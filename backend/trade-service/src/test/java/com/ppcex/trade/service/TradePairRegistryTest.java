@@ -0,0 +1,55 @@
+package com.ppcex.trade.service;
+
+import com.ppcex.trade.dto.TradePairVO;
+import com.ppcex.trade.mapper.TradePairMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TradePairRegistryTest {
+
+    private TradePairRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        TradePairVO pair = new TradePairVO();
+        pair.setSymbol("BTCUSDT");
+        pair.setStatus(1);
+        pair.setMinAmount(new BigDecimal("0.0001"));
+
+        TradePairMapper mapper = mock(TradePairMapper.class);
+        when(mapper.selectTradePairVersion()).thenReturn("v1");
+        when(mapper.selectAllTradePairVOs()).thenReturn(List.of(pair));
+
+        registry = new TradePairRegistry();
+        ReflectionTestUtils.setField(registry, "tradePairMapper", mapper);
+        registry.reload();
+    }
+
+    @Test
+    void testCallerChangesDoNotLeakIntoSnapshot() {
+        TradePairVO first = registry.get("BTCUSDT");
+        first.setStatus(0);
+        first.setMinAmount(BigDecimal.TEN);
+        registry.getAll().get("BTCUSDT").setStatus(0);
+
+        TradePairVO second = registry.get("BTCUSDT");
+        assertEquals(1, second.getStatus());
+        assertEquals(new BigDecimal("0.0001"), second.getMinAmount());
+    }
+
+    @Test
+    void testGetAllIsDetachedFromSnapshot() {
+        registry.getAll().remove("BTCUSDT");
+
+        assertNotNull(registry.get("BTCUSDT"));
+        assertNull(registry.get("ETHUSDT"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.ppcex.trade.shard;
+
+import com.ppcex.common.exception.BusinessException;
+import com.ppcex.trade.config.ShardingProperties;
+import com.ppcex.trade.dto.OrderVO;
+import com.ppcex.trade.engine.MatchingEngine;
+import com.ppcex.trade.entity.TradeOrder;
+import com.ppcex.trade.mapper.TradeOrderMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SymbolOwnershipTest {
+
+    private final InMemorySymbolOwnershipRegistry registry = new InMemorySymbolOwnershipRegistry();
+    private final MatchingEngine matchingEngine = mock(MatchingEngine.class);
+    private final TradeOrderMapper tradeOrderMapper = mock(TradeOrderMapper.class);
+    private SymbolOwnership ownership;
+
+    @BeforeEach
+    void setUp() {
+        ShardingProperties properties = new ShardingProperties();
+        properties.setEnabled(true);
+        properties.setInstanceId("trade-1");
+        properties.getInstances().put("trade-1", "http://127.0.0.1:1");
+        // 不可达的地址，拉取快照必然失败
+        properties.getInstances().put("trade-2", "http://127.0.0.1:1");
+        properties.setInternalToken("secret");
+        properties.setRequestTimeoutMillis(500);
+        properties.setPollIntervalSeconds(3600);
+
+        ownership = new SymbolOwnership();
+        ReflectionTestUtils.setField(ownership, "shardingProperties", properties);
+        ReflectionTestUtils.setField(ownership, "registry", registry);
+        ReflectionTestUtils.setField(ownership, "matchingEngine", matchingEngine);
+        ReflectionTestUtils.setField(ownership, "tradeOrderMapper", tradeOrderMapper);
+        ReflectionTestUtils.setField(ownership, "restTemplateBuilder", new RestTemplateBuilder());
+        ownership.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ownership.shutdown();
+    }
+
+    @Test
+    void testUnassignedSymbolsRouteByHashAndAssignmentOverrides() {
+        String symbol = symbolOwnedBy(1);
+        assertEquals("trade-2", ownership.ownerOf(symbol));
+        assertFalse(ownership.isLocal(symbol));
+
+        ownership.assign(symbol, "trade-1");
+        assertEquals("trade-1", ownership.ownerOf(symbol));
+        assertTrue(ownership.isLocal(symbol));
+
+        assertThrows(BusinessException.class, () -> ownership.assign(symbol, "trade-9"));
+        assertEquals("trade-1", ownership.ownerOf(symbol));
+    }
+
+    @Test
+    void testHandoverOnlyAfterOwnershipMovedAway() {
+        String symbol = symbolOwnedBy(0);
+        TradeOrder resting = order(1L, symbol);
+        when(matchingEngine.releaseOrderBook(symbol)).thenReturn(CompletableFuture.completedFuture(List.of(resting)));
+
+        assertThrows(BusinessException.class, () -> ownership.handover(symbol));
+        verify(matchingEngine, never()).releaseOrderBook(any());
+
+        // 其他实例写入注册表后，交出前先刷新
+        registry.assign(symbol, "trade-2");
+        assertEquals(List.of(resting), ownership.handover(symbol));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUnreachablePreviousOwnerFallsBackToDatabase() {
+        String symbol = symbolOwnedBy(1);
+        OrderVO active = new OrderVO();
+        active.setId(7L);
+        active.setSymbol(symbol);
+        active.setPrice(BigDecimal.TEN);
+        when(tradeOrderMapper.selectActiveOrdersBySymbol(symbol)).thenReturn(List.of(active));
+        when(matchingEngine.installOrderBook(eq(symbol), any())).thenAnswer(inv -> {
+            List<TradeOrder> orders = ((Supplier<List<TradeOrder>>) inv.getArgument(1)).get();
+            return CompletableFuture.completedFuture(orders.size());
+        });
+
+        ownership.assign(symbol, "trade-1");
+        ownership.ensureInstalled(symbol);
+
+        verify(tradeOrderMapper).selectActiveOrdersBySymbol(symbol);
+        verify(matchingEngine).installOrderBook(eq(symbol), any());
+        // 已装载的交易对不再重复拉取
+        ownership.ensureInstalled(symbol);
+        verify(matchingEngine, times(1)).installOrderBook(eq(symbol), any());
+    }
+
+    /**
+     * 按哈希落到排序后第index个实例的交易对
+     */
+    private static String symbolOwnedBy(int index) {
+        for (int i = 0; ; i++) {
+            String symbol = "SYM" + i + "USDT";
+            if (Math.floorMod(symbol.hashCode(), 2) == index) {
+                return symbol;
+            }
+        }
+    }
+
+    private static TradeOrder order(Long id, String symbol) {
+        TradeOrder order = new TradeOrder();
+        order.setId(id);
+        order.setSymbol(symbol);
+        return order;
+    }
+}